@@ -0,0 +1,238 @@
+package application;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import calculator.CalculatorEngine;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+import calculator.Session;
+import graphing.GraphCache;
+import graphing.GraphRenderer;
+import graphing.Raster;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.control.Label;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Draws a graph of one or more functions in the background and publishes it to the display on the JavaFX thread. The
+ * job renders the graph with a GraphRenderer, using the calculator's engine and a copy of its session taken when the
+ * job is created, so the calculator can keep being used while the graph is drawn. A frame is published after each pass
+ * of the renderer. A job can be cancelled at any time, after which nothing more is published.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class GraphJob implements Runnable
+{
+
+    /**
+     * Initializes the job to graph functions over the given range, each in its own color.
+     * 
+     * @param display
+     *            - the Canvas the graph is published to.
+     * @param graphLabel
+     *            - the Label on which messages are published.
+     * @param width
+     *            - the width of the graph in pixels.
+     * @param height
+     *            - the height of the graph in pixels.
+     * @param thickness
+     *            - the thickness of the curves.
+     * @param spacing
+     *            - the number of pixels covered by each sampled column.
+     * @param functions
+     *            - the functions to graph.
+     * @param xMin
+     *            - the expression for the smallest value of x.
+     * @param xMax
+     *            - the expression for the largest value of x.
+     * @param yMin
+     *            - the expression for the smallest value of y.
+     * @param yMax
+     *            - the expression for the largest value of y.
+     * @param engine
+     *            - the engine used to evaluate the expressions.
+     * @param session
+     *            - the session used to evaluate the expressions.
+     * @param cache
+     *            - the samples of the earlier graphs published to display.
+     * @param errorDisplay
+     *            - the action which displays errors in the functions on graphLabel.
+     */
+    GraphJob(Canvas display, Label graphLabel, double width, double height, double thickness, double spacing,
+            List<String> functions, String xMin, String xMax, String yMin, String yMax, CalculatorEngine engine,
+            Session session, GraphCache cache, Consumer<ErrorType> errorDisplay)
+    {
+        this.display = display;
+        this.cache = cache;
+        this.graphLabel = graphLabel;
+        this.errorDisplay = errorDisplay;
+        this.renderer =
+                new GraphRenderer(width, height, thickness, spacing, functions, xMin, xMax, yMin, yMax, engine,
+                        session);
+    }
+
+    /**
+     * Cancels the job. Once this returns on the JavaFX thread, the job will not change the display.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        renderer.cancel();
+    }
+
+    /**
+     * Returns true if the job was cancelled.
+     * 
+     * @return cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public void run()
+    {
+        // The framebuffer of the last job is reused as long as the display keeps its size. Each job holds it until it
+        // is done drawing, so a cancelled job never draws into the frame of a newer one.
+        Raster raster = SPARE_RASTER.getAndSet(null);
+        try
+        {
+            raster = renderer.render(raster, cache, this::publishFrame);
+        } catch (IllegalArgumentException e)
+        {
+            publishMessage(e.getMessage());
+        } catch (CalculatorError e)
+        {
+            publishError(e.getError());
+        } catch (ArithmeticException e)
+        {
+            publishError(ErrorType.overflow);
+        } catch (RuntimeException | StackOverflowError e)
+        {
+            // Any other failure, such as a function nested too deeply to evaluate, is reported rather than lost in the
+            // pool running the job.
+            publishMessage(FAILURE);
+        } finally
+        {
+            SPARE_RASTER.set(raster);
+        }
+    }
+
+    /**
+     * Runs update on the JavaFX thread unless the job has been cancelled by then.
+     * 
+     * @param update
+     *            - the change to the display.
+     */
+    private void publish(Runnable update)
+    {
+        Platform.runLater(() -> {
+            if (!cancelled)
+            {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Publishes the pixels of a raster to the display. The pixels are copied, so the raster can keep being drawn into
+     * while the frame waits for the JavaFX thread, where they are written into an image drawn on the display.
+     * 
+     * @param raster
+     *            - the raster.
+     */
+    private void publishFrame(Raster raster)
+    {
+        final int[] pixels = raster.getPixels();
+        final int columns = raster.getColumns();
+        final int rows = raster.getRows();
+        publish(() -> {
+            if (frame == null || frame.getWidth() != columns || frame.getHeight() != rows)
+            {
+                frame = new WritableImage(columns, rows);
+            }
+            frame.getPixelWriter().setPixels(0, 0, columns, rows, PixelFormat.getIntArgbPreInstance(), pixels, 0,
+                    columns);
+            display.getGraphicsContext2D().drawImage(frame, 0, 0);
+        });
+    }
+
+    /**
+     * Publishes a message on graphLabel.
+     * 
+     * @param message
+     *            - the message.
+     */
+    private void publishMessage(String message)
+    {
+        publish(() -> {
+            graphLabel.setVisible(true);
+            graphLabel.setText(message);
+        });
+    }
+
+    /**
+     * Publishes an error in the functions on graphLabel.
+     * 
+     * @param error
+     *            - the error.
+     */
+    private void publishError(ErrorType error)
+    {
+        publish(() -> {
+            graphLabel.setVisible(true);
+            errorDisplay.accept(error);
+        });
+    }
+
+    /**
+     * The message shown for a graph which fails without an error of the calculator.
+     */
+    private static final String FAILURE = "Error. Evaluation failed.";
+
+    /**
+     * The framebuffer of the last job, if no job is using it.
+     */
+    private static final AtomicReference<Raster> SPARE_RASTER = new AtomicReference<Raster>();
+
+    /**
+     * The Canvas the graph is published to.
+     */
+    private final Canvas display;
+
+    /**
+     * The Label on which messages are published.
+     */
+    private final Label graphLabel;
+
+    /**
+     * The action which displays errors in the functions on graphLabel.
+     */
+    private final Consumer<ErrorType> errorDisplay;
+
+    /**
+     * The samples of the earlier graphs published to display.
+     */
+    private final GraphCache cache;
+
+    /**
+     * The renderer which samples the functions and draws the graph.
+     */
+    private final GraphRenderer renderer;
+
+    /**
+     * Whether the job has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The image the frames of the graph are written into, which is only used on the JavaFX thread.
+     */
+    private WritableImage frame;
+}
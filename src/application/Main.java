@@ -3,11 +3,14 @@ package application;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.math.MathContext;
+import java.util.List;
 
 import calculator.Calculator;
 import calculator.CalculatorError;
 import calculator.ErrorType;
 import calculator.Utility;
+import graphing.GraphCache;
+import graphing.GraphRenderer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -15,8 +18,11 @@ import javafx.fxml.FXMLLoader;
 import javafx.stage.Stage;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.Slider;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
@@ -24,7 +30,7 @@ import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.DataFormat;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.text.Font;
+import javafx.scene.layout.Pane;
 
 public class Main extends Application
 {
@@ -67,7 +73,6 @@ public class Main extends Application
      */
     public static void main(String[] args)
     {
-        Font.loadFont(Main.class.getResource("square.ttf").toExternalForm(), 1);
         launch(args);
     }
 
@@ -101,6 +106,16 @@ public class Main extends Application
      */
     private Calculator CAS = new Calculator();
 
+    /**
+     * The job drawing the current graph in the background, if any.
+     */
+    private GraphJob graphJob;
+
+    /**
+     * The samples of the graphs drawn on graphDisplay, which are reused by the next graph.
+     */
+    private final GraphCache graphCache = new GraphCache();
+
     /**
      * 
      */
@@ -114,10 +129,19 @@ public class Main extends Application
     private TextField textBar, xMin, xMax, yMin, yMax;
 
     /**
-     * The TextAreas on which the application displays the results.
+     * The TextArea on which the application displays the results.
+     */
+    @FXML
+    private TextArea display;
+
+    /**
+     * The Canvas on which the application draws graphs, and the Pane holding it.
      */
     @FXML
-    private TextArea display, graphDisplay;
+    private Canvas graphDisplay;
+
+    @FXML
+    private Pane graphPane;
 
     /**
      * The Label on which the current mode is printed.
@@ -153,6 +177,43 @@ public class Main extends Application
     @FXML
     private CheckMenuItem efScientific, efEngineering;
 
+    /**
+     * Sets up the controls once they are loaded. In the graphing mode, a graph being drawn is cancelled as soon as its
+     * range is edited, since it no longer matches the range shown. The graph display fills its pane, which shows its
+     * context menu.
+     */
+    @FXML
+    protected void initialize()
+    {
+        if (graphWindow != null)
+        {
+            graphDisplay.widthProperty().bind(graphPane.widthProperty());
+            graphDisplay.heightProperty().bind(graphPane.heightProperty());
+            MenuItem clear = new MenuItem("Clear");
+            clear.setOnAction(event -> onClearGraphDisplay());
+            ContextMenu graphMenu = new ContextMenu(clear);
+            graphPane.setOnContextMenuRequested(event -> graphMenu.show(graphPane, event.getScreenX(),
+                    event.getScreenY()));
+
+            xMin.textProperty().addListener((observable, oldValue, newValue) -> cancelGraph());
+            xMax.textProperty().addListener((observable, oldValue, newValue) -> cancelGraph());
+            yMin.textProperty().addListener((observable, oldValue, newValue) -> cancelGraph());
+            yMax.textProperty().addListener((observable, oldValue, newValue) -> cancelGraph());
+        }
+    }
+
+    /**
+     * Cancels the graph being drawn, if any.
+     */
+    protected void cancelGraph()
+    {
+        if (graphJob != null)
+        {
+            graphJob.cancel();
+            graphJob = null;
+        }
+    }
+
     /**
      * Closes the program.
      */
@@ -1035,8 +1096,8 @@ public class Main extends Application
     protected void onGraph()
     {
         graphLabel.setVisible(false);
-        String function = Utility.removeWhiteSpace(textBar.getText());
-        function = Utility.addImplicitMultiplication(function);
+        // Several functions can be graphed together by separating them with semicolons.
+        List<String> functions = GraphRenderer.splitFunctions(textBar.getText());
         String xMinString = Utility.removeWhiteSpace(xMin.getText());
         xMinString = Utility.addImplicitMultiplication(xMinString);
         String xMaxString = Utility.removeWhiteSpace(xMax.getText());
@@ -1045,22 +1106,18 @@ public class Main extends Application
         yMinString = Utility.addImplicitMultiplication(yMinString);
         String yMaxString = Utility.removeWhiteSpace(yMax.getText());
         yMaxString = Utility.addImplicitMultiplication(yMaxString);
-        if (function.isEmpty() || xMinString.isEmpty() || xMaxString.isEmpty() || yMinString.isEmpty()
+        if (functions.isEmpty() || xMinString.isEmpty() || xMaxString.isEmpty() || yMinString.isEmpty()
                 || yMaxString.isEmpty())
         {
             // Does nothing.
         } else
         {
-            try
-            {
-                Graphing.graph(graphDisplay, graphLabel, graphDisplay.getWidth() - 6, graphDisplay.getHeight() - 6,
-                        thickness.getValue(), spacing.getValue(), function, xMinString, xMaxString, yMinString,
-                        yMaxString, CAS);
-            } catch (CalculatorError e)
-            {
-                graphLabel.setVisible(true);
-                displayErrorGraphLabel(e.getError());
-            }
+            cancelGraph();
+            graphJob =
+                    Graphing.graph(graphDisplay, graphLabel, graphDisplay.getWidth() - 1,
+                            graphDisplay.getHeight() - 1, thickness.getValue(), spacing.getValue(), functions,
+                            xMinString, xMaxString, yMinString, yMaxString, CAS, graphCache,
+                            this::displayErrorGraphLabel);
         }
     }
 
@@ -1125,7 +1182,8 @@ public class Main extends Application
     @FXML
     protected void onClearGraphDisplay()
     {
-        graphDisplay.clear();
+        cancelGraph();
+        Graphing.clear(graphDisplay);
         graphLabel.setVisible(false);
     }
 
@@ -1174,98 +1232,7 @@ public class Main extends Application
      */
     private void displayError(ErrorType error)
     {
-        switch (error)
-        {
-        case none:
-            display.setText(display.getText() + "No errors detected.\n");
-            break;
-        case divisionByZero:
-            display.setText(display.getText() + "Error. Division by 0.\n");
-            break;
-        case tanUndef:
-            display.setText(display.getText() + "Error. Tangent undefined.\n");
-            break;
-        case secUndef:
-            display.setText(display.getText() + "Error. Secant undefined.\n");
-            break;
-        case cscUndef:
-            display.setText(display.getText() + "Error. Cosecant undefined.\n");
-            break;
-        case cotUndef:
-            display.setText(display.getText() + "Error. Cotangent undefined.\n");
-            break;
-        case lnUndef:
-            display.setText(display.getText() + "Error. Ln undefined.\n");
-            break;
-        case arcsinUndef:
-            display.setText(display.getText() + "Error. Arcsin undefined.\n");
-            break;
-        case arccosUndef:
-            display.setText(display.getText() + "Error. Arccos undefined.\n");
-            break;
-        case arcsecUndef:
-            display.setText(display.getText() + "Error. Arcsec undefined.\n");
-            break;
-        case arccscUndef:
-            display.setText(display.getText() + "Error. Arccsc undefined.\n");
-            break;
-        case cschUndef:
-            display.setText(display.getText() + "Error. Csch undefined.\n");
-            break;
-        case cothUndef:
-            display.setText(display.getText() + "Error. Coth undefined.\n");
-            break;
-        case arccoshUndef:
-            display.setText(display.getText() + "Error. Arccosh undefined.\n");
-            break;
-        case arctanhUndef:
-            display.setText(display.getText() + "Error. Arctanh undefined.\n");
-            break;
-        case arcsechUndef:
-            display.setText(display.getText() + "Error. Arcsech undefined.\n");
-            break;
-        case arccschUndef:
-            display.setText(display.getText() + "Error. Arccsch undefined.\n");
-            break;
-        case arccothUndef:
-            display.setText(display.getText() + "Error. Arccoth undefined.\n");
-            break;
-        case nonIntegralPowerNegativeArg:
-            display.setText(display.getText() + "Error. Negative number to non-integral power.\n");
-            break;
-        case functionUndef:
-            display.setText(display.getText() + "Error. Function undefined.\n");
-            break;
-        case missingArg:
-            display.setText(display.getText() + "Error. Missing argument.\n");
-            break;
-        case bracketMismatch:
-            display.setText(display.getText() + "Error. Bracket mismatch.\n");
-            break;
-        case invalidMode:
-            display.setText(display.getText() + "Error. Bracket mismatch.\n");
-            break;
-        case invalidIntegralParameters:
-            display.setText(display.getText() + "Error. Invalid integral arguments.\n");
-            break;
-        case invalidSumParameters:
-            display.setText(display.getText() + "Error. Invalid sum arguments.\n");
-            break;
-        case invalidProductParameters:
-            display.setText(display.getText() + "Error. Invalid product arguments.\n");
-            break;
-        case invalidRandParameters:
-            display.setText(display.getText() + "Error. Invalid rand argument.\n");
-            break;
-        case randArgumentTooBig:
-            display.setText(display.getText() + "Error. Rand argument too big.\n");
-            break;
-        case overflow:
-            display.setText(display.getText() + "Error. Overflow.\n");
-            break;
-        default:
-            break;
-        }
+        display.setText(display.getText() + error.getMessage() + "\n");
     }
 
     /**
@@ -1276,97 +1243,6 @@ public class Main extends Application
      */
     private void displayErrorGraphLabel(ErrorType error)
     {
-        switch (error)
-        {
-        case none:
-            graphLabel.setText("No errors detected.");
-            break;
-        case divisionByZero:
-            graphLabel.setText("Error. Division by 0.");
-            break;
-        case tanUndef:
-            graphLabel.setText("Error. Tangent undefined.");
-            break;
-        case secUndef:
-            graphLabel.setText("Error. Secant undefined.");
-            break;
-        case cscUndef:
-            graphLabel.setText("Error. Cosecant undefined.");
-            break;
-        case cotUndef:
-            graphLabel.setText("Error. Cotangent undefined.");
-            break;
-        case lnUndef:
-            graphLabel.setText("Error. Ln undefined.");
-            break;
-        case arcsinUndef:
-            graphLabel.setText("Error. Arcsin undefined.");
-            break;
-        case arccosUndef:
-            graphLabel.setText("Error. Arccos undefined.");
-            break;
-        case arcsecUndef:
-            graphLabel.setText("Error. Arcsec undefined.");
-            break;
-        case arccscUndef:
-            graphLabel.setText("Error. Arccsc undefined.");
-            break;
-        case cschUndef:
-            graphLabel.setText("Error. Csch undefined.");
-            break;
-        case cothUndef:
-            graphLabel.setText("Error. Coth undefined.");
-            break;
-        case arccoshUndef:
-            graphLabel.setText("Error. Arccosh undefined.");
-            break;
-        case arctanhUndef:
-            graphLabel.setText("Error. Arctanh undefined.");
-            break;
-        case arcsechUndef:
-            graphLabel.setText("Error. Arcsech undefined.");
-            break;
-        case arccschUndef:
-            graphLabel.setText("Error. Arccsch undefined.");
-            break;
-        case arccothUndef:
-            graphLabel.setText("Error. Arccoth undefined.");
-            break;
-        case nonIntegralPowerNegativeArg:
-            graphLabel.setText("Error. Negative number to non-integral power.");
-            break;
-        case functionUndef:
-            graphLabel.setText("Error. Function undefined.");
-            break;
-        case missingArg:
-            graphLabel.setText("Error. Missing argument.");
-            break;
-        case bracketMismatch:
-            graphLabel.setText("Error. Bracket mismatch.");
-            break;
-        case invalidMode:
-            graphLabel.setText("Error. Bracket mismatch.");
-            break;
-        case invalidIntegralParameters:
-            graphLabel.setText("Error. Invalid integral arguments.");
-            break;
-        case invalidSumParameters:
-            graphLabel.setText("Error. Invalid sum arguments.");
-            break;
-        case invalidProductParameters:
-            graphLabel.setText("Error. Invalid product arguments.");
-            break;
-        case invalidRandParameters:
-            graphLabel.setText("Error. Invalid rand argument.");
-            break;
-        case randArgumentTooBig:
-            graphLabel.setText("Error. Rand argument too big.");
-            break;
-        case overflow:
-            graphLabel.setText("Error. Overflow.");
-            break;
-        default:
-            break;
-        }
+        graphLabel.setText(error.getMessage());
     }
 }
@@ -0,0 +1,1024 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calculator.Calculator.IntegralMode;
+import calculator.Calculator.Mode;
+import calculator.Calculator.Precision;
+import calculator.ast.Expression;
+import calculator.ast.ExpressionGroup;
+import calculator.ast.Parser;
+
+/**
+ * An immutable, thread-safe calculator configuration together with the cache of compiled expressions. Any number of
+ * threads can evaluate expressions with the same engine concurrently, each with its own Session holding the values
+ * stored between evaluations. Changing a setting returns a new engine that shares the cache.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class CalculatorEngine
+{
+
+    /**
+     * The number of compiled expressions kept by an engine's cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * The error tolerance used for adaptive integration by default.
+     */
+    public static final BigDecimal DEFAULT_TOLERANCE = new BigDecimal("1e-20");
+
+    /**
+     * The smallest number of points for which an integral is computed in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    /**
+     * The number of times Romberg integration halves the grid before checking for convergence, which prevents early
+     * estimates that agree by chance from being accepted.
+     */
+    static final int ROMBERG_MIN_LEVELS = 4;
+
+    /**
+     * Initializes the engine to Mode.radians mode and decimal precision, with 1000 divisions for approximate
+     * integration using IntegralMode.simpsonCube.
+     */
+    public CalculatorEngine()
+    {
+        this(new ExpressionCache(DEFAULT_CACHE_SIZE), Mode.radians, IntegralMode.simpsonCube, Precision.decimal,
+                new Math(Math.DEFAULT_DIGITS), 1000, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Initializes the engine with the given settings.
+     * 
+     * @param mode
+     *            - the mode to use for trig functions.
+     * @param integralMode
+     *            - the integration method.
+     * @param precision
+     *            - the precision to evaluate expressions in.
+     * @param digits
+     *            - the number of significant digits used in decimal precision, at least Math.MIN_DIGITS.
+     * @param divisions
+     *            - the number of divisions to use for approximate integration.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine(Mode mode, IntegralMode integralMode, Precision precision, int digits, int divisions)
+            throws CalculatorError
+    {
+        this(new ExpressionCache(DEFAULT_CACHE_SIZE), checkMode(mode), checkIntegralMode(integralMode),
+                checkPrecision(precision), new Math(checkDigits(digits)), divisions, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Initializes the engine with the given settings and cache.
+     * 
+     * @param cache
+     *            - the cache of compiled expressions.
+     * @param mode
+     *            - the mode to use for trig functions.
+     * @param integralMode
+     *            - the integration method.
+     * @param precision
+     *            - the precision to evaluate expressions in.
+     * @param math
+     *            - the operations used in decimal precision.
+     * @param divisions
+     *            - the number of divisions to use for approximate integration.
+     * @param tolerance
+     *            - the error tolerance of adaptive integration.
+     */
+    private CalculatorEngine(ExpressionCache cache, Mode mode, IntegralMode integralMode, Precision precision,
+            Math math, int divisions, BigDecimal tolerance)
+    {
+        this.cache = cache;
+        this.mode = mode;
+        this.integralMode = integralMode;
+        this.precision = precision;
+        this.math = math;
+        this.divisions = divisions;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns an engine in newMode with the same settings and cache as this one. Accepts Mode.radians and
+     * Mode.degrees.
+     * 
+     * @param newMode
+     *            - the mode to use for trig functions.
+     * @return the new engine.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine withMode(Mode newMode) throws CalculatorError
+    {
+        return new CalculatorEngine(cache, checkMode(newMode), integralMode, precision, math, divisions, tolerance);
+    }
+
+    /**
+     * Returns the mode used for trig functions.
+     * 
+     * @return mode.
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Returns an engine using the integration method newMode with the same settings and cache as this one.
+     * 
+     * @param newMode
+     *            - the integration mode to use. Accepts IntegralMode.rectangle, IntegralMode.midpoint,
+     *            IntegralMode.trapezoid, IntegralMode.simpsonQuad, IntegralMode.simpsonCube,
+     *            IntegralMode.gaussKronrod, IntegralMode.romberg and IntegralMode.tanhSinh
+     * @return the new engine.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine withIntegralMode(IntegralMode newMode) throws CalculatorError
+    {
+        return new CalculatorEngine(cache, mode, checkIntegralMode(newMode), precision, math, divisions, tolerance);
+    }
+
+    /**
+     * Returns the integration method.
+     * 
+     * @return integralMode.
+     */
+    public IntegralMode getIntegralMode()
+    {
+        return integralMode;
+    }
+
+    /**
+     * Returns an engine evaluating expressions in newPrecision with the same settings and cache as this one.
+     * 
+     * @param newPrecision
+     *            - the precision to use. Accepts Precision.decimal and Precision.doublePrecision.
+     * @return the new engine.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine withPrecision(Precision newPrecision) throws CalculatorError
+    {
+        return new CalculatorEngine(cache, mode, integralMode, checkPrecision(newPrecision), math, divisions,
+                tolerance);
+    }
+
+    /**
+     * Returns the precision used to evaluate expressions.
+     * 
+     * @return precision.
+     */
+    public Precision getPrecision()
+    {
+        return precision;
+    }
+
+    /**
+     * Returns an engine using digits significant digits in decimal precision with the same settings and cache as
+     * this one.
+     * 
+     * @param digits
+     *            - the number of significant digits, at least Math.MIN_DIGITS.
+     * @return the new engine.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine withDigits(int digits) throws CalculatorError
+    {
+        if (checkDigits(digits) == math.getDigits())
+        {
+            return this;
+        }
+        return new CalculatorEngine(cache, mode, integralMode, precision, new Math(digits), divisions, tolerance);
+    }
+
+    /**
+     * Returns the number of significant digits used in decimal precision.
+     * 
+     * @return the number of significant digits.
+     */
+    public int getDigits()
+    {
+        return math.getDigits();
+    }
+
+    /**
+     * Returns the operations used in decimal precision, computed to the engine's number of significant digits.
+     * 
+     * @return math.
+     */
+    public Math getMath()
+    {
+        return math;
+    }
+
+    /**
+     * Returns an engine using newDivisions for approximate integration with the same settings and cache as this one.
+     * In IntegralMode.gaussKronrod and IntegralMode.romberg, this is the largest number of subintervals an integral is
+     * divided into, and in IntegralMode.tanhSinh the largest number of points it is evaluated at.
+     * 
+     * @param newDivisions
+     *            - the number of divisions to use for approximate integration.
+     * @return the new engine.
+     */
+    public CalculatorEngine withDivisions(int newDivisions)
+    {
+        return new CalculatorEngine(cache, mode, integralMode, precision, math, newDivisions, tolerance);
+    }
+
+    /**
+     * Returns the number of divisions used for the integration method.
+     * 
+     * @return divisions.
+     */
+    public int getDivisions()
+    {
+        return divisions;
+    }
+
+    /**
+     * Returns an engine using newTolerance for adaptive integration with the same settings and cache as this one. An
+     * adaptive integral is accepted once its estimated error is at most newTolerance times the larger of 1 and the
+     * magnitude of the integral.
+     * 
+     * @param newTolerance
+     *            - the error tolerance, which must be positive.
+     * @return the new engine.
+     * @throws CalculatorError
+     */
+    public CalculatorEngine withTolerance(BigDecimal newTolerance) throws CalculatorError
+    {
+        if (newTolerance.signum() != 1)
+        {
+            throw new CalculatorError(ErrorType.invalidMode);
+        }
+        return new CalculatorEngine(cache, mode, integralMode, precision, math, divisions, newTolerance);
+    }
+
+    /**
+     * Returns the error tolerance used for adaptive integration.
+     * 
+     * @return tolerance.
+     */
+    public BigDecimal getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * Returns the cache of compiled expressions used by the engine.
+     * 
+     * @return cache.
+     */
+    public ExpressionCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Returns the value of the expression stored in the string as a type BigDecimal.
+     * 
+     * @param str
+     *            - the string containing an expression to be evaluated.
+     * @param session
+     *            - the session holding the stored values.
+     * 
+     * @return the numerical value of the string's expression.
+     * @throws CalculatorError
+     */
+    public BigDecimal compute(String str, Session session) throws CalculatorError, ArithmeticException
+    {
+        return evaluate(compile(str, session), session);
+    }
+
+    /**
+     * Compiles the expression stored in the string into an expression tree, which can then be evaluated any number of
+     * times using evaluate(Expression, Session). The string is normalized first, and expressions compiled from the
+     * same normalized string are reused from the engine's cache.
+     * 
+     * @param str
+     *            - the string containing an expression to be compiled.
+     * @param session
+     *            - the session holding the stored functions.
+     * 
+     * @return the root of the expression tree.
+     * @throws CalculatorError
+     */
+    public Expression compile(String str, Session session) throws CalculatorError
+    {
+        String key = normalize(str, session);
+        Expression expression = cache.get(key);
+        if (expression == null)
+        {
+            expression = Parser.compile(key);
+            cache.put(key, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Compiles the functions stored in the strings into a group, whose common subexpressions are evaluated once for
+     * all of them by evaluate(ExpressionGroup, BigDecimal, Session, BigDecimal[], Exception[]).
+     * 
+     * @param strs
+     *            - the strings containing the functions to be compiled.
+     * @param session
+     *            - the session holding the stored functions.
+     * 
+     * @return the group of functions.
+     * @throws CalculatorError
+     */
+    public ExpressionGroup compile(List<String> strs, Session session) throws CalculatorError
+    {
+        List<Expression> functions = new ArrayList<Expression>(strs.size());
+        for (String str : strs)
+        {
+            functions.add(compile(str, session));
+        }
+        return new ExpressionGroup(functions);
+    }
+
+    /**
+     * Returns the normalized form of the string, with whitespace removed, letters in lower case, implicit
+     * multiplication made explicit and "fans" and "fmem" replaced with the values stored in the session.
+     * 
+     * @param str
+     *            - the string to be normalized.
+     * @param session
+     *            - the session holding the stored functions.
+     * 
+     * @return the normalized string.
+     */
+    public String normalize(String str, Session session)
+    {
+        str = Utility.removeWhiteSpace(str);
+        str = Utility.toLowerCase(str);
+        str = Utility.addImplicitMultiplication(str);
+        return session.fReplace(str);
+    }
+
+    /**
+     * Returns the value of a compiled expression as a type BigDecimal.
+     * 
+     * @param expression
+     *            - the expression to be evaluated.
+     * @param session
+     *            - the session holding the stored values.
+     * 
+     * @return the numerical value of the expression.
+     * @throws CalculatorError
+     */
+    public BigDecimal evaluate(Expression expression, Session session) throws CalculatorError, ArithmeticException
+    {
+        session.resetIntegralEvaluations();
+        if (precision == Precision.doublePrecision)
+        {
+            return toBigDecimal(expression.accept(new DoubleEvaluator(this, session)));
+        }
+        return expression.accept(new DecimalEvaluator(this, session));
+    }
+
+    /**
+     * Returns the value of a compiled function of x as a type BigDecimal.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param x
+     *            - the value of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * 
+     * @return the numerical value of the function at x.
+     * @throws CalculatorError
+     */
+    public BigDecimal evaluate(Expression function, BigDecimal x, Session session) throws CalculatorError,
+            ArithmeticException
+    {
+        session.resetIntegralEvaluations();
+        if (precision == Precision.doublePrecision)
+        {
+            return toBigDecimal(new DoubleEvaluator(this, session).evaluateAt(function, 0, x.doubleValue()));
+        }
+        return new DecimalEvaluator(this, session).evaluateAt(function, 0, x);
+    }
+
+    /**
+     * Returns the value of a compiled function of x in double precision, regardless of the engine's precision.
+     * Results that overflow are returned as infinite or NaN values.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param x
+     *            - the value of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * 
+     * @return the numerical value of the function at x.
+     * @throws CalculatorError
+     */
+    public double evaluateDouble(Expression function, double x, Session session) throws CalculatorError
+    {
+        session.resetIntegralEvaluations();
+        return new DoubleEvaluator(this, session).evaluateAt(function, 0, x);
+    }
+
+    /**
+     * Evaluates the functions of a group at x as type BigDecimal, evaluating their common subexpressions once. The
+     * value of function i is stored in values[i], or null if it fails, in which case the CalculatorError or
+     * ArithmeticException it throws is stored in errors[i].
+     * 
+     * @param group
+     *            - the functions to be evaluated.
+     * @param x
+     *            - the value of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * @param values
+     *            - the values of the functions at x.
+     * @param errors
+     *            - the errors thrown by the functions at x.
+     */
+    public void evaluate(ExpressionGroup group, BigDecimal x, Session session, BigDecimal[] values, Exception[] errors)
+    {
+        if (precision == Precision.doublePrecision)
+        {
+            DoubleEvaluator evaluator = new DoubleEvaluator(this, session);
+            evaluator.bind(0, x.doubleValue());
+            evaluator.resetTemporaries(group.getTemporaryCount());
+            for (int i = 0; i < group.size(); i++)
+            {
+                session.resetIntegralEvaluations();
+                try
+                {
+                    values[i] = toBigDecimal(group.getFunction(i).accept(evaluator));
+                    errors[i] = null;
+                } catch (CalculatorError e)
+                {
+                    values[i] = null;
+                    errors[i] = e;
+                }
+            }
+            return;
+        }
+
+        DecimalEvaluator evaluator = new DecimalEvaluator(this, session);
+        evaluator.bind(0, x);
+        evaluator.resetTemporaries(group.getTemporaryCount());
+        for (int i = 0; i < group.size(); i++)
+        {
+            session.resetIntegralEvaluations();
+            try
+            {
+                values[i] = group.getFunction(i).accept(evaluator);
+                errors[i] = null;
+            } catch (CalculatorError | ArithmeticException e)
+            {
+                values[i] = null;
+                errors[i] = e;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the functions of a group at x in double precision, regardless of the engine's precision, evaluating
+     * their common subexpressions once. The value of function i is stored in values[i], or NaN if it fails, in which
+     * case the error it throws is stored in errors[i]. Results that overflow are stored as infinite or NaN values.
+     * 
+     * @param group
+     *            - the functions to be evaluated.
+     * @param x
+     *            - the value of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * @param values
+     *            - the values of the functions at x.
+     * @param errors
+     *            - the errors thrown by the functions at x.
+     */
+    public void evaluateDouble(ExpressionGroup group, double x, Session session, double[] values,
+            CalculatorError[] errors)
+    {
+        DoubleEvaluator evaluator = new DoubleEvaluator(this, session);
+        evaluator.bind(0, x);
+        evaluator.resetTemporaries(group.getTemporaryCount());
+        for (int i = 0; i < group.size(); i++)
+        {
+            session.resetIntegralEvaluations();
+            try
+            {
+                values[i] = group.getFunction(i).accept(evaluator);
+                errors[i] = null;
+            } catch (CalculatorError e)
+            {
+                values[i] = Double.NaN;
+                errors[i] = e;
+            }
+        }
+    }
+
+    /**
+     * Evaluates a compiled function of x in double precision at each of the values xs[i], regardless of the engine's
+     * precision. The function is evaluated one operation at a time over blocks of values of x, which gives the same
+     * results as evaluateDouble(Expression, double, Session) without allocating memory for each value. The value at
+     * xs[i] is stored in values[i], or NaN if the function fails there, in which case the error it would have thrown is
+     * stored in errors[i]. Results that overflow are stored as infinite or NaN values with no error.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param xs
+     *            - the values of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * @param values
+     *            - the values of the function, with room for xs.length values.
+     * @param errors
+     *            - the errors of the function, with room for xs.length errors, or null if they are not needed.
+     */
+    public void evaluate(Expression function, double[] xs, Session session, double[] values, ErrorType[] errors)
+    {
+        session.resetIntegralEvaluations();
+        new ColumnEvaluator(new DoubleEvaluator(this, session)).evaluate(function, 0, xs, values, errors);
+    }
+
+    /**
+     * Evaluates the functions of a group in double precision at each of the values xs[i], regardless of the engine's
+     * precision, evaluating their common subexpressions once per value. The value of function f at xs[i] is stored in
+     * values[f][i], or NaN if it fails there, in which case the error it would have thrown is stored in errors[f][i].
+     * Results that overflow are stored as infinite or NaN values with no error.
+     * 
+     * @param group
+     *            - the functions to be evaluated.
+     * @param xs
+     *            - the values of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * @param values
+     *            - the values of the functions, with room for xs.length values each.
+     * @param errors
+     *            - the errors of the functions, with room for xs.length errors each, or null if they are not needed.
+     */
+    public void evaluate(ExpressionGroup group, double[] xs, Session session, double[][] values, ErrorType[][] errors)
+    {
+        session.resetIntegralEvaluations();
+        new ColumnEvaluator(new DoubleEvaluator(this, session)).evaluate(group, xs, values, errors);
+    }
+
+    /**
+     * Evaluates a compiled function of x as type BigDecimal at each of the values xs[i], using a single evaluator for
+     * all of them. The value at xs[i] is stored in values[i], or null if the function fails there, in which case the
+     * error it would have thrown is stored in errors[i]. An ArithmeticException is stored as ErrorType.overflow.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param xs
+     *            - the values of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * @param values
+     *            - the values of the function, with room for xs.length values.
+     * @param errors
+     *            - the errors of the function, with room for xs.length errors, or null if they are not needed.
+     */
+    public void evaluate(Expression function, BigDecimal[] xs, Session session, BigDecimal[] values,
+            ErrorType[] errors)
+    {
+        session.resetIntegralEvaluations();
+        if (precision == Precision.doublePrecision)
+        {
+            double[] doubles = new double[xs.length];
+            for (int i = 0; i < xs.length; i++)
+            {
+                doubles[i] = xs[i].doubleValue();
+            }
+            double[] results = new double[xs.length];
+            ErrorType[] doubleErrors = new ErrorType[xs.length];
+            new ColumnEvaluator(new DoubleEvaluator(this, session)).evaluate(function, 0, doubles, results,
+                    doubleErrors);
+            for (int i = 0; i < xs.length; i++)
+            {
+                ErrorType error = doubleErrors[i];
+                if (error == null && (Double.isNaN(results[i]) || Double.isInfinite(results[i])))
+                {
+                    error = ErrorType.overflow;
+                }
+                values[i] = error == null ? BigDecimal.valueOf(results[i]) : null;
+                if (errors != null)
+                {
+                    errors[i] = error;
+                }
+            }
+            return;
+        }
+
+        DecimalEvaluator evaluator = new DecimalEvaluator(this, session);
+        for (int i = 0; i < xs.length; i++)
+        {
+            ErrorType error = null;
+            try
+            {
+                values[i] = evaluator.evaluateAt(function, 0, xs[i]);
+            } catch (CalculatorError e)
+            {
+                values[i] = null;
+                error = e.getError();
+            } catch (ArithmeticException e)
+            {
+                values[i] = null;
+                error = ErrorType.overflow;
+            }
+            if (errors != null)
+            {
+                errors[i] = error;
+            }
+        }
+    }
+
+    /**
+     * Returns an interval enclosing the values of a compiled function of x at every point of an interval of x at which
+     * it is defined, regardless of the engine's precision. The result is empty if the function is undefined over all
+     * of x.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param x
+     *            - the interval of the independent variable x.
+     * @param session
+     *            - the session holding the stored values.
+     * 
+     * @return the interval enclosing the values of the function over x.
+     * @throws CalculatorError
+     */
+    public Interval evaluateInterval(Expression function, Interval x, Session session) throws CalculatorError
+    {
+        return new IntervalEvaluator(this, session).evaluateAt(function, 0, x);
+    }
+
+    /**
+     * Converts the result of a double precision evaluation to a BigDecimal.
+     * 
+     * @param value
+     *            - the result to be converted.
+     * 
+     * @return the result as a BigDecimal.
+     * @throws CalculatorError
+     */
+    private static BigDecimal toBigDecimal(double value) throws CalculatorError
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+        {
+            throw new CalculatorError(ErrorType.overflow);
+        }
+        return BigDecimal.valueOf(value);
+    }
+
+    /**
+     * Checks that mode is Mode.radians or Mode.degrees.
+     * 
+     * @param mode
+     *            - the mode to be checked.
+     * @return mode.
+     * @throws CalculatorError
+     */
+    private static Mode checkMode(Mode mode) throws CalculatorError
+    {
+        if (mode == Mode.radians || mode == Mode.degrees)
+        {
+            return mode;
+        }
+        throw new CalculatorError(ErrorType.invalidMode);
+    }
+
+    /**
+     * Checks that integralMode is one of the supported integration methods.
+     * 
+     * @param integralMode
+     *            - the integration method to be checked.
+     * @return integralMode.
+     * @throws CalculatorError
+     */
+    private static IntegralMode checkIntegralMode(IntegralMode integralMode) throws CalculatorError
+    {
+        if (integralMode == IntegralMode.rectangle || integralMode == IntegralMode.midpoint
+                || integralMode == IntegralMode.trapezoid || integralMode == IntegralMode.simpsonQuad
+                || integralMode == IntegralMode.simpsonCube || integralMode == IntegralMode.gaussKronrod
+                || integralMode == IntegralMode.romberg || integralMode == IntegralMode.tanhSinh)
+        {
+            return integralMode;
+        }
+        throw new CalculatorError(ErrorType.invalidMode);
+    }
+
+    /**
+     * Checks that precision is Precision.decimal or Precision.doublePrecision.
+     * 
+     * @param precision
+     *            - the precision to be checked.
+     * @return precision.
+     * @throws CalculatorError
+     */
+    private static Precision checkPrecision(Precision precision) throws CalculatorError
+    {
+        if (precision == Precision.decimal || precision == Precision.doublePrecision)
+        {
+            return precision;
+        }
+        throw new CalculatorError(ErrorType.invalidMode);
+    }
+
+    /**
+     * Checks that digits is at least Math.MIN_DIGITS.
+     * 
+     * @param digits
+     *            - the number of significant digits to be checked.
+     * @return digits.
+     * @throws CalculatorError
+     */
+    private static int checkDigits(int digits) throws CalculatorError
+    {
+        if (digits < Math.MIN_DIGITS)
+        {
+            throw new CalculatorError(ErrorType.invalidMode);
+        }
+        return digits;
+    }
+
+    /**
+     * The compiled expressions, keyed by their normalized input.
+     */
+    private final ExpressionCache cache;
+
+    /**
+     * The mode to use for the computation of trig functions.
+     */
+    private final Mode mode;
+
+    /**
+     * The mode to use for the computation of integrals.
+     */
+    private final IntegralMode integralMode;
+
+    /**
+     * The precision to use for the evaluation of expressions.
+     */
+    private final Precision precision;
+
+    /**
+     * The operations used in decimal precision.
+     */
+    private final Math math;
+
+    /**
+     * The number of divisions to be used for integration.
+     */
+    private final int divisions;
+
+    /**
+     * The error tolerance to be used for adaptive integration.
+     */
+    private final BigDecimal tolerance;
+
+    // Accumulation functions:
+
+    /**
+     * Returns the numerical value of the integral of the function from lowerLimit to upperLimit computed according to
+     * the engine's integralMode. The rectangle, midpoint, trapezoid and Simpson rules always use divisions
+     * subintervals and estimate no error. The adaptive rules stop once their estimated error meets the tolerance, and
+     * an integral which reaches the limit of divisions first returns its last estimate and is counted in the session
+     * as not converged.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * 
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    BigDecimal integral(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        MathContext mc = math.getMathContext();
+        if (integralMode == IntegralMode.rectangle)
+        {
+            BigDecimal dx = (upperLimit.subtract(lowerLimit)).divide(new BigDecimal(divisions), mc);
+            BigDecimal sum = weightedSum(function, slot, lowerLimit.add(dx), dx, divisions, 0, evaluator);
+            return sum.multiply(dx, mc);
+        } else if (integralMode == IntegralMode.midpoint)
+        {
+            BigDecimal dx = (upperLimit.subtract(lowerLimit)).divide(new BigDecimal(divisions), mc);
+            BigDecimal x = lowerLimit.add(dx.divide(new BigDecimal("2"), mc));
+            BigDecimal sum = weightedSum(function, slot, x, dx, divisions, 0, evaluator);
+            return sum.multiply(dx, mc);
+        } else if (integralMode == IntegralMode.trapezoid)
+        {
+            BigDecimal dx = (upperLimit.subtract(lowerLimit)).divide(new BigDecimal(divisions), mc);
+            BigDecimal sum = weightedSum(function, slot, lowerLimit, dx, divisions + 1, 1, evaluator);
+            return sum.multiply(dx.divide(new BigDecimal("2"), mc), mc);
+        } else if (integralMode == IntegralMode.simpsonQuad)
+        {
+            int totalDivisions = 2 * divisions;
+            BigDecimal dx = (upperLimit.subtract(lowerLimit)).divide(new BigDecimal(totalDivisions), mc);
+            BigDecimal sum = weightedSum(function, slot, lowerLimit, dx, totalDivisions + 1, 2, evaluator);
+            return sum.multiply(dx.divide(new BigDecimal("3"), mc), mc);
+        } else if (integralMode == IntegralMode.simpsonCube)
+        {
+            int totalDivisions = 3 * divisions;
+            BigDecimal dx = (upperLimit.subtract(lowerLimit)).divide(new BigDecimal(totalDivisions), mc);
+            BigDecimal sum = weightedSum(function, slot, lowerLimit, dx, totalDivisions + 1, 3, evaluator);
+            return sum
+                    .multiply(dx.multiply(new BigDecimal("3"), mc).divide(new BigDecimal("8"), mc), mc);
+        } else if (integralMode == IntegralMode.gaussKronrod)
+        {
+            return GaussKronrod.integrate(function, slot, lowerLimit, upperLimit, tolerance, divisions, mc,
+                    evaluator, evaluator.getSession());
+        } else if (integralMode == IntegralMode.romberg)
+        {
+            return romberg(function, slot, lowerLimit, upperLimit, evaluator);
+        } else if (integralMode == IntegralMode.tanhSinh)
+        {
+            return TanhSinh.integrate(function, slot, lowerLimit, upperLimit, tolerance, divisions, mc, evaluator,
+                    evaluator.getSession());
+        }
+        return new BigDecimal("0");
+    }
+
+    /**
+     * Returns the integral of the function from lowerLimit to upperLimit using Romberg integration. The trapezoid rule
+     * is computed on grids of 1, 2, 4, ... subintervals, each reusing the points of the previous grid, and refined by
+     * Richardson extrapolation until successive estimates agree to within the engine's tolerance or the grid would
+     * exceed divisions subintervals, in which case the integral is counted in the session as not converged.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * 
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    private BigDecimal romberg(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        MathContext mc = math.getMathContext();
+        BigDecimal half = new BigDecimal("0.5");
+        BigDecimal h = upperLimit.subtract(lowerLimit);
+        BigDecimal[] previous =
+                new BigDecimal[] { weightedSum(function, slot, lowerLimit, h, 2, 0, evaluator).multiply(
+                        h.multiply(half), mc) };
+        for (int level = 1, count = 1; 2 * count <= divisions; level++, count *= 2)
+        {
+            // The new points lie halfway between the points of the previous grid.
+            h = h.multiply(half);
+            BigDecimal sum = weightedSum(function, slot, lowerLimit.add(h), h.add(h), count, 0, evaluator);
+
+            BigDecimal[] current = new BigDecimal[level + 1];
+            current[0] = previous[0].multiply(half).add(sum.multiply(h, mc), mc);
+            BigDecimal factor = new BigDecimal("1");
+            for (int m = 1; m <= level; m++)
+            {
+                factor = factor.multiply(new BigDecimal("4"));
+                current[m] =
+                        current[m - 1].add(current[m - 1].subtract(previous[m - 1]).divide(
+                                factor.subtract(BigDecimal.ONE), mc), mc);
+            }
+            if (level >= ROMBERG_MIN_LEVELS
+                    && current[level].subtract(previous[level - 1]).abs().compareTo(
+                            tolerance.multiply(current[level].abs().max(BigDecimal.ONE))) <= 0)
+            {
+                return current[level];
+            }
+            previous = current;
+        }
+        evaluator.getSession().addUnconvergedIntegral();
+        return previous[previous.length - 1];
+    }
+
+    /**
+     * Returns the sum of the function at the count points start + i*dx, each multiplied by its Newton-Cotes weight.
+     * Sums of at least PARALLEL_THRESHOLD points are split among the threads of the common ForkJoinPool, and give
+     * exactly the same result as a serial sum.
+     * 
+     * @param function
+     *            - the function to be summed.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param start
+     *            - the first point.
+     * @param dx
+     *            - the distance between points.
+     * @param count
+     *            - the number of points.
+     * @param order
+     *            - the order of the Newton-Cotes weights, 1, 2 or 3, or 0 if all points have weight 1.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * 
+     * @return the weighted sum.
+     * @throws CalculatorError
+     */
+    private BigDecimal weightedSum(Expression function, int slot, BigDecimal start, BigDecimal dx, int count,
+            int order, DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        evaluator.getSession().addIntegralEvaluations(count);
+        IntegralTask task =
+                new IntegralTask(function, slot, start, dx, count, order, math.getMathContext(), evaluator,
+                        new AtomicInteger(Integer.MAX_VALUE), 0, count);
+        if (count < PARALLEL_THRESHOLD)
+        {
+            return task.sum(evaluator);
+        }
+        if (ForkJoinTask.inForkJoinPool())
+        {
+            task.invoke();
+        } else
+        {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return task.getSum();
+    }
+
+    /**
+     * Returns the numerical value of the sum of the function from lowerLimit to upperLimit, where both of these limits
+     * are integers.
+     * 
+     * @param function
+     *            - the function to be summed.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of summation.
+     * @param upperLimit
+     *            - the upper limit of summation.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * 
+     * @return the numerical value of the sum.
+     * @throws CalculatorError
+     */
+    BigDecimal sum(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        BigDecimal sum = new BigDecimal("0");
+        BigDecimal x = lowerLimit;
+        BigDecimal dx = new BigDecimal("1");
+        while (x.compareTo(upperLimit) <= 0)
+        {
+            sum = sum.add(evaluator.evaluateAt(function, slot, x));
+            x = x.add(dx);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the numerical value of the product of the function from lowerLimit to upperLimit, where both of these
+     * limits are integers.
+     * 
+     * @param function
+     *            - the function to take the product of.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of the product.
+     * @param upperLimit
+     *            - the upper limit of the product.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * 
+     * @return the numerical value of the product.
+     * @throws CalculatorError
+     */
+    BigDecimal product(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        MathContext mc = math.getMathContext();
+        BigDecimal product = new BigDecimal("1");
+        BigDecimal x = lowerLimit;
+        BigDecimal dx = new BigDecimal("1");
+        while (x.compareTo(upperLimit) <= 0)
+        {
+            product = product.multiply(evaluator.evaluateAt(function, slot, x), mc);
+            x = x.add(dx);
+        }
+        return product;
+    }
+}
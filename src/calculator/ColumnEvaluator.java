@@ -0,0 +1,1165 @@
+package calculator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import calculator.ast.Accumulation;
+import calculator.ast.BinaryOperation;
+import calculator.ast.Constant;
+import calculator.ast.Expression;
+import calculator.ast.ExpressionGroup;
+import calculator.ast.FunctionCall;
+import calculator.ast.Negation;
+import calculator.ast.NumberLiteral;
+import calculator.ast.RandomNumber;
+import calculator.ast.Temporary;
+import calculator.ast.Variable;
+import calculator.ast.Visitor;
+
+/**
+ * Evaluates an expression tree in double precision at a whole column of values of x, one node at a time, so that each
+ * operation runs in a single loop over the column instead of the tree being walked once per value. The column is
+ * split into blocks of BLOCK_SIZE values, whose intermediate results are kept in buffers reused from block to block,
+ * so nothing is allocated per value once the buffers exist. The results are exactly those of DoubleEvaluator: a value
+ * of x at which DoubleEvaluator would throw an error is marked with the first error met in the same order of
+ * evaluation, and its result is NaN. Subtrees which do not depend on x, such as an integral whose bounds are
+ * constants, are computed once per block by DoubleEvaluator, and operations with such an operand loop over the other
+ * one alone, which leaves loops simple enough for the compiler to use the vector instructions of the CPU. Sums,
+ * products, integrals and random numbers which depend on x are computed by DoubleEvaluator at each value in turn.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class ColumnEvaluator implements Visitor<double[]>
+{
+
+    /**
+     * The number of values of x evaluated together.
+     */
+    static final int BLOCK_SIZE = 128;
+
+    /**
+     * Initializes the evaluator.
+     * 
+     * @param scalar
+     *            - the evaluator used for the nodes which are not evaluated by column, and whose bound slots give the
+     *            values of the other variables.
+     */
+    ColumnEvaluator(DoubleEvaluator scalar)
+    {
+        this.scalar = scalar;
+        this.buffers = new ArrayDeque<double[]>();
+        this.errors = new ErrorType[BLOCK_SIZE];
+        this.points = new double[BLOCK_SIZE];
+        this.values = new double[BLOCK_SIZE];
+        this.invariants = new IdentityHashMap<Expression, Boolean>();
+        this.invariance = new Invariance();
+        this.invariantSlot = -1;
+    }
+
+    /**
+     * The evaluator used for the nodes which are not evaluated by column.
+     */
+    private final DoubleEvaluator scalar;
+
+    /**
+     * The buffers free to hold the values of a node.
+     */
+    private final ArrayDeque<double[]> buffers;
+
+    /**
+     * The error of each value of x of the block, or null if its evaluation has not failed so far.
+     */
+    private ErrorType[] errors;
+
+    /**
+     * Whether the evaluation has failed at some value of x, in which case errors holds errors to be cleared.
+     */
+    private boolean failed;
+
+    /**
+     * The values of x given to evaluatePoints(Expression, int, int).
+     */
+    private final double[] points;
+
+    /**
+     * The values returned by evaluatePoints(Expression, int, int).
+     */
+    private final double[] values;
+
+    /**
+     * Whether each node met so far does not depend on x in invariantSlot.
+     */
+    private final Map<Expression, Boolean> invariants;
+
+    /**
+     * The visitor finding whether a node depends on x.
+     */
+    private final Invariance invariance;
+
+    /**
+     * The slot of x for which invariants holds, or -1 if it is empty.
+     */
+    private int invariantSlot;
+
+    /**
+     * The slot in which x takes the values of the column.
+     */
+    private int slot;
+
+    /**
+     * The values of x.
+     */
+    private double[] xs;
+
+    /**
+     * The index in xs of the first value of x of the block.
+     */
+    private int offset;
+
+    /**
+     * The number of values of x in the block.
+     */
+    private int length;
+
+    /**
+     * The values of the temporaries of the group of functions being evaluated, or null for those not evaluated yet.
+     */
+    private double[][] temporaryValues;
+
+    /**
+     * The errors of the temporaries of the group of functions being evaluated.
+     */
+    private ErrorType[][] temporaryErrors;
+
+    /**
+     * Whether the evaluation of each temporary has failed at some value of x.
+     */
+    private boolean[] temporaryFailed;
+
+    /**
+     * Whether each temporary has been evaluated. The array is null if the values of the temporaries are not kept.
+     */
+    private boolean[] evaluated;
+
+    /**
+     * Evaluates function with x in slot taking each of the values xs[i]. The value at xs[i] is stored in values[i], or
+     * NaN if the evaluation fails, in which case the error is stored in errors[i].
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param slot
+     *            - the slot in which x is read by the function.
+     * @param xs
+     *            - the values of x.
+     * @param values
+     *            - the values of the function, with room for xs.length values.
+     * @param errors
+     *            - the errors of the function, with room for xs.length errors, or null if they are not needed.
+     */
+    void evaluate(Expression function, int slot, double[] xs, double[] values, ErrorType[] errors)
+    {
+        for (int start = 0; start < xs.length; start += BLOCK_SIZE)
+        {
+            setBlock(slot, xs, start, java.lang.Math.min(BLOCK_SIZE, xs.length - start));
+            store(function, values, errors, start);
+        }
+    }
+
+    /**
+     * Evaluates the functions of a group with x in slot 0 taking each of the values xs[i], evaluating their common
+     * subexpressions once per value. The value of function f at xs[i] is stored in values[f][i], or NaN if the
+     * evaluation fails, in which case the error is stored in errors[f][i].
+     * 
+     * @param group
+     *            - the functions to be evaluated.
+     * @param xs
+     *            - the values of x.
+     * @param values
+     *            - the values of the functions, with room for xs.length values each.
+     * @param errors
+     *            - the errors of the functions, with room for xs.length errors each, or null if they are not needed.
+     */
+    void evaluate(ExpressionGroup group, double[] xs, double[][] values, ErrorType[][] errors)
+    {
+        int count = group.getTemporaryCount();
+        temporaryValues = new double[count][];
+        temporaryErrors = new ErrorType[count][BLOCK_SIZE];
+        temporaryFailed = new boolean[count];
+        evaluated = new boolean[count];
+        try
+        {
+            for (int start = 0; start < xs.length; start += BLOCK_SIZE)
+            {
+                setBlock(0, xs, start, java.lang.Math.min(BLOCK_SIZE, xs.length - start));
+                for (int i = 0; i < count; i++)
+                {
+                    forget(i);
+                }
+                for (int f = 0; f < group.size(); f++)
+                {
+                    store(group.getFunction(f), values[f], errors == null ? null : errors[f], start);
+                }
+            }
+        } finally
+        {
+            for (int i = 0; i < count; i++)
+            {
+                forget(i);
+            }
+            evaluated = null;
+            temporaryValues = null;
+            temporaryErrors = null;
+            temporaryFailed = null;
+        }
+    }
+
+    /**
+     * Returns the array of BLOCK_SIZE values of x used by evaluatePoints(Expression, int, int).
+     * 
+     * @return the points.
+     */
+    double[] getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Evaluates function with x in slot taking each of the first count values of getPoints(), and returns an array
+     * whose first count values are the values of the function. The array is overwritten by the next call.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param slot
+     *            - the slot in which x is read by the function.
+     * @param count
+     *            - the number of points, at most BLOCK_SIZE.
+     * @return the values of the function.
+     * @throws CalculatorError
+     *             with the error of the first point at which the evaluation fails.
+     */
+    double[] evaluatePoints(Expression function, int slot, int count) throws CalculatorError
+    {
+        setBlock(slot, points, 0, count);
+        clearErrors();
+        double[] column = column(function);
+        System.arraycopy(column, 0, values, 0, count);
+        release(column);
+        if (failed)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                if (errors[i] != null)
+                {
+                    throw new CalculatorError(errors[i]);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public double[] visitNumber(NumberLiteral node)
+    {
+        double[] result = acquire();
+        Arrays.fill(result, 0, length, node.getDoubleValue());
+        return result;
+    }
+
+    @Override
+    public double[] visitConstant(Constant node)
+    {
+        return broadcast(node);
+    }
+
+    @Override
+    public double[] visitVariable(Variable node)
+    {
+        if (node.getSlot() != slot)
+        {
+            return broadcast(node);
+        }
+        double[] result = acquire();
+        System.arraycopy(xs, offset, result, 0, length);
+        return result;
+    }
+
+    @Override
+    public double[] visitNegation(Negation node) throws CalculatorError
+    {
+        if (isInvariant(node))
+        {
+            return broadcast(node);
+        }
+        double[] operand = node.getOperand().accept(this);
+        for (int i = 0; i < length; i++)
+        {
+            operand[i] = -operand[i];
+        }
+        return operand;
+    }
+
+    @Override
+    public double[] visitBinaryOperation(BinaryOperation node) throws CalculatorError
+    {
+        if (isInvariant(node))
+        {
+            return broadcast(node);
+        }
+        Expression leftNode = node.getLeft();
+        Expression rightNode = node.getRight();
+        switch (node.getOperator())
+        {
+        case add:
+        case subtract:
+        case multiply:
+        case power:
+            // An operand with the same value at every x is applied as a number rather than filling a buffer.
+            if (isInvariant(rightNode))
+            {
+                double[] left = leftNode.accept(this);
+                apply(node.getOperator(), left, invariant(rightNode));
+                return left;
+            } else if (isInvariant(leftNode))
+            {
+                double left = invariant(leftNode);
+                double[] right = rightNode.accept(this);
+                apply(node.getOperator(), left, right);
+                return right;
+            } else
+            {
+                double[] left = leftNode.accept(this);
+                double[] right = rightNode.accept(this);
+                apply(node.getOperator(), left, right);
+                release(right);
+                return left;
+            }
+        case divide:
+        case modulo:
+            // The divisor is evaluated and checked first, as it is by DoubleEvaluator.
+            if (isInvariant(rightNode))
+            {
+                double right = invariant(rightNode);
+                if (right == 0)
+                {
+                    for (int i = 0; i < length; i++)
+                    {
+                        fail(i, ErrorType.divisionByZero);
+                    }
+                }
+                double[] left = leftNode.accept(this);
+                if (node.getOperator() == BinaryOperation.Operator.divide)
+                {
+                    for (int i = 0; i < length; i++)
+                    {
+                        left[i] /= right;
+                    }
+                } else
+                {
+                    for (int i = 0; i < length; i++)
+                    {
+                        left[i] %= right;
+                    }
+                }
+                return left;
+            } else
+            {
+                double[] right = rightNode.accept(this);
+                for (int i = 0; i < length; i++)
+                {
+                    if (right[i] == 0)
+                    {
+                        fail(i, ErrorType.divisionByZero);
+                    }
+                }
+                double[] left = leftNode.accept(this);
+                if (node.getOperator() == BinaryOperation.Operator.divide)
+                {
+                    for (int i = 0; i < length; i++)
+                    {
+                        left[i] /= right[i];
+                    }
+                } else
+                {
+                    for (int i = 0; i < length; i++)
+                    {
+                        left[i] %= right[i];
+                    }
+                }
+                release(right);
+                return left;
+            }
+        default:
+            double[] result = acquire();
+            Arrays.fill(result, 0, length, 0);
+            return result;
+        }
+    }
+
+    @Override
+    public double[] visitFunctionCall(FunctionCall node) throws CalculatorError
+    {
+        if (isInvariant(node))
+        {
+            return broadcast(node);
+        }
+        double[] v = node.getArgument().accept(this);
+        switch (node.getFunction())
+        {
+        case sin:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = scalar.sin(v[i]);
+            }
+            break;
+        case cos:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = scalar.cos(v[i]);
+            }
+            break;
+        case tan:
+            for (int i = 0; i < length; i++)
+            {
+                double tempCos = scalar.cos(v[i]);
+                if (tempCos == 0)
+                {
+                    fail(i, ErrorType.tanUndef);
+                }
+                v[i] = scalar.sin(v[i]) / tempCos;
+            }
+            break;
+        case sec:
+            for (int i = 0; i < length; i++)
+            {
+                double tempCos = scalar.cos(v[i]);
+                if (tempCos == 0)
+                {
+                    fail(i, ErrorType.secUndef);
+                }
+                v[i] = 1 / tempCos;
+            }
+            break;
+        case csc:
+            for (int i = 0; i < length; i++)
+            {
+                double tempSin = scalar.sin(v[i]);
+                if (tempSin == 0)
+                {
+                    fail(i, ErrorType.cscUndef);
+                }
+                v[i] = 1 / tempSin;
+            }
+            break;
+        case cot:
+            for (int i = 0; i < length; i++)
+            {
+                double tempSin = scalar.sin(v[i]);
+                if (tempSin == 0)
+                {
+                    fail(i, ErrorType.cotUndef);
+                }
+                v[i] = scalar.cos(v[i]) / tempSin;
+            }
+            break;
+        case exp:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.exp(v[i]);
+            }
+            break;
+        case ln:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] <= 0)
+                {
+                    fail(i, ErrorType.lnUndef);
+                }
+                v[i] = java.lang.Math.log(v[i]);
+            }
+            break;
+        case abs:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.abs(v[i]);
+            }
+            break;
+        case arcsin:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] > 1 || v[i] < -1)
+                {
+                    fail(i, ErrorType.arcsinUndef);
+                }
+                v[i] = scalar.angle(java.lang.Math.asin(v[i]));
+            }
+            break;
+        case arccos:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] > 1 || v[i] < -1)
+                {
+                    fail(i, ErrorType.arccosUndef);
+                }
+                v[i] = scalar.angle(java.lang.Math.acos(v[i]));
+            }
+            break;
+        case arctan:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = scalar.angle(java.lang.Math.atan(v[i]));
+            }
+            break;
+        case arcsec:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] < 1 && v[i] > -1)
+                {
+                    fail(i, ErrorType.arcsecUndef);
+                }
+                v[i] = scalar.angle(java.lang.Math.acos(1 / v[i]));
+            }
+            break;
+        case arccsc:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] < 1 && v[i] > -1)
+                {
+                    fail(i, ErrorType.arccscUndef);
+                }
+                v[i] = scalar.angle(java.lang.Math.asin(1 / v[i]));
+            }
+            break;
+        case arccot:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = scalar.angle(v[i] == 0 ? java.lang.Math.PI / 2 : java.lang.Math.atan(1 / v[i]));
+            }
+            break;
+        case sinh:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.sinh(v[i]);
+            }
+            break;
+        case cosh:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.cosh(v[i]);
+            }
+            break;
+        case tanh:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.tanh(v[i]);
+            }
+            break;
+        case sech:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = 1 / java.lang.Math.cosh(v[i]);
+            }
+            break;
+        case csch:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] == 0)
+                {
+                    fail(i, ErrorType.cschUndef);
+                }
+                v[i] = 1 / java.lang.Math.sinh(v[i]);
+            }
+            break;
+        case coth:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] == 0)
+                {
+                    fail(i, ErrorType.cothUndef);
+                }
+                v[i] = 1 / java.lang.Math.tanh(v[i]);
+            }
+            break;
+        case arcsinh:
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = DoubleEvaluator.arcsinh(v[i]);
+            }
+            break;
+        case arccosh:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] < 1)
+                {
+                    fail(i, ErrorType.arccoshUndef);
+                }
+                v[i] = DoubleEvaluator.arccosh(v[i]);
+            }
+            break;
+        case arctanh:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] >= 1 || v[i] <= -1)
+                {
+                    fail(i, ErrorType.arctanhUndef);
+                }
+                v[i] = DoubleEvaluator.arctanh(v[i]);
+            }
+            break;
+        case arcsech:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] > 1 || v[i] <= 0 || 1 / v[i] < 1)
+                {
+                    fail(i, ErrorType.arcsechUndef);
+                }
+                v[i] = DoubleEvaluator.arccosh(1 / v[i]);
+            }
+            break;
+        case arccsch:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] == 0)
+                {
+                    fail(i, ErrorType.arccschUndef);
+                }
+                v[i] = DoubleEvaluator.arcsinh(1 / v[i]);
+            }
+            break;
+        case arccoth:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] <= 1 && v[i] >= -1 || 1 / v[i] >= 1 || 1 / v[i] <= -1)
+                {
+                    fail(i, ErrorType.arccothUndef);
+                }
+                v[i] = DoubleEvaluator.arctanh(1 / v[i]);
+            }
+            break;
+        case sqrt:
+            for (int i = 0; i < length; i++)
+            {
+                if (v[i] < 0)
+                {
+                    fail(i, ErrorType.nonIntegralPowerNegativeArg);
+                }
+            }
+            // Kept apart from the checks, this loop has no branches and can use the vector instructions of the CPU.
+            for (int i = 0; i < length; i++)
+            {
+                v[i] = java.lang.Math.sqrt(v[i]);
+            }
+            break;
+        default:
+            for (int i = 0; i < length; i++)
+            {
+                fail(i, ErrorType.functionUndef);
+            }
+            break;
+        }
+        return v;
+    }
+
+    @Override
+    public double[] visitAccumulation(Accumulation node)
+    {
+        return isInvariant(node) ? broadcast(node) : pointwise(node);
+    }
+
+    @Override
+    public double[] visitRandom(RandomNumber node)
+    {
+        return pointwise(node);
+    }
+
+    @Override
+    public double[] visitTemporary(Temporary node) throws CalculatorError
+    {
+        if (evaluated == null)
+        {
+            return node.getExpression().accept(this);
+        }
+        int index = node.getIndex();
+        if (!evaluated[index])
+        {
+            // The errors of the temporary are kept apart, as each function meets them at a different point.
+            ErrorType[] outer = errors;
+            boolean outerFailed = failed;
+            errors = temporaryErrors[index];
+            Arrays.fill(errors, 0, length, null);
+            failed = false;
+            temporaryValues[index] = node.getExpression().accept(this);
+            temporaryFailed[index] = failed;
+            errors = outer;
+            failed = outerFailed;
+            evaluated[index] = true;
+        }
+        double[] result = acquire();
+        System.arraycopy(temporaryValues[index], 0, result, 0, length);
+        if (temporaryFailed[index])
+        {
+            ErrorType[] temporary = temporaryErrors[index];
+            for (int i = 0; i < length; i++)
+            {
+                if (temporary[i] != null)
+                {
+                    fail(i, temporary[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies an addition, subtraction, multiplication or power to two columns, storing the result in left.
+     * 
+     * @param operator
+     *            - the operator.
+     * @param left
+     *            - the left operands.
+     * @param right
+     *            - the right operands.
+     */
+    private void apply(BinaryOperation.Operator operator, double[] left, double[] right)
+    {
+        switch (operator)
+        {
+        case add:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] += right[i];
+            }
+            break;
+        case subtract:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] -= right[i];
+            }
+            break;
+        case multiply:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] *= right[i];
+            }
+            break;
+        default:
+            for (int i = 0; i < length; i++)
+            {
+                checkPower(i, left[i], right[i]);
+                left[i] = java.lang.Math.pow(left[i], right[i]);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Applies an addition, subtraction, multiplication or power to a column and a number, storing the result in
+     * left.
+     * 
+     * @param operator
+     *            - the operator.
+     * @param left
+     *            - the left operands.
+     * @param right
+     *            - the right operand.
+     */
+    private void apply(BinaryOperation.Operator operator, double[] left, double right)
+    {
+        switch (operator)
+        {
+        case add:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] += right;
+            }
+            break;
+        case subtract:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] -= right;
+            }
+            break;
+        case multiply:
+            for (int i = 0; i < length; i++)
+            {
+                left[i] *= right;
+            }
+            break;
+        default:
+            for (int i = 0; i < length; i++)
+            {
+                checkPower(i, left[i], right);
+                left[i] = java.lang.Math.pow(left[i], right);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Applies an addition, subtraction, multiplication or power to a number and a column, storing the result in
+     * right.
+     * 
+     * @param operator
+     *            - the operator.
+     * @param left
+     *            - the left operand.
+     * @param right
+     *            - the right operands.
+     */
+    private void apply(BinaryOperation.Operator operator, double left, double[] right)
+    {
+        switch (operator)
+        {
+        case add:
+            for (int i = 0; i < length; i++)
+            {
+                right[i] = left + right[i];
+            }
+            break;
+        case subtract:
+            for (int i = 0; i < length; i++)
+            {
+                right[i] = left - right[i];
+            }
+            break;
+        case multiply:
+            for (int i = 0; i < length; i++)
+            {
+                right[i] = left * right[i];
+            }
+            break;
+        default:
+            for (int i = 0; i < length; i++)
+            {
+                checkPower(i, left, right[i]);
+                right[i] = java.lang.Math.pow(left, right[i]);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Marks the evaluation at a value of x as failed if a power is undefined there.
+     * 
+     * @param i
+     *            - the index of the value of x in the block.
+     * @param argument
+     *            - the argument of the power.
+     * @param exponent
+     *            - the exponent of the power.
+     */
+    private void checkPower(int i, double argument, double exponent)
+    {
+        if (argument == 0 && exponent < 0)
+        {
+            fail(i, ErrorType.divisionByZero);
+        } else if (argument < 0 && exponent != java.lang.Math.rint(exponent))
+        {
+            fail(i, ErrorType.nonIntegralPowerNegativeArg);
+        }
+    }
+
+    /**
+     * Returns true if a node has the same value at every value of x of the column, so that it only needs to be
+     * evaluated once per block. The answer is remembered for each node until the slot of x changes.
+     * 
+     * @param node
+     *            - the node.
+     * @return true if the node does not depend on x.
+     */
+    private boolean isInvariant(Expression node)
+    {
+        if (slot != invariantSlot)
+        {
+            invariants.clear();
+            invariantSlot = slot;
+        }
+        Boolean invariant = invariants.get(node);
+        if (invariant == null)
+        {
+            try
+            {
+                invariant = node.accept(invariance);
+            } catch (CalculatorError e)
+            {
+                invariant = false;
+            }
+            invariants.put(node, invariant);
+        }
+        return invariant;
+    }
+
+    /**
+     * Sets the block of values of x evaluated next.
+     * 
+     * @param slot
+     *            - the slot in which x is read.
+     * @param xs
+     *            - the values of x.
+     * @param offset
+     *            - the index in xs of the first value of the block.
+     * @param length
+     *            - the number of values in the block.
+     */
+    private void setBlock(int slot, double[] xs, int offset, int length)
+    {
+        this.slot = slot;
+        this.xs = xs;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Evaluates a function over the block, and stores its values and errors from index start.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param values
+     *            - the values of the function.
+     * @param errors
+     *            - the errors of the function, or null if they are not needed.
+     * @param start
+     *            - the index of the first value of the block.
+     */
+    private void store(Expression function, double[] values, ErrorType[] errors, int start)
+    {
+        clearErrors();
+        double[] column = column(function);
+        if (!failed)
+        {
+            System.arraycopy(column, 0, values, start, length);
+            if (errors != null)
+            {
+                Arrays.fill(errors, start, start + length, null);
+            }
+        } else
+        {
+            for (int i = 0; i < length; i++)
+            {
+                ErrorType error = this.errors[i];
+                values[start + i] = error == null ? column[i] : Double.NaN;
+                if (errors != null)
+                {
+                    errors[start + i] = error;
+                }
+            }
+        }
+        release(column);
+    }
+
+    /**
+     * Clears the errors of the previous evaluation, if it failed anywhere.
+     */
+    private void clearErrors()
+    {
+        if (failed)
+        {
+            Arrays.fill(errors, null);
+            failed = false;
+        }
+    }
+
+    /**
+     * Returns the values of a node over the block.
+     * 
+     * @param node
+     *            - the node.
+     * @return the values of the node.
+     */
+    private double[] column(Expression node)
+    {
+        try
+        {
+            return node.accept(this);
+        } catch (CalculatorError e)
+        {
+            // The errors are recorded for each value of x instead of being thrown.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the values of a node which does not depend on x, which is evaluated once by the scalar evaluator.
+     * 
+     * @param node
+     *            - the node.
+     * @return the values of the node.
+     */
+    private double[] broadcast(Expression node)
+    {
+        double[] result = acquire();
+        Arrays.fill(result, 0, length, invariant(node));
+        return result;
+    }
+
+    /**
+     * Returns the value of a node which does not depend on x, evaluated once by the scalar evaluator. If the
+     * evaluation fails, every value of x is marked as failed with its error.
+     * 
+     * @param node
+     *            - the node.
+     * @return the value of the node, or NaN if it fails.
+     */
+    private double invariant(Expression node)
+    {
+        try
+        {
+            return node.accept(scalar);
+        } catch (CalculatorError e)
+        {
+            for (int i = 0; i < length; i++)
+            {
+                fail(i, e.getError());
+            }
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the values of a node evaluated by the scalar evaluator at each value of x in turn. The values of x at
+     * which the evaluation has already failed are skipped.
+     * 
+     * @param node
+     *            - the node.
+     * @return the values of the node.
+     */
+    private double[] pointwise(Expression node)
+    {
+        double[] result = acquire();
+        for (int i = 0; i < length; i++)
+        {
+            result[i] = Double.NaN;
+            if (errors[i] == null)
+            {
+                try
+                {
+                    result[i] = scalar.evaluateAt(node, slot, xs[offset + i]);
+                } catch (CalculatorError e)
+                {
+                    fail(i, e.getError());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks the evaluation at a value of x as failed, unless it has already failed.
+     * 
+     * @param i
+     *            - the index of the value of x in the block.
+     * @param error
+     *            - the error.
+     */
+    private void fail(int i, ErrorType error)
+    {
+        if (errors[i] == null)
+        {
+            errors[i] = error;
+            failed = true;
+        }
+    }
+
+    /**
+     * Forgets the values of a temporary.
+     * 
+     * @param index
+     *            - the index of the temporary.
+     */
+    private void forget(int index)
+    {
+        if (temporaryValues[index] != null)
+        {
+            release(temporaryValues[index]);
+            temporaryValues[index] = null;
+        }
+        evaluated[index] = false;
+    }
+
+    /**
+     * Returns a free buffer.
+     * 
+     * @return the buffer.
+     */
+    private double[] acquire()
+    {
+        double[] buffer = buffers.poll();
+        return buffer != null ? buffer : new double[BLOCK_SIZE];
+    }
+
+    /**
+     * Frees a buffer.
+     * 
+     * @param buffer
+     *            - the buffer.
+     */
+    private void release(double[] buffer)
+    {
+        buffers.push(buffer);
+    }
+
+    /**
+     * Finds whether a node has the same value at every value of x in the slot of the column. Random numbers differ
+     * from one evaluation to the next, so they are never invariant.
+     */
+    private class Invariance implements Visitor<Boolean>
+    {
+
+        @Override
+        public Boolean visitNumber(NumberLiteral node)
+        {
+            return true;
+        }
+
+        @Override
+        public Boolean visitConstant(Constant node)
+        {
+            return true;
+        }
+
+        @Override
+        public Boolean visitVariable(Variable node)
+        {
+            return node.getSlot() != slot;
+        }
+
+        @Override
+        public Boolean visitNegation(Negation node)
+        {
+            return isInvariant(node.getOperand());
+        }
+
+        @Override
+        public Boolean visitBinaryOperation(BinaryOperation node)
+        {
+            return isInvariant(node.getLeft()) && isInvariant(node.getRight());
+        }
+
+        @Override
+        public Boolean visitFunctionCall(FunctionCall node)
+        {
+            return isInvariant(node.getArgument());
+        }
+
+        @Override
+        public Boolean visitAccumulation(Accumulation node)
+        {
+            return isInvariant(node.getLowerLimit()) && isInvariant(node.getUpperLimit())
+                    && isInvariant(node.getFunction());
+        }
+
+        @Override
+        public Boolean visitRandom(RandomNumber node)
+        {
+            return false;
+        }
+
+        @Override
+        public Boolean visitTemporary(Temporary node)
+        {
+            return isInvariant(node.getExpression());
+        }
+    }
+}
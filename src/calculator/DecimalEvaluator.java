@@ -0,0 +1,460 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Random;
+
+import calculator.Calculator.Mode;
+import calculator.ast.Accumulation;
+import calculator.ast.BinaryOperation;
+import calculator.ast.Constant;
+import calculator.ast.Expression;
+import calculator.ast.FunctionCall;
+import calculator.ast.Negation;
+import calculator.ast.NumberLiteral;
+import calculator.ast.RandomNumber;
+import calculator.ast.Temporary;
+import calculator.ast.Variable;
+import calculator.ast.Visitor;
+
+/**
+ * Evaluates an expression tree to a BigDecimal using the settings of a calculator engine and the stored values of a
+ * session. The values of x are held in numbered slots, which are bound directly instead of substituting text into the
+ * expression.
+ * 
+ * @author Andrei Purcarus
+ * 
+ */
+class DecimalEvaluator implements Visitor<BigDecimal>
+{
+
+    /**
+     * Initializes the evaluator for engine and session.
+     * 
+     * @param engine
+     *            - the engine whose settings are used.
+     * @param session
+     *            - the session whose stored values are used.
+     */
+    DecimalEvaluator(CalculatorEngine engine, Session session)
+    {
+        this.engine = engine;
+        this.session = session;
+        this.math = engine.getMath();
+        this.mc = math.getMathContext();
+        this.mcIntRound = math.getIntRoundContext();
+        this.slots = new BigDecimal[1];
+    }
+
+    /**
+     * The engine whose settings are used.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session whose stored values are used.
+     */
+    private final Session session;
+
+    /**
+     * The operations used, computed to the engine's precision.
+     */
+    private final Math math;
+
+    /**
+     * The MathContext applied to all operations.
+     */
+    private final MathContext mc;
+
+    /**
+     * The MathContext used when checking if a BigDecimal is an integer.
+     */
+    private final MathContext mcIntRound;
+
+    /**
+     * The values of x bound in each slot, or null for unbound slots.
+     */
+    private BigDecimal[] slots;
+
+    /**
+     * The values of the temporaries of the group of functions being evaluated, or null for those not evaluated yet.
+     * The array is null if the values are not kept.
+     */
+    private BigDecimal[] temporaries;
+
+    /**
+     * Starts keeping the values of count temporaries, forgetting those kept so far. This must be called whenever the
+     * value of x in slot 0 changes.
+     * 
+     * @param count
+     *            - the number of temporaries.
+     */
+    void resetTemporaries(int count)
+    {
+        if (temporaries == null || temporaries.length != count)
+        {
+            temporaries = new BigDecimal[count];
+        } else
+        {
+            Arrays.fill(temporaries, null);
+        }
+    }
+
+    /**
+     * Binds x to value in slot.
+     * 
+     * @param slot
+     *            - the slot to bind.
+     * @param value
+     *            - the value of x.
+     */
+    void bind(int slot, BigDecimal value)
+    {
+        if (slot >= slots.length)
+        {
+            slots = Arrays.copyOf(slots, slot + 1);
+        }
+        slots[slot] = value;
+    }
+
+    /**
+     * Returns the session whose stored values are used.
+     * 
+     * @return session.
+     */
+    Session getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Returns a new evaluator for the same engine and session with the same values of x bound, which can be used by
+     * another thread.
+     * 
+     * @return the copy of the evaluator.
+     */
+    DecimalEvaluator copy()
+    {
+        DecimalEvaluator copy = new DecimalEvaluator(engine, session);
+        copy.slots = slots.clone();
+        return copy;
+    }
+
+    /**
+     * Returns the value of function with x bound to value in slot.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param slot
+     *            - the slot in which x is read by the function.
+     * @param value
+     *            - the value of x.
+     * @return the value of the function.
+     * @throws CalculatorError
+     */
+    BigDecimal evaluateAt(Expression function, int slot, BigDecimal value) throws CalculatorError,
+            ArithmeticException
+    {
+        bind(slot, value);
+        return function.accept(this);
+    }
+
+    @Override
+    public BigDecimal visitNumber(NumberLiteral node)
+    {
+        return node.getValue();
+    }
+
+    @Override
+    public BigDecimal visitConstant(Constant node)
+    {
+        switch (node.getName())
+        {
+        case e:
+            return math.getE();
+        case pi:
+            return math.getPi();
+        case ans:
+            return session.getAnswer();
+        case mem:
+            return session.getMemory();
+        default:
+            return new BigDecimal("0");
+        }
+    }
+
+    @Override
+    public BigDecimal visitVariable(Variable node) throws CalculatorError
+    {
+        if (node.getSlot() >= slots.length || slots[node.getSlot()] == null)
+        {
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+        return slots[node.getSlot()];
+    }
+
+    @Override
+    public BigDecimal visitNegation(Negation node) throws CalculatorError, ArithmeticException
+    {
+        return node.getOperand().accept(this).negate();
+    }
+
+    @Override
+    public BigDecimal visitBinaryOperation(BinaryOperation node) throws CalculatorError, ArithmeticException
+    {
+        switch (node.getOperator())
+        {
+        case add:
+            return node.getLeft().accept(this).add(node.getRight().accept(this));
+        case subtract:
+            return node.getLeft().accept(this).subtract(node.getRight().accept(this));
+        case multiply:
+            return node.getLeft().accept(this).multiply(node.getRight().accept(this), mc);
+        case divide:
+        {
+            BigDecimal denom = node.getRight().accept(this);
+            if (denom.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.divisionByZero);
+            }
+            return node.getLeft().accept(this).divide(denom, mc);
+        }
+        case power:
+            return power(node.getLeft().accept(this), node.getRight().accept(this));
+        case modulo:
+        {
+            BigDecimal divisor = node.getRight().accept(this);
+            if (divisor.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.divisionByZero);
+            }
+            return node.getLeft().accept(this).remainder(divisor, mc);
+        }
+        default:
+            return new BigDecimal("0");
+        }
+    }
+
+    @Override
+    public BigDecimal visitFunctionCall(FunctionCall node) throws CalculatorError, ArithmeticException
+    {
+        BigDecimal temp = node.getArgument().accept(this);
+        boolean radians = engine.getMode() == Mode.radians;
+        switch (node.getFunction())
+        {
+        case sin:
+            return radians ? math.sin(temp) : math.sinDeg(temp);
+        case cos:
+            return radians ? math.cos(temp) : math.cosDeg(temp);
+        case tan:
+        {
+            BigDecimal tempCos = radians ? math.cos(temp) : math.cosDeg(temp);
+            if (tempCos.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.tanUndef);
+            }
+            return (radians ? math.sin(temp) : math.sinDeg(temp)).divide(tempCos, mc);
+        }
+        case sec:
+        {
+            BigDecimal tempCos = radians ? math.cos(temp) : math.cosDeg(temp);
+            if (tempCos.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.secUndef);
+            }
+            return (new BigDecimal("1")).divide(tempCos, mc);
+        }
+        case csc:
+        {
+            BigDecimal tempSin = radians ? math.sin(temp) : math.sinDeg(temp);
+            if (tempSin.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.cscUndef);
+            }
+            return (new BigDecimal("1")).divide(tempSin, mc);
+        }
+        case cot:
+        {
+            BigDecimal tempSin = radians ? math.sin(temp) : math.sinDeg(temp);
+            if (tempSin.signum() == 0)
+            {
+                throw new CalculatorError(ErrorType.cotUndef);
+            }
+            return (radians ? math.cos(temp) : math.cosDeg(temp)).divide(tempSin, mc);
+        }
+        case exp:
+            return math.exp(temp);
+        case ln:
+            return math.ln(temp);
+        case abs:
+            return Math.abs(temp);
+        case arcsin:
+            return radians ? math.arcsin(temp) : math.arcsinDeg(temp);
+        case arccos:
+            return radians ? math.arccos(temp) : math.arccosDeg(temp);
+        case arctan:
+            return radians ? math.arctan(temp) : math.arctanDeg(temp);
+        case arcsec:
+            return radians ? math.arcsec(temp) : math.arcsecDeg(temp);
+        case arccsc:
+            return radians ? math.arccsc(temp) : math.arccscDeg(temp);
+        case arccot:
+            return radians ? math.arccot(temp) : math.arccotDeg(temp);
+        case sinh:
+            return math.sinh(temp);
+        case cosh:
+            return math.cosh(temp);
+        case tanh:
+            return math.tanh(temp);
+        case sech:
+            return math.sech(temp);
+        case csch:
+            return math.csch(temp);
+        case coth:
+            return math.coth(temp);
+        case arcsinh:
+            return math.arcsinh(temp);
+        case arccosh:
+            return math.arccosh(temp);
+        case arctanh:
+            return math.arctanh(temp);
+        case arcsech:
+            return math.arcsech(temp);
+        case arccsch:
+            return math.arccsch(temp);
+        case arccoth:
+            return math.arccoth(temp);
+        case sqrt:
+            return math.sqrt(temp);
+        default:
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+    }
+
+    @Override
+    public BigDecimal visitAccumulation(Accumulation node) throws CalculatorError, ArithmeticException
+    {
+        BigDecimal lowerLimit = node.getLowerLimit().accept(this);
+        BigDecimal upperLimit = node.getUpperLimit().accept(this);
+        switch (node.getKind())
+        {
+        case integral:
+            return engine.integral(node.getFunction(), node.getSlot(), lowerLimit, upperLimit, this);
+        case sum:
+            checkIntegerLimits(lowerLimit, upperLimit, ErrorType.invalidSumParameters);
+            return engine.sum(node.getFunction(), node.getSlot(), lowerLimit, upperLimit, this);
+        case product:
+            checkIntegerLimits(lowerLimit, upperLimit, ErrorType.invalidProductParameters);
+            return engine.product(node.getFunction(), node.getSlot(), lowerLimit, upperLimit, this);
+        default:
+            return new BigDecimal("0");
+        }
+    }
+
+    @Override
+    public BigDecimal visitTemporary(Temporary node) throws CalculatorError, ArithmeticException
+    {
+        if (temporaries == null)
+        {
+            return node.getExpression().accept(this);
+        }
+        BigDecimal value = temporaries[node.getIndex()];
+        if (value == null)
+        {
+            value = node.getExpression().accept(this);
+            temporaries[node.getIndex()] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public BigDecimal visitRandom(RandomNumber node) throws CalculatorError, ArithmeticException
+    {
+        Random rand = new Random();
+        if (node.getBound() == null)
+        {
+            return new BigDecimal(rand.nextDouble(), mc);
+        }
+        BigDecimal temp = node.getBound().accept(this);
+        BigInteger tempInt;
+        try
+        {
+            tempInt = temp.round(mcIntRound).toBigIntegerExact();
+        } catch (ArithmeticException e)
+        {
+            throw new CalculatorError(ErrorType.invalidRandParameters);
+        }
+        if (tempInt.signum() != 1)
+        {
+            throw new CalculatorError(ErrorType.invalidRandParameters);
+        }
+        try
+        {
+            return new BigDecimal(rand.nextInt(tempInt.intValueExact()));
+        } catch (ArithmeticException e)
+        {
+            throw new CalculatorError(ErrorType.randArgumentTooBig);
+        }
+    }
+
+    /**
+     * Returns argument to the power of exponent, using exact integer powers where possible.
+     * 
+     * @param argument
+     *            - the argument.
+     * @param exponent
+     *            - the exponent.
+     * @return argument to the power of exponent.
+     * @throws CalculatorError
+     */
+    private BigDecimal power(BigDecimal argument, BigDecimal exponent) throws CalculatorError,
+            ArithmeticException
+    {
+        if (argument.signum() == 0 && exponent.signum() == -1)
+        {
+            throw new CalculatorError(ErrorType.divisionByZero);
+        } else if ((exponent.subtract(new BigDecimal(exponent.round(mcIntRound).toBigInteger()))).signum() != 0
+                && argument.signum() == -1)
+        {
+            throw new CalculatorError(ErrorType.nonIntegralPowerNegativeArg);
+        }
+        try
+        {
+            int exponentInt = exponent.toBigIntegerExact().intValueExact();
+            return argument.pow(exponentInt, mc);
+        } catch (ArithmeticException e)
+        {
+            return math.pow(argument, exponent);
+        }
+    }
+
+    /**
+     * Checks that the limits of a sum or product are integers in increasing order.
+     * 
+     * @param lowerLimit
+     *            - the lower limit.
+     * @param upperLimit
+     *            - the upper limit.
+     * @param error
+     *            - the error to throw if the limits are invalid.
+     * @throws CalculatorError
+     */
+    private void checkIntegerLimits(BigDecimal lowerLimit, BigDecimal upperLimit, ErrorType error)
+            throws CalculatorError
+    {
+        try
+        {
+            lowerLimit.round(mcIntRound).toBigIntegerExact();
+            upperLimit.round(mcIntRound).toBigIntegerExact();
+        } catch (ArithmeticException e)
+        {
+            throw new CalculatorError(error);
+        }
+        if (lowerLimit.compareTo(upperLimit) > 0)
+        {
+            throw new CalculatorError(error);
+        }
+    }
+}
@@ -0,0 +1,853 @@
+package calculator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import calculator.Calculator.IntegralMode;
+import calculator.Calculator.Mode;
+import calculator.ast.Accumulation;
+import calculator.ast.BinaryOperation;
+import calculator.ast.Constant;
+import calculator.ast.DoubleVisitor;
+import calculator.ast.Expression;
+import calculator.ast.FunctionCall;
+import calculator.ast.Negation;
+import calculator.ast.NumberLiteral;
+import calculator.ast.RandomNumber;
+import calculator.ast.Temporary;
+import calculator.ast.Variable;
+
+/**
+ * Evaluates an expression tree in double precision using the primitives of java.lang.Math. The same errors are thrown
+ * as by DecimalEvaluator, with results within MAX_ERROR of zero treated as zero where the BigDecimal functions would
+ * have done the same. Overflow is not detected here and results in infinite or NaN values.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class DoubleEvaluator implements DoubleVisitor
+{
+
+    /**
+     * Results of sin and cos closer to zero than this are treated as zero, which is where the double precision value
+     * of pi stops giving exact zeros.
+     */
+    static final double MAX_ERROR = 1e-15;
+
+    /**
+     * The smallest tolerance used by adaptive integration, below which rounding errors dominate the error estimates.
+     */
+    static final double MIN_TOLERANCE = 1e-13;
+
+    /**
+     * Initializes the evaluator for engine and session.
+     * 
+     * @param engine
+     *            - the engine whose settings are used.
+     * @param session
+     *            - the session whose stored values are used.
+     */
+    DoubleEvaluator(CalculatorEngine engine, Session session)
+    {
+        this.engine = engine;
+        this.session = session;
+        this.radians = engine.getMode() == Mode.radians;
+        this.slots = new double[1];
+        this.bound = new boolean[1];
+    }
+
+    /**
+     * The engine whose settings are used.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session whose stored values are used.
+     */
+    private final Session session;
+
+    /**
+     * Whether trigonometric functions use radians.
+     */
+    private final boolean radians;
+
+    /**
+     * The values of x bound in each slot.
+     */
+    private double[] slots;
+
+    /**
+     * Whether each slot has been bound.
+     */
+    private boolean[] bound;
+
+    /**
+     * The values of the temporaries of the group of functions being evaluated. The array is null if the values are
+     * not kept.
+     */
+    private double[] temporaries;
+
+    /**
+     * Whether each temporary has been evaluated.
+     */
+    private boolean[] evaluated;
+
+    /**
+     * The evaluators of the functions of sums, products and integrals at each depth of nesting, created as needed.
+     */
+    private ColumnEvaluator[] columns;
+
+    /**
+     * The number of sums, products and integrals being computed by column.
+     */
+    private int depth;
+
+    /**
+     * Starts keeping the values of count temporaries, forgetting those kept so far. This must be called whenever the
+     * value of x in slot 0 changes.
+     * 
+     * @param count
+     *            - the number of temporaries.
+     */
+    void resetTemporaries(int count)
+    {
+        if (temporaries == null || temporaries.length != count)
+        {
+            temporaries = new double[count];
+            evaluated = new boolean[count];
+        } else
+        {
+            Arrays.fill(evaluated, false);
+        }
+    }
+
+    /**
+     * Binds x to value in slot.
+     * 
+     * @param slot
+     *            - the slot to bind.
+     * @param value
+     *            - the value of x.
+     */
+    void bind(int slot, double value)
+    {
+        if (slot >= slots.length)
+        {
+            slots = Arrays.copyOf(slots, slot + 1);
+            bound = Arrays.copyOf(bound, slot + 1);
+        }
+        slots[slot] = value;
+        bound[slot] = true;
+    }
+
+    /**
+     * Returns the value of function with x bound to value in slot.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param slot
+     *            - the slot in which x is read by the function.
+     * @param value
+     *            - the value of x.
+     * @return the value of the function.
+     * @throws CalculatorError
+     */
+    double evaluateAt(Expression function, int slot, double value) throws CalculatorError
+    {
+        bind(slot, value);
+        return function.accept(this);
+    }
+
+    @Override
+    public double visitNumber(NumberLiteral node)
+    {
+        return node.getDoubleValue();
+    }
+
+    @Override
+    public double visitConstant(Constant node)
+    {
+        switch (node.getName())
+        {
+        case e:
+            return java.lang.Math.E;
+        case pi:
+            return java.lang.Math.PI;
+        case ans:
+            return session.getAnswer().doubleValue();
+        case mem:
+            return session.getMemory().doubleValue();
+        default:
+            return 0;
+        }
+    }
+
+    @Override
+    public double visitVariable(Variable node) throws CalculatorError
+    {
+        if (node.getSlot() >= slots.length || !bound[node.getSlot()])
+        {
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+        return slots[node.getSlot()];
+    }
+
+    @Override
+    public double visitNegation(Negation node) throws CalculatorError
+    {
+        return -node.getOperand().accept(this);
+    }
+
+    @Override
+    public double visitBinaryOperation(BinaryOperation node) throws CalculatorError
+    {
+        switch (node.getOperator())
+        {
+        case add:
+            return node.getLeft().accept(this) + node.getRight().accept(this);
+        case subtract:
+            return node.getLeft().accept(this) - node.getRight().accept(this);
+        case multiply:
+            return node.getLeft().accept(this) * node.getRight().accept(this);
+        case divide:
+        {
+            double denom = node.getRight().accept(this);
+            if (denom == 0)
+            {
+                throw new CalculatorError(ErrorType.divisionByZero);
+            }
+            return node.getLeft().accept(this) / denom;
+        }
+        case power:
+        {
+            double argument = node.getLeft().accept(this);
+            double exponent = node.getRight().accept(this);
+            if (argument == 0 && exponent < 0)
+            {
+                throw new CalculatorError(ErrorType.divisionByZero);
+            } else if (argument < 0 && exponent != java.lang.Math.rint(exponent))
+            {
+                throw new CalculatorError(ErrorType.nonIntegralPowerNegativeArg);
+            }
+            return java.lang.Math.pow(argument, exponent);
+        }
+        case modulo:
+        {
+            double divisor = node.getRight().accept(this);
+            if (divisor == 0)
+            {
+                throw new CalculatorError(ErrorType.divisionByZero);
+            }
+            return node.getLeft().accept(this) % divisor;
+        }
+        default:
+            return 0;
+        }
+    }
+
+    @Override
+    public double visitFunctionCall(FunctionCall node) throws CalculatorError
+    {
+        double temp = node.getArgument().accept(this);
+        switch (node.getFunction())
+        {
+        case sin:
+            return sin(temp);
+        case cos:
+            return cos(temp);
+        case tan:
+        {
+            double tempCos = cos(temp);
+            if (tempCos == 0)
+            {
+                throw new CalculatorError(ErrorType.tanUndef);
+            }
+            return sin(temp) / tempCos;
+        }
+        case sec:
+        {
+            double tempCos = cos(temp);
+            if (tempCos == 0)
+            {
+                throw new CalculatorError(ErrorType.secUndef);
+            }
+            return 1 / tempCos;
+        }
+        case csc:
+        {
+            double tempSin = sin(temp);
+            if (tempSin == 0)
+            {
+                throw new CalculatorError(ErrorType.cscUndef);
+            }
+            return 1 / tempSin;
+        }
+        case cot:
+        {
+            double tempSin = sin(temp);
+            if (tempSin == 0)
+            {
+                throw new CalculatorError(ErrorType.cotUndef);
+            }
+            return cos(temp) / tempSin;
+        }
+        case exp:
+            return java.lang.Math.exp(temp);
+        case ln:
+            if (temp <= 0)
+            {
+                throw new CalculatorError(ErrorType.lnUndef);
+            }
+            return java.lang.Math.log(temp);
+        case abs:
+            return java.lang.Math.abs(temp);
+        case arcsin:
+            if (temp > 1 || temp < -1)
+            {
+                throw new CalculatorError(ErrorType.arcsinUndef);
+            }
+            return angle(java.lang.Math.asin(temp));
+        case arccos:
+            if (temp > 1 || temp < -1)
+            {
+                throw new CalculatorError(ErrorType.arccosUndef);
+            }
+            return angle(java.lang.Math.acos(temp));
+        case arctan:
+            return angle(java.lang.Math.atan(temp));
+        case arcsec:
+            if (temp < 1 && temp > -1)
+            {
+                throw new CalculatorError(ErrorType.arcsecUndef);
+            }
+            return angle(java.lang.Math.acos(1 / temp));
+        case arccsc:
+            if (temp < 1 && temp > -1)
+            {
+                throw new CalculatorError(ErrorType.arccscUndef);
+            }
+            return angle(java.lang.Math.asin(1 / temp));
+        case arccot:
+            return angle(temp == 0 ? java.lang.Math.PI / 2 : java.lang.Math.atan(1 / temp));
+        case sinh:
+            return java.lang.Math.sinh(temp);
+        case cosh:
+            return java.lang.Math.cosh(temp);
+        case tanh:
+            return java.lang.Math.tanh(temp);
+        case sech:
+            return 1 / java.lang.Math.cosh(temp);
+        case csch:
+            if (temp == 0)
+            {
+                throw new CalculatorError(ErrorType.cschUndef);
+            }
+            return 1 / java.lang.Math.sinh(temp);
+        case coth:
+            if (temp == 0)
+            {
+                throw new CalculatorError(ErrorType.cothUndef);
+            }
+            return 1 / java.lang.Math.tanh(temp);
+        case arcsinh:
+            return arcsinh(temp);
+        case arccosh:
+            return arccosh(temp, ErrorType.arccoshUndef);
+        case arctanh:
+            return arctanh(temp, ErrorType.arctanhUndef);
+        case arcsech:
+            if (temp > 1 || temp <= 0)
+            {
+                throw new CalculatorError(ErrorType.arcsechUndef);
+            }
+            return arccosh(1 / temp, ErrorType.arcsechUndef);
+        case arccsch:
+            if (temp == 0)
+            {
+                throw new CalculatorError(ErrorType.arccschUndef);
+            }
+            return arcsinh(1 / temp);
+        case arccoth:
+            if (temp <= 1 && temp >= -1)
+            {
+                throw new CalculatorError(ErrorType.arccothUndef);
+            }
+            return arctanh(1 / temp, ErrorType.arccothUndef);
+        case sqrt:
+            if (temp < 0)
+            {
+                throw new CalculatorError(ErrorType.nonIntegralPowerNegativeArg);
+            }
+            return java.lang.Math.sqrt(temp);
+        default:
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+    }
+
+    @Override
+    public double visitAccumulation(Accumulation node) throws CalculatorError
+    {
+        double lowerLimit = node.getLowerLimit().accept(this);
+        double upperLimit = node.getUpperLimit().accept(this);
+        switch (node.getKind())
+        {
+        case integral:
+            return integral(node.getFunction(), node.getSlot(), lowerLimit, upperLimit);
+        case sum:
+            checkIntegerLimits(lowerLimit, upperLimit, ErrorType.invalidSumParameters);
+            return accumulate(node.getFunction(), node.getSlot(), lowerLimit, upperLimit, false);
+        case product:
+            checkIntegerLimits(lowerLimit, upperLimit, ErrorType.invalidProductParameters);
+            return accumulate(node.getFunction(), node.getSlot(), lowerLimit, upperLimit, true);
+        default:
+            return 0;
+        }
+    }
+
+    @Override
+    public double visitTemporary(Temporary node) throws CalculatorError
+    {
+        if (temporaries == null)
+        {
+            return node.getExpression().accept(this);
+        } else if (!evaluated[node.getIndex()])
+        {
+            temporaries[node.getIndex()] = node.getExpression().accept(this);
+            evaluated[node.getIndex()] = true;
+        }
+        return temporaries[node.getIndex()];
+    }
+
+    @Override
+    public double visitRandom(RandomNumber node) throws CalculatorError
+    {
+        Random rand = new Random();
+        if (node.getBound() == null)
+        {
+            return rand.nextDouble();
+        }
+        double temp = node.getBound().accept(this);
+        if (temp != java.lang.Math.rint(temp) || temp <= 0)
+        {
+            throw new CalculatorError(ErrorType.invalidRandParameters);
+        } else if (temp > Integer.MAX_VALUE)
+        {
+            throw new CalculatorError(ErrorType.randArgumentTooBig);
+        }
+        return rand.nextInt((int) temp);
+    }
+
+    /**
+     * Returns the sum or product of function for x from lowerLimit to upperLimit in steps of 1.
+     * 
+     * @param function
+     *            - the function to be summed or multiplied.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit.
+     * @param upperLimit
+     *            - the upper limit.
+     * @param product
+     *            - whether the product is returned rather than the sum.
+     * @return the sum or product.
+     * @throws CalculatorError
+     */
+    private double accumulate(Expression function, int slot, double lowerLimit, double upperLimit, boolean product)
+            throws CalculatorError
+    {
+        double result = product ? 1 : 0;
+        ColumnEvaluator column = enterColumn();
+        try
+        {
+            double[] points = column.getPoints();
+            for (double x = lowerLimit; x <= upperLimit;)
+            {
+                int count = 0;
+                for (; count < points.length && x <= upperLimit; x++)
+                {
+                    points[count++] = x;
+                }
+                double[] values = column.evaluatePoints(function, slot, count);
+                for (int k = 0; k < count; k++)
+                {
+                    result = product ? result * values[k] : result + values[k];
+                }
+            }
+        } finally
+        {
+            exitColumn();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the evaluator of the functions of x at the current depth of nesting of sums, products and integrals,
+     * and enters the next depth. Each depth has its own evaluator, since a function can itself hold a sum, product or
+     * integral.
+     * 
+     * @return the evaluator.
+     */
+    private ColumnEvaluator enterColumn()
+    {
+        if (columns == null || depth == columns.length)
+        {
+            columns = columns == null ? new ColumnEvaluator[1] : Arrays.copyOf(columns, depth + 1);
+        }
+        if (columns[depth] == null)
+        {
+            columns[depth] = new ColumnEvaluator(this);
+        }
+        return columns[depth++];
+    }
+
+    /**
+     * Leaves the depth entered by enterColumn().
+     */
+    private void exitColumn()
+    {
+        depth--;
+    }
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit using the engine's integralMode.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @return the value of the integral.
+     * @throws CalculatorError
+     */
+    private double integral(Expression function, int slot, double lowerLimit, double upperLimit)
+            throws CalculatorError
+    {
+        int divisions = engine.getDivisions();
+        IntegralMode integralMode = engine.getIntegralMode();
+        if (integralMode == IntegralMode.gaussKronrod)
+        {
+            return GaussKronrod.integrate(function, slot, lowerLimit, upperLimit, engine.getTolerance().doubleValue(),
+                    divisions, this, session);
+        } else if (integralMode == IntegralMode.romberg)
+        {
+            return romberg(function, slot, lowerLimit, upperLimit, divisions);
+        } else if (integralMode == IntegralMode.tanhSinh)
+        {
+            return TanhSinh.integrate(function, slot, lowerLimit, upperLimit, engine.getTolerance().doubleValue(),
+                    divisions, this, session);
+        } else if (integralMode == IntegralMode.rectangle || integralMode == IntegralMode.midpoint)
+        {
+            session.addIntegralEvaluations(divisions);
+            double dx = (upperLimit - lowerLimit) / divisions;
+            double offset = integralMode == IntegralMode.rectangle ? 1 : 0.5;
+            double sum = 0;
+            ColumnEvaluator column = enterColumn();
+            try
+            {
+                double[] points = column.getPoints();
+                for (int i = 0; i < divisions;)
+                {
+                    int count = 0;
+                    for (; count < points.length && i < divisions; i++)
+                    {
+                        points[count++] = lowerLimit + (i + offset) * dx;
+                    }
+                    double[] values = column.evaluatePoints(function, slot, count);
+                    for (int k = 0; k < count; k++)
+                    {
+                        sum += values[k];
+                    }
+                }
+            } finally
+            {
+                exitColumn();
+            }
+            return sum * dx;
+        }
+
+        // Newton-Cotes rules with weights 1, 2, 1 / 1, 4, 2, ..., 4, 1 / 1, 3, 3, 2, ..., 3, 3, 1.
+        int order;
+        double factor;
+        if (integralMode == IntegralMode.trapezoid)
+        {
+            order = 1;
+            factor = 0.5;
+        } else if (integralMode == IntegralMode.simpsonQuad)
+        {
+            order = 2;
+            factor = 1.0 / 3;
+        } else
+        {
+            order = 3;
+            factor = 3.0 / 8;
+        }
+        int totalDivisions = order * divisions;
+        session.addIntegralEvaluations(totalDivisions + 1);
+        double dx = (upperLimit - lowerLimit) / totalDivisions;
+        double sum = 0;
+        ColumnEvaluator column = enterColumn();
+        try
+        {
+            double[] points = column.getPoints();
+            for (int i = 0; i <= totalDivisions;)
+            {
+                int first = i;
+                int count = 0;
+                for (; count < points.length && i <= totalDivisions; i++)
+                {
+                    points[count++] = lowerLimit + i * dx;
+                }
+                double[] values = column.evaluatePoints(function, slot, count);
+                for (int k = 0; k < count; k++)
+                {
+                    int j = first + k;
+                    double weight;
+                    if (j == 0 || j == totalDivisions)
+                    {
+                        weight = 1;
+                    } else if (j % order == 0)
+                    {
+                        weight = 2;
+                    } else
+                    {
+                        weight = order == 2 ? 4 : order;
+                    }
+                    sum += weight * values[k];
+                }
+            }
+        } finally
+        {
+            exitColumn();
+        }
+        return sum * dx * factor;
+    }
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit using Romberg integration. The trapezoid rule is
+     * computed on grids of 1, 2, 4, ... subintervals, each reusing the points of the previous grid, and refined by
+     * Richardson extrapolation until successive estimates agree to within the engine's tolerance or the grid would
+     * exceed maxDivisions subintervals, in which case the integral is counted in the session as not converged.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param maxDivisions
+     *            - the largest number of subintervals to use.
+     * @return the value of the integral.
+     * @throws CalculatorError
+     */
+    private double romberg(Expression function, int slot, double lowerLimit, double upperLimit, int maxDivisions)
+            throws CalculatorError
+    {
+        double tolerance = java.lang.Math.max(engine.getTolerance().doubleValue(), MIN_TOLERANCE);
+        double h = upperLimit - lowerLimit;
+        double[] previous = new double[] { 0.5 * h
+                * (evaluateAt(function, slot, lowerLimit) + evaluateAt(function, slot, upperLimit)) };
+        session.addIntegralEvaluations(2);
+        for (int level = 1, divisions = 2; divisions <= maxDivisions; level++, divisions *= 2)
+        {
+            h *= 0.5;
+            double sum = 0;
+            ColumnEvaluator column = enterColumn();
+            try
+            {
+                double[] points = column.getPoints();
+                for (int i = 1; i < divisions;)
+                {
+                    int count = 0;
+                    for (; count < points.length && i < divisions; i += 2)
+                    {
+                        points[count++] = lowerLimit + i * h;
+                    }
+                    double[] values = column.evaluatePoints(function, slot, count);
+                    for (int k = 0; k < count; k++)
+                    {
+                        sum += values[k];
+                    }
+                }
+            } finally
+            {
+                exitColumn();
+            }
+            session.addIntegralEvaluations(divisions / 2);
+
+            double[] current = new double[level + 1];
+            current[0] = 0.5 * previous[0] + h * sum;
+            double factor = 1;
+            for (int m = 1; m <= level; m++)
+            {
+                factor *= 4;
+                current[m] = current[m - 1] + (current[m - 1] - previous[m - 1]) / (factor - 1);
+            }
+            if (level >= CalculatorEngine.ROMBERG_MIN_LEVELS
+                    && java.lang.Math.abs(current[level] - previous[level - 1]) <= tolerance
+                            * java.lang.Math.max(1, java.lang.Math.abs(current[level])))
+            {
+                return current[level];
+            }
+            previous = current;
+        }
+        session.addUnconvergedIntegral();
+        return previous[previous.length - 1];
+    }
+
+    /**
+     * Returns the sine of the argument in the engine's mode, with values within MAX_ERROR of zero set to zero.
+     * 
+     * @param argument
+     *            - the argument.
+     * @return the sine of the argument.
+     */
+    double sin(double argument)
+    {
+        double result = java.lang.Math.sin(radians ? argument : java.lang.Math.toRadians(argument));
+        return java.lang.Math.abs(result) < MAX_ERROR ? 0 : result;
+    }
+
+    /**
+     * Returns the cosine of the argument in the engine's mode, with values within MAX_ERROR of zero set to zero.
+     * 
+     * @param argument
+     *            - the argument.
+     * @return the cosine of the argument.
+     */
+    double cos(double argument)
+    {
+        double result = java.lang.Math.cos(radians ? argument : java.lang.Math.toRadians(argument));
+        return java.lang.Math.abs(result) < MAX_ERROR ? 0 : result;
+    }
+
+    /**
+     * Converts an angle in radians to the engine's mode.
+     * 
+     * @param angle
+     *            - the angle in radians.
+     * @return the angle in the engine's mode.
+     */
+    double angle(double angle)
+    {
+        return radians ? angle : java.lang.Math.toDegrees(angle);
+    }
+
+    /**
+     * Returns the arc hyperbolic sine of the argument, accurately for small arguments. IntervalEvaluator encloses the
+     * values of this method, so both must use the same formula.
+     * 
+     * @param argument
+     *            - the argument.
+     * @return the arc hyperbolic sine of the argument.
+     */
+    static double arcsinh(double argument)
+    {
+        double magnitude = java.lang.Math.abs(argument);
+        double result;
+        if (magnitude > 1e150)
+        {
+            result = java.lang.Math.log(magnitude) + java.lang.Math.log(2);
+        } else
+        {
+            double square = magnitude * magnitude;
+            result = java.lang.Math.log1p(magnitude + square / (1 + java.lang.Math.sqrt(1 + square)));
+        }
+        return argument < 0 ? -result : result;
+    }
+
+    /**
+     * Returns the arc hyperbolic cosine of the argument.
+     * 
+     * @param argument
+     *            - the argument.
+     * @param error
+     *            - the error to throw if the argument is less than 1.
+     * @return the arc hyperbolic cosine of the argument.
+     * @throws CalculatorError
+     */
+    private static double arccosh(double argument, ErrorType error) throws CalculatorError
+    {
+        if (argument < 1)
+        {
+            throw new CalculatorError(error);
+        }
+        return arccosh(argument);
+    }
+
+    /**
+     * Returns the arc hyperbolic cosine of an argument of at least 1, accurately for arguments near 1.
+     * IntervalEvaluator encloses the values of this method, so both must use the same formula.
+     * 
+     * @param argument
+     *            - the argument.
+     * @return the arc hyperbolic cosine of the argument.
+     */
+    static double arccosh(double argument)
+    {
+        if (argument > 1e150)
+        {
+            return java.lang.Math.log(argument) + java.lang.Math.log(2);
+        }
+        double t = argument - 1;
+        return java.lang.Math.log1p(t + java.lang.Math.sqrt(t * (t + 2)));
+    }
+
+    /**
+     * Returns the arc hyperbolic tangent of the argument.
+     * 
+     * @param argument
+     *            - the argument.
+     * @param error
+     *            - the error to throw if the argument is not between -1 and 1.
+     * @return the arc hyperbolic tangent of the argument.
+     * @throws CalculatorError
+     */
+    private static double arctanh(double argument, ErrorType error) throws CalculatorError
+    {
+        if (argument >= 1 || argument <= -1)
+        {
+            throw new CalculatorError(error);
+        }
+        return arctanh(argument);
+    }
+
+    /**
+     * Returns the arc hyperbolic tangent of an argument between -1 and 1, accurately for small arguments.
+     * IntervalEvaluator encloses the values of this method, so both must use the same formula.
+     * 
+     * @param argument
+     *            - the argument.
+     * @return the arc hyperbolic tangent of the argument.
+     */
+    static double arctanh(double argument)
+    {
+        return 0.5 * java.lang.Math.log1p(2 * argument / (1 - argument));
+    }
+
+    /**
+     * Checks that the limits of a sum or product are integers in increasing order.
+     * 
+     * @param lowerLimit
+     *            - the lower limit.
+     * @param upperLimit
+     *            - the upper limit.
+     * @param error
+     *            - the error to throw if the limits are invalid.
+     * @throws CalculatorError
+     */
+    private static void checkIntegerLimits(double lowerLimit, double upperLimit, ErrorType error)
+            throws CalculatorError
+    {
+        if (lowerLimit != java.lang.Math.rint(lowerLimit) || upperLimit != java.lang.Math.rint(upperLimit)
+                || lowerLimit > upperLimit)
+        {
+            throw new CalculatorError(error);
+        }
+    }
+}
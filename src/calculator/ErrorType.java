@@ -11,5 +11,77 @@ public enum ErrorType
     none, divisionByZero, tanUndef, secUndef, cscUndef, cotUndef, lnUndef, arcsinUndef, arccosUndef, arcsecUndef,
     arccscUndef, cschUndef, cothUndef, arccoshUndef, arctanhUndef, arcsechUndef, arccschUndef, arccothUndef,
     nonIntegralPowerNegativeArg, functionUndef, missingArg, bracketMismatch, invalidMode, invalidIntegralParameters,
-    invalidSumParameters, invalidProductParameters, invalidRandParameters, randArgumentTooBig, overflow
+    invalidSumParameters, invalidProductParameters, invalidRandParameters, randArgumentTooBig, overflow;
+
+    /**
+     * Returns the message shown for the error by the calculator's display and command line.
+     * 
+     * @return the message.
+     */
+    public String getMessage()
+    {
+        switch (this)
+        {
+        case none:
+            return "No errors detected.";
+        case divisionByZero:
+            return "Error. Division by 0.";
+        case tanUndef:
+            return "Error. Tangent undefined.";
+        case secUndef:
+            return "Error. Secant undefined.";
+        case cscUndef:
+            return "Error. Cosecant undefined.";
+        case cotUndef:
+            return "Error. Cotangent undefined.";
+        case lnUndef:
+            return "Error. Ln undefined.";
+        case arcsinUndef:
+            return "Error. Arcsin undefined.";
+        case arccosUndef:
+            return "Error. Arccos undefined.";
+        case arcsecUndef:
+            return "Error. Arcsec undefined.";
+        case arccscUndef:
+            return "Error. Arccsc undefined.";
+        case cschUndef:
+            return "Error. Csch undefined.";
+        case cothUndef:
+            return "Error. Coth undefined.";
+        case arccoshUndef:
+            return "Error. Arccosh undefined.";
+        case arctanhUndef:
+            return "Error. Arctanh undefined.";
+        case arcsechUndef:
+            return "Error. Arcsech undefined.";
+        case arccschUndef:
+            return "Error. Arccsch undefined.";
+        case arccothUndef:
+            return "Error. Arccoth undefined.";
+        case nonIntegralPowerNegativeArg:
+            return "Error. Negative number to non-integral power.";
+        case functionUndef:
+            return "Error. Function undefined.";
+        case missingArg:
+            return "Error. Missing argument.";
+        case bracketMismatch:
+            return "Error. Bracket mismatch.";
+        case invalidMode:
+            return "Error. Invalid mode.";
+        case invalidIntegralParameters:
+            return "Error. Invalid integral arguments.";
+        case invalidSumParameters:
+            return "Error. Invalid sum arguments.";
+        case invalidProductParameters:
+            return "Error. Invalid product arguments.";
+        case invalidRandParameters:
+            return "Error. Invalid rand argument.";
+        case randArgumentTooBig:
+            return "Error. Rand argument too big.";
+        case overflow:
+            return "Error. Overflow.";
+        default:
+            return "Error.";
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import calculator.ast.Expression;
+
+/**
+ * A bounded, thread-safe cache of compiled expressions keyed by their normalized input. When the cache is full, the
+ * least recently used expression is evicted.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class ExpressionCache
+{
+
+    /**
+     * Initializes an empty cache holding at most capacity expressions.
+     * 
+     * @param capacity
+     *            - the maximum number of expressions to keep.
+     */
+    public ExpressionCache(final int capacity)
+    {
+        this.capacity = capacity;
+        this.expressions = new LinkedHashMap<String, Expression>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = -2519416238713497364L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the expression compiled from key, or null if it is not in the cache.
+     * 
+     * @param key
+     *            - the normalized input.
+     * @return the compiled expression, or null.
+     */
+    public synchronized Expression get(String key)
+    {
+        Expression expression = expressions.get(key);
+        if (expression == null)
+        {
+            misses++;
+        } else
+        {
+            hits++;
+        }
+        return expression;
+    }
+
+    /**
+     * Stores the expression compiled from key.
+     * 
+     * @param key
+     *            - the normalized input.
+     * @param expression
+     *            - the compiled expression.
+     */
+    public synchronized void put(String key, Expression expression)
+    {
+        if (capacity > 0)
+        {
+            expressions.put(key, expression);
+        }
+    }
+
+    /**
+     * Removes all expressions from the cache. The hit and miss counters are kept.
+     */
+    public synchronized void clear()
+    {
+        expressions.clear();
+    }
+
+    /**
+     * Returns the number of expressions in the cache.
+     * 
+     * @return the number of expressions in the cache.
+     */
+    public synchronized int size()
+    {
+        return expressions.size();
+    }
+
+    /**
+     * Returns the maximum number of expressions kept in the cache.
+     * 
+     * @return capacity.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of lookups that found a compiled expression.
+     * 
+     * @return hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a compiled expression.
+     * 
+     * @return misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * The maximum number of expressions kept in the cache.
+     */
+    private final int capacity;
+
+    /**
+     * The compiled expressions, from least to most recently used.
+     */
+    private final LinkedHashMap<String, Expression> expressions;
+
+    /**
+     * The number of lookups that found a compiled expression.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that did not find a compiled expression.
+     */
+    private long misses;
+}
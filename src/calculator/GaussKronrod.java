@@ -0,0 +1,644 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import calculator.ast.Expression;
+
+/**
+ * Computes definite integrals with the adaptive 7-point Gauss, 15-point Kronrod rule. Each subinterval is integrated
+ * with both rules, and the difference between them is taken as its error. The subinterval with the largest error is
+ * halved until the total error is at most the tolerance times the larger of 1 and the magnitude of the integral, or
+ * until the maximum number of subintervals is reached, in which case the integral is counted in the session as not
+ * converged.
+ * 
+ * The nodes and weights are given to 45 digits, which is enough in double precision. In decimal precision, they are
+ * computed once for each number of significant digits and kept for all later integrals, so that they do not limit the
+ * accuracy of integrals computed to more digits. Starting from the 45 digit values, Newton's method refines the nodes
+ * of the Gauss rule as the roots of the Legendre polynomial P7, and the other nodes of the Kronrod rule as the roots
+ * of the Stieltjes polynomial E8, whose coefficients are exact. The weights are then those which integrate the powers
+ * of x exactly.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class GaussKronrod
+{
+
+    /**
+     * The number of function evaluations used for each subinterval.
+     */
+    static final int POINTS = 15;
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit, computed in decimal precision.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param tolerance
+     *            - the error tolerance.
+     * @param maxIntervals
+     *            - the largest number of subintervals to divide the interval into.
+     * @param mc
+     *            - the MathContext applied to all operations.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * @param session
+     *            - the session in which the number of evaluations is recorded.
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    static BigDecimal integrate(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            BigDecimal tolerance, int maxIntervals, MathContext mc, DecimalEvaluator evaluator, Session session)
+            throws CalculatorError, ArithmeticException
+    {
+        Rule rule = getRule(mc.getPrecision());
+        PriorityQueue<Interval> intervals = new PriorityQueue<Interval>();
+        Interval whole = new Interval(function, slot, lowerLimit, upperLimit, rule, mc, evaluator);
+        intervals.add(whole);
+        BigDecimal value = whole.value;
+        BigDecimal error = whole.error;
+        int evaluations = POINTS;
+        try
+        {
+            while (error.compareTo(tolerance.multiply(value.abs().max(BigDecimal.ONE))) > 0
+                    && intervals.size() < maxIntervals)
+            {
+                Interval worst = intervals.poll();
+                BigDecimal middle = worst.lowerLimit.add(worst.upperLimit).multiply(HALF);
+                Interval left = new Interval(function, slot, worst.lowerLimit, middle, rule, mc, evaluator);
+                evaluations += POINTS;
+                Interval right = new Interval(function, slot, middle, worst.upperLimit, rule, mc, evaluator);
+                evaluations += POINTS;
+                intervals.add(left);
+                intervals.add(right);
+                value = value.subtract(worst.value).add(left.value).add(right.value);
+                error = error.subtract(worst.error).add(left.error).add(right.error);
+            }
+            if (error.compareTo(tolerance.multiply(value.abs().max(BigDecimal.ONE))) > 0)
+            {
+                session.addUnconvergedIntegral();
+            }
+        } finally
+        {
+            session.addIntegralEvaluations(evaluations);
+        }
+        return value.round(mc);
+    }
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit, computed in double precision.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param tolerance
+     *            - the error tolerance.
+     * @param maxIntervals
+     *            - the largest number of subintervals to divide the interval into.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * @param session
+     *            - the session in which the number of evaluations is recorded.
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    static double integrate(Expression function, int slot, double lowerLimit, double upperLimit, double tolerance,
+            int maxIntervals, DoubleEvaluator evaluator, Session session) throws CalculatorError
+    {
+        PriorityQueue<DoubleInterval> intervals = new PriorityQueue<DoubleInterval>();
+        DoubleInterval whole = new DoubleInterval(function, slot, lowerLimit, upperLimit, evaluator);
+        intervals.add(whole);
+        tolerance = java.lang.Math.max(tolerance, DoubleEvaluator.MIN_TOLERANCE);
+        double value = whole.value;
+        double error = whole.error;
+        int evaluations = POINTS;
+        try
+        {
+            while (error > tolerance * java.lang.Math.max(1, java.lang.Math.abs(value))
+                    && intervals.size() < maxIntervals)
+            {
+                DoubleInterval worst = intervals.poll();
+                double middle = 0.5 * (worst.lowerLimit + worst.upperLimit);
+                DoubleInterval left = new DoubleInterval(function, slot, worst.lowerLimit, middle, evaluator);
+                evaluations += POINTS;
+                DoubleInterval right = new DoubleInterval(function, slot, middle, worst.upperLimit, evaluator);
+                evaluations += POINTS;
+                intervals.add(left);
+                intervals.add(right);
+                value += left.value + right.value - worst.value;
+                error += left.error + right.error - worst.error;
+            }
+            if (error > tolerance * java.lang.Math.max(1, java.lang.Math.abs(value)))
+            {
+                session.addUnconvergedIntegral();
+            }
+        } finally
+        {
+            session.addIntegralEvaluations(evaluations);
+        }
+        return value;
+    }
+
+    /**
+     * A subinterval integrated in decimal precision, ordered from the largest error to the smallest.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class Interval implements Comparable<Interval>
+    {
+
+        /**
+         * Integrates function over the subinterval from lowerLimit to upperLimit.
+         * 
+         * @param function
+         *            - the function to be integrated.
+         * @param slot
+         *            - the slot in which the function reads x.
+         * @param lowerLimit
+         *            - the lower limit of the subinterval.
+         * @param upperLimit
+         *            - the upper limit of the subinterval.
+         * @param rule
+         *            - the nodes and weights of the rules.
+         * @param mc
+         *            - the MathContext applied to all operations.
+         * @param evaluator
+         *            - the evaluator used to compute the function.
+         * @throws CalculatorError
+         */
+        Interval(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit, Rule rule,
+                MathContext mc, DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+        {
+            this.lowerLimit = lowerLimit;
+            this.upperLimit = upperLimit;
+            BigDecimal center = lowerLimit.add(upperLimit).multiply(HALF);
+            BigDecimal halfLength = upperLimit.subtract(lowerLimit).multiply(HALF);
+
+            BigDecimal valueCenter = evaluator.evaluateAt(function, slot, center);
+            BigDecimal kronrod = valueCenter.multiply(rule.wgk[7], mc);
+            BigDecimal gauss = valueCenter.multiply(rule.wg[3], mc);
+            for (int j = 0; j < 7; j++)
+            {
+                BigDecimal offset = halfLength.multiply(rule.xgk[j], mc);
+                BigDecimal valueSum =
+                        evaluator.evaluateAt(function, slot, center.subtract(offset)).add(
+                                evaluator.evaluateAt(function, slot, center.add(offset)));
+                kronrod = kronrod.add(valueSum.multiply(rule.wgk[j], mc));
+                if (j % 2 == 1)
+                {
+                    gauss = gauss.add(valueSum.multiply(rule.wg[j / 2], mc));
+                }
+            }
+            this.value = kronrod.multiply(halfLength, mc);
+            this.error = kronrod.subtract(gauss).multiply(halfLength, mc).abs();
+        }
+
+        @Override
+        public int compareTo(Interval other)
+        {
+            return other.error.compareTo(error);
+        }
+
+        /**
+         * The lower limit of the subinterval.
+         */
+        private final BigDecimal lowerLimit;
+
+        /**
+         * The upper limit of the subinterval.
+         */
+        private final BigDecimal upperLimit;
+
+        /**
+         * The integral over the subinterval given by the Kronrod rule.
+         */
+        private final BigDecimal value;
+
+        /**
+         * The difference between the Kronrod and Gauss rules over the subinterval.
+         */
+        private final BigDecimal error;
+    }
+
+    /**
+     * Returns the nodes and weights computed to digits significant digits, generating them on first use.
+     * 
+     * @param digits
+     *            - the number of significant digits.
+     * @return the nodes and weights.
+     */
+    private static Rule getRule(int digits)
+    {
+        return RULES.computeIfAbsent(digits, Rule::new);
+    }
+
+    /**
+     * The nodes and weights of the Gauss and Kronrod rules in decimal precision, organized as XGK, WGK and WG.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class Rule
+    {
+
+        /**
+         * Computes the nodes and weights to digits significant digits.
+         * 
+         * @param digits
+         *            - the number of significant digits.
+         */
+        Rule(int digits)
+        {
+            mcWorking = new MathContext(digits + GUARD_DIGITS, RoundingMode.HALF_UP);
+            epsilon = BigDecimal.ONE.scaleByPowerOfTen(-digits - GUARD_DIGITS);
+            MathContext mc = new MathContext(digits, RoundingMode.HALF_UP);
+
+            BigDecimal[] nodes = new BigDecimal[8];
+            for (int j = 0; j < 7; j++)
+            {
+                nodes[j] = refine(XGK[j], j % 2 == 1);
+            }
+            nodes[7] = BigDecimal.ZERO;
+
+            // The Gauss weights follow from the derivative of P7 at the nodes.
+            BigDecimal two = new BigDecimal("2");
+            BigDecimal[] gaussWeights = new BigDecimal[4];
+            for (int i = 0; i < 4; i++)
+            {
+                BigDecimal x = nodes[2 * i + 1];
+                BigDecimal derivative = legendre(x)[1];
+                gaussWeights[i] =
+                        two.divide(BigDecimal.ONE.subtract(x.multiply(x, mcWorking)).multiply(
+                                derivative.multiply(derivative, mcWorking), mcWorking), mcWorking);
+            }
+
+            // The Kronrod weights solve the equations integrating 1, x^2, ..., x^14 exactly, where each weight but
+            // the last counts for a pair of nodes.
+            BigDecimal[][] equations = new BigDecimal[8][9];
+            for (int k = 0; k < 8; k++)
+            {
+                for (int j = 0; j < 8; j++)
+                {
+                    BigDecimal power = nodes[j].pow(2 * k, mcWorking);
+                    equations[k][j] = j < 7 ? power.multiply(two) : power;
+                }
+                equations[k][8] = two.divide(new BigDecimal(2 * k + 1), mcWorking);
+            }
+            BigDecimal[] kronrodWeights = solve(equations);
+
+            xgk = round(nodes, 7, mc);
+            wgk = round(kronrodWeights, 8, mc);
+            wg = round(gaussWeights, 4, mc);
+        }
+
+        /**
+         * Refines an approximate node with Newton's method until the step is below the working precision.
+         * 
+         * @param node
+         *            - the approximate node.
+         * @param gauss
+         *            - true if the node is a root of P7, false if it is a root of E8.
+         * @return the node.
+         */
+        private BigDecimal refine(BigDecimal node, boolean gauss)
+        {
+            for (int i = 0; i < MAX_STEPS; i++)
+            {
+                BigDecimal[] values = gauss ? legendre(node) : stieltjes(node);
+                BigDecimal step = values[0].divide(values[1], mcWorking);
+                node = node.subtract(step, mcWorking);
+                if (step.abs().compareTo(epsilon) <= 0)
+                {
+                    break;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Returns the Legendre polynomial P7 and its derivative at x, which must not be 1 or -1.
+         * 
+         * @param x
+         *            - the point.
+         * @return P7(x), followed by P7'(x).
+         */
+        private BigDecimal[] legendre(BigDecimal x)
+        {
+            BigDecimal previous = BigDecimal.ONE;
+            BigDecimal current = x;
+            for (int k = 1; k < 7; k++)
+            {
+                BigDecimal next =
+                        new BigDecimal(2 * k + 1).multiply(x).multiply(current, mcWorking)
+                                .subtract(new BigDecimal(k).multiply(previous), mcWorking)
+                                .divide(new BigDecimal(k + 1), mcWorking);
+                previous = current;
+                current = next;
+            }
+            BigDecimal derivative =
+                    new BigDecimal(7).multiply(x.multiply(current, mcWorking).subtract(previous), mcWorking).divide(
+                            x.multiply(x, mcWorking).subtract(BigDecimal.ONE), mcWorking);
+            return new BigDecimal[] { current, derivative };
+        }
+
+        /**
+         * Returns the Stieltjes polynomial E8 and its derivative at x. E8 is the even polynomial with leading
+         * coefficient 1 which is orthogonal to P7 times 1, x, ..., x^7, and its roots are the nodes of the Kronrod rule
+         * which are not nodes of the Gauss rule.
+         * 
+         * @param x
+         *            - the point.
+         * @return E8(x), followed by E8'(x).
+         */
+        private BigDecimal[] stieltjes(BigDecimal x)
+        {
+            BigDecimal y = x.multiply(x, mcWorking);
+            BigDecimal value = BigDecimal.ONE;
+            BigDecimal derivative = new BigDecimal(4);
+            for (int k = 0; k < 4; k++)
+            {
+                BigDecimal coefficient =
+                        new BigDecimal(E8[2 * k]).divide(new BigDecimal(E8[2 * k + 1]), mcWorking);
+                value = value.multiply(y, mcWorking).add(coefficient);
+                if (k < 3)
+                {
+                    derivative =
+                            derivative.multiply(y, mcWorking).add(coefficient.multiply(new BigDecimal(3 - k)));
+                }
+            }
+            return new BigDecimal[] { value, derivative.multiply(x.add(x), mcWorking) };
+        }
+
+        /**
+         * Solves a system of linear equations by Gaussian elimination with partial pivoting.
+         * 
+         * @param equations
+         *            - the coefficients of each equation, followed by its right hand side. They are overwritten.
+         * @return the solution.
+         */
+        private BigDecimal[] solve(BigDecimal[][] equations)
+        {
+            int n = equations.length;
+            for (int i = 0; i < n; i++)
+            {
+                int pivot = i;
+                for (int r = i + 1; r < n; r++)
+                {
+                    if (equations[r][i].abs().compareTo(equations[pivot][i].abs()) > 0)
+                    {
+                        pivot = r;
+                    }
+                }
+                BigDecimal[] swap = equations[i];
+                equations[i] = equations[pivot];
+                equations[pivot] = swap;
+                for (int r = i + 1; r < n; r++)
+                {
+                    BigDecimal factor = equations[r][i].divide(equations[i][i], mcWorking);
+                    for (int c = i; c <= n; c++)
+                    {
+                        equations[r][c] = equations[r][c].subtract(factor.multiply(equations[i][c]), mcWorking);
+                    }
+                }
+            }
+            BigDecimal[] solution = new BigDecimal[n];
+            for (int i = n - 1; i >= 0; i--)
+            {
+                BigDecimal sum = equations[i][n];
+                for (int c = i + 1; c < n; c++)
+                {
+                    sum = sum.subtract(equations[i][c].multiply(solution[c]), mcWorking);
+                }
+                solution[i] = sum.divide(equations[i][i], mcWorking);
+            }
+            return solution;
+        }
+
+        /**
+         * Returns the first count values rounded to mc.
+         * 
+         * @param values
+         *            - the values.
+         * @param count
+         *            - the number of values.
+         * @param mc
+         *            - the MathContext to round to.
+         * @return the rounded values.
+         */
+        private static BigDecimal[] round(BigDecimal[] values, int count, MathContext mc)
+        {
+            BigDecimal[] result = new BigDecimal[count];
+            for (int i = 0; i < count; i++)
+            {
+                result[i] = values[i].round(mc);
+            }
+            return result;
+        }
+
+        /**
+         * The MathContext of the computations, with GUARD_DIGITS extra digits.
+         */
+        private final MathContext mcWorking;
+
+        /**
+         * The Newton step below which a node is accepted.
+         */
+        private final BigDecimal epsilon;
+
+        /**
+         * The positive nodes of the Kronrod rule, as in XGK.
+         */
+        private final BigDecimal[] xgk;
+
+        /**
+         * The weights of the Kronrod rule, as in WGK.
+         */
+        private final BigDecimal[] wgk;
+
+        /**
+         * The weights of the Gauss rule, as in WG.
+         */
+        private final BigDecimal[] wg;
+    }
+
+    /**
+     * A subinterval integrated in double precision, ordered from the largest error to the smallest.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class DoubleInterval implements Comparable<DoubleInterval>
+    {
+
+        /**
+         * Integrates function over the subinterval from lowerLimit to upperLimit.
+         * 
+         * @param function
+         *            - the function to be integrated.
+         * @param slot
+         *            - the slot in which the function reads x.
+         * @param lowerLimit
+         *            - the lower limit of the subinterval.
+         * @param upperLimit
+         *            - the upper limit of the subinterval.
+         * @param evaluator
+         *            - the evaluator used to compute the function.
+         * @throws CalculatorError
+         */
+        DoubleInterval(Expression function, int slot, double lowerLimit, double upperLimit, DoubleEvaluator evaluator)
+                throws CalculatorError
+        {
+            this.lowerLimit = lowerLimit;
+            this.upperLimit = upperLimit;
+            double center = 0.5 * (lowerLimit + upperLimit);
+            double halfLength = 0.5 * (upperLimit - lowerLimit);
+
+            double valueCenter = evaluator.evaluateAt(function, slot, center);
+            double kronrod = valueCenter * WGK_DOUBLE[7];
+            double gauss = valueCenter * WG_DOUBLE[3];
+            for (int j = 0; j < 7; j++)
+            {
+                double offset = halfLength * XGK_DOUBLE[j];
+                double valueSum =
+                        evaluator.evaluateAt(function, slot, center - offset)
+                                + evaluator.evaluateAt(function, slot, center + offset);
+                kronrod += valueSum * WGK_DOUBLE[j];
+                if (j % 2 == 1)
+                {
+                    gauss += valueSum * WG_DOUBLE[j / 2];
+                }
+            }
+            this.value = kronrod * halfLength;
+            this.error = java.lang.Math.abs((kronrod - gauss) * halfLength);
+        }
+
+        @Override
+        public int compareTo(DoubleInterval other)
+        {
+            return Double.compare(other.error, error);
+        }
+
+        /**
+         * The lower limit of the subinterval.
+         */
+        private final double lowerLimit;
+
+        /**
+         * The upper limit of the subinterval.
+         */
+        private final double upperLimit;
+
+        /**
+         * The integral over the subinterval given by the Kronrod rule.
+         */
+        private final double value;
+
+        /**
+         * The difference between the Kronrod and Gauss rules over the subinterval.
+         */
+        private final double error;
+    }
+
+    /**
+     * Returns the BigDecimal values of the Strings.
+     * 
+     * @param values
+     *            - the Strings containing the values.
+     * @return the values.
+     */
+    private static BigDecimal[] toBigDecimal(String... values)
+    {
+        BigDecimal[] result = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            result[i] = new BigDecimal(values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the double values of the BigDecimals.
+     * 
+     * @param values
+     *            - the BigDecimal values.
+     * @return the values.
+     */
+    private static double[] toDouble(BigDecimal[] values)
+    {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            result[i] = values[i].doubleValue();
+        }
+        return result;
+    }
+
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+
+    /**
+     * The number of extra digits the nodes and weights are computed with.
+     */
+    private static final int GUARD_DIGITS = 10;
+
+    /**
+     * The largest number of Newton steps taken to refine a node. Each step doubles the number of correct digits.
+     */
+    private static final int MAX_STEPS = 32;
+
+    /**
+     * The coefficients of y^3, y^2, y and 1 in E8, where y = x^2, each as a numerator followed by a denominator.
+     */
+    private static final long[] E8 = { -36, 17, 7794, 5491, -202548, 653429, 52932681, 4854324041L };
+
+    /**
+     * The rules computed so far in decimal precision, by number of significant digits.
+     */
+    private static final ConcurrentHashMap<Integer, Rule> RULES = new ConcurrentHashMap<Integer, Rule>();
+
+    /**
+     * The positive nodes of the Kronrod rule on [-1, 1], in decreasing order. The nodes with odd indices and the
+     * center are also the nodes of the Gauss rule.
+     */
+    private static final BigDecimal[] XGK = toBigDecimal("0.991455371120812639206854697526328516642044338",
+            "0.949107912342758524526189684047851262400770938", "0.864864423359769072789712788640926201210972307",
+            "0.741531185599394439863864773280788407074147647", "0.586087235467691130294144838258729598436780751",
+            "0.405845151377397166906606412076961463347382014", "0.207784955007898467600689403773244913479784407");
+
+    /**
+     * The weights of the Kronrod rule for the nodes in XGK, followed by the weight of the center.
+     */
+    private static final BigDecimal[] WGK = toBigDecimal("0.022935322010529224963732008058969591993560811",
+            "0.063092092629978553290700663189204286665071157", "0.104790010322250183839876322541518017443756654",
+            "0.140653259715525918745189590510237920399889757", "0.169004726639267902826583426598550284106244900",
+            "0.190350578064785409913256402421013682826078075", "0.204432940075298892414161999234649084716517604",
+            "0.209482141084727828012999174891714263697762080");
+
+    /**
+     * The weights of the Gauss rule for the nodes XGK[1], XGK[3] and XGK[5], followed by the weight of the center.
+     */
+    private static final BigDecimal[] WG = toBigDecimal("0.129484966168869693270611432679082018328587402",
+            "0.279705391489276667901467771423779582486925065", "0.381830050505118944950369775488975133878365084",
+            "0.417959183673469387755102040816326530612244898");
+
+    private static final double[] XGK_DOUBLE = toDouble(XGK);
+
+    private static final double[] WGK_DOUBLE = toDouble(WGK);
+
+    private static final double[] WG_DOUBLE = toDouble(WG);
+}
@@ -0,0 +1,252 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calculator.ast.Expression;
+
+/**
+ * Computes the weighted sum of a function over a range of the equally spaced points used by the integration methods,
+ * splitting the range in halves among the threads of a ForkJoinPool until it is at most CHUNK_SIZE points long. Since
+ * BigDecimal addition is exact, the partial sums combine to exactly the value of a serial sum. Once a point fails to
+ * evaluate, the points to its right are skipped, and the error of the leftmost failing point is thrown.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class IntegralTask extends RecursiveAction
+{
+
+    /**
+     * The largest number of points summed by a single task.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Initializes the task to sum the points from (inclusive) to to (exclusive).
+     * 
+     * @param function
+     *            - the function to be summed.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param start
+     *            - the first point.
+     * @param dx
+     *            - the distance between points.
+     * @param count
+     *            - the total number of points.
+     * @param order
+     *            - the order of the Newton-Cotes weights, 1, 2 or 3, or 0 if all points have weight 1.
+     * @param mc
+     *            - the MathContext used to weight the points.
+     * @param evaluator
+     *            - the evaluator whose bindings are copied to compute the function.
+     * @param errorIndex
+     *            - the index of the leftmost point known to fail, shared by all the tasks of a sum.
+     * @param from
+     *            - the index of the first point to sum.
+     * @param to
+     *            - the index after the last point to sum.
+     */
+    IntegralTask(Expression function, int slot, BigDecimal start, BigDecimal dx, int count, int order, MathContext mc,
+            DecimalEvaluator evaluator, AtomicInteger errorIndex, int from, int to)
+    {
+        this.function = function;
+        this.slot = slot;
+        this.start = start;
+        this.dx = dx;
+        this.count = count;
+        this.order = order;
+        this.mc = mc;
+        this.evaluator = evaluator;
+        this.errorIndex = errorIndex;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the weighted sum of the function over the task's points, computed serially with evaluator.
+     * 
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * @return the weighted sum, or null if a point to the left is known to fail.
+     * @throws CalculatorError
+     */
+    BigDecimal sum(DecimalEvaluator evaluator) throws CalculatorError, ArithmeticException
+    {
+        BigDecimal sum = new BigDecimal("0");
+        BigDecimal x = start.add(dx.multiply(new BigDecimal(from)));
+        for (int i = from; i < to; i++)
+        {
+            if (i > errorIndex.get())
+            {
+                return null;
+            }
+            BigDecimal value;
+            try
+            {
+                value = evaluator.evaluateAt(function, slot, x);
+            } catch (CalculatorError | ArithmeticException e)
+            {
+                errorIndex.accumulateAndGet(i, java.lang.Math::min);
+                throw e;
+            }
+            BigDecimal weight = weight(i);
+            sum = sum.add(weight == null ? value : value.multiply(weight, mc));
+            x = x.add(dx);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the weighted sum computed by the task.
+     * 
+     * @return the weighted sum.
+     * @throws CalculatorError
+     */
+    BigDecimal getSum() throws CalculatorError, ArithmeticException
+    {
+        if (error instanceof CalculatorError)
+        {
+            throw (CalculatorError) error;
+        } else if (error != null)
+        {
+            throw (ArithmeticException) error;
+        }
+        return result;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= CHUNK_SIZE)
+        {
+            try
+            {
+                result = sum(evaluator.copy());
+            } catch (CalculatorError | ArithmeticException e)
+            {
+                error = e;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        IntegralTask left =
+                new IntegralTask(function, slot, start, dx, count, order, mc, evaluator, errorIndex, from, middle);
+        IntegralTask right =
+                new IntegralTask(function, slot, start, dx, count, order, mc, evaluator, errorIndex, middle, to);
+        invokeAll(left, right);
+
+        // The error of the leftmost point is kept, as it would be by a serial sum. Skipped tasks have no result.
+        if (left.error != null)
+        {
+            error = left.error;
+        } else if (right.error != null)
+        {
+            error = right.error;
+        } else if (left.result != null && right.result != null)
+        {
+            result = left.result.add(right.result);
+        }
+    }
+
+    /**
+     * Returns the Newton-Cotes weight of point i, or null if the weight is 1.
+     * 
+     * @param i
+     *            - the index of the point.
+     * @return the weight of the point.
+     */
+    private BigDecimal weight(int i)
+    {
+        if (order == 0 || i == 0 || i == count - 1)
+        {
+            return null;
+        } else if (order == 1 || i % order == 0)
+        {
+            return TWO;
+        } else if (order == 2)
+        {
+            return FOUR;
+        } else
+        {
+            return THREE;
+        }
+    }
+
+    private static final long serialVersionUID = -6013520743180271554L;
+
+    private static final BigDecimal TWO = new BigDecimal("2");
+
+    private static final BigDecimal THREE = new BigDecimal("3");
+
+    private static final BigDecimal FOUR = new BigDecimal("4");
+
+    /**
+     * The function to be summed.
+     */
+    private final Expression function;
+
+    /**
+     * The slot in which the function reads x.
+     */
+    private final int slot;
+
+    /**
+     * The first point.
+     */
+    private final BigDecimal start;
+
+    /**
+     * The distance between points.
+     */
+    private final BigDecimal dx;
+
+    /**
+     * The total number of points.
+     */
+    private final int count;
+
+    /**
+     * The order of the Newton-Cotes weights, or 0 if all points have weight 1.
+     */
+    private final int order;
+
+    /**
+     * The MathContext used to weight the points.
+     */
+    private final MathContext mc;
+
+    /**
+     * The evaluator whose bindings are copied to compute the function.
+     */
+    private final DecimalEvaluator evaluator;
+
+    /**
+     * The index of the leftmost point known to fail, shared by all the tasks of a sum.
+     */
+    private final AtomicInteger errorIndex;
+
+    /**
+     * The index of the first point to sum.
+     */
+    private final int from;
+
+    /**
+     * The index after the last point to sum.
+     */
+    private final int to;
+
+    /**
+     * The weighted sum, once computed, or null if the task was skipped.
+     */
+    private BigDecimal result;
+
+    /**
+     * The error thrown while computing the sum, if any.
+     */
+    private Exception error;
+}
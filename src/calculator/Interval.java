@@ -0,0 +1,316 @@
+package calculator;
+
+/**
+ * An immutable closed interval of doubles, possibly empty or unbounded. The arithmetic operations round their bounds
+ * outwards, so the result of an operation always contains the exact result of the operation applied to any points of
+ * its operands.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Interval
+{
+
+    /**
+     * The interval containing no values.
+     */
+    public static final Interval EMPTY = new Interval();
+
+    /**
+     * The interval containing all values.
+     */
+    public static final Interval WHOLE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    /**
+     * Initializes the interval from lower to upper. A NaN bound is taken to be unbounded.
+     * 
+     * @param lower
+     *            - the lower bound.
+     * @param upper
+     *            - the upper bound.
+     * @throws IllegalArgumentException
+     *             if lower > upper.
+     */
+    public Interval(double lower, double upper)
+    {
+        if (lower > upper)
+        {
+            throw new IllegalArgumentException("lower > upper");
+        }
+        this.lower = Double.isNaN(lower) ? Double.NEGATIVE_INFINITY : lower;
+        this.upper = Double.isNaN(upper) ? Double.POSITIVE_INFINITY : upper;
+    }
+
+    /**
+     * Initializes the empty interval.
+     */
+    private Interval()
+    {
+        this.lower = Double.POSITIVE_INFINITY;
+        this.upper = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the interval containing only value.
+     * 
+     * @param value
+     *            - the value.
+     * @return [value, value].
+     */
+    public static Interval point(double value)
+    {
+        return new Interval(value, value);
+    }
+
+    /**
+     * Returns the lower bound of the interval, or positive infinity if it is empty.
+     * 
+     * @return the lower bound.
+     */
+    public double getLower()
+    {
+        return lower;
+    }
+
+    /**
+     * Returns the upper bound of the interval, or negative infinity if it is empty.
+     * 
+     * @return the upper bound.
+     */
+    public double getUpper()
+    {
+        return upper;
+    }
+
+    /**
+     * Returns true if the interval contains no values.
+     * 
+     * @return true if the interval is empty.
+     */
+    public boolean isEmpty()
+    {
+        return lower > upper;
+    }
+
+    /**
+     * Returns true if the interval is not empty and both its bounds are finite.
+     * 
+     * @return true if the interval is bounded.
+     */
+    public boolean isBounded()
+    {
+        return !isEmpty() && !Double.isInfinite(lower) && !Double.isInfinite(upper);
+    }
+
+    /**
+     * Returns true if the interval contains value.
+     * 
+     * @param value
+     *            - the value.
+     * @return true if lower <= value <= upper.
+     */
+    public boolean contains(double value)
+    {
+        return lower <= value && value <= upper;
+    }
+
+    /**
+     * Returns the smallest interval containing this interval and other.
+     * 
+     * @param other
+     *            - the other interval.
+     * @return the hull of the intervals.
+     */
+    public Interval hull(Interval other)
+    {
+        if (isEmpty())
+        {
+            return other;
+        } else if (other.isEmpty())
+        {
+            return this;
+        }
+        return new Interval(java.lang.Math.min(lower, other.lower), java.lang.Math.max(upper, other.upper));
+    }
+
+    /**
+     * Returns the values of this interval between lower and upper.
+     * 
+     * @param lower
+     *            - the smallest value to keep.
+     * @param upper
+     *            - the largest value to keep.
+     * @return the intersection of this interval with [lower, upper].
+     */
+    public Interval intersect(double lower, double upper)
+    {
+        double newLower = java.lang.Math.max(this.lower, lower);
+        double newUpper = java.lang.Math.min(this.upper, upper);
+        return newLower > newUpper ? EMPTY : new Interval(newLower, newUpper);
+    }
+
+    /**
+     * Returns the interval of the negations of the values of this interval.
+     * 
+     * @return -this.
+     */
+    public Interval negate()
+    {
+        return isEmpty() ? EMPTY : new Interval(-upper, -lower);
+    }
+
+    /**
+     * Returns the interval of the sums of the values of this interval and other.
+     * 
+     * @param other
+     *            - the other interval.
+     * @return this + other.
+     */
+    public Interval add(Interval other)
+    {
+        if (isEmpty() || other.isEmpty())
+        {
+            return EMPTY;
+        }
+        return new Interval(down(lower + other.lower), up(upper + other.upper));
+    }
+
+    /**
+     * Returns the interval of the differences of the values of this interval and other.
+     * 
+     * @param other
+     *            - the other interval.
+     * @return this - other.
+     */
+    public Interval subtract(Interval other)
+    {
+        return add(other.negate());
+    }
+
+    /**
+     * Returns the interval of the products of the values of this interval and other.
+     * 
+     * @param other
+     *            - the other interval.
+     * @return this * other.
+     */
+    public Interval multiply(Interval other)
+    {
+        if (isEmpty() || other.isEmpty())
+        {
+            return EMPTY;
+        }
+        double a = times(lower, other.lower);
+        double b = times(lower, other.upper);
+        double c = times(upper, other.lower);
+        double d = times(upper, other.upper);
+        return new Interval(down(java.lang.Math.min(java.lang.Math.min(a, b), java.lang.Math.min(c, d))),
+                up(java.lang.Math.max(java.lang.Math.max(a, b), java.lang.Math.max(c, d))));
+    }
+
+    /**
+     * Returns the interval of the quotients of the values of this interval and the non-zero values of other.
+     * 
+     * @param other
+     *            - the other interval.
+     * @return this / other.
+     */
+    public Interval divide(Interval other)
+    {
+        return multiply(other.reciprocal());
+    }
+
+    /**
+     * Returns the interval of the reciprocals of the non-zero values of this interval.
+     * 
+     * @return 1 / this.
+     */
+    public Interval reciprocal()
+    {
+        if (isEmpty() || (lower == 0 && upper == 0))
+        {
+            return EMPTY;
+        } else if (lower > 0 || upper < 0)
+        {
+            return new Interval(down(1 / upper), up(1 / lower));
+        } else if (lower == 0)
+        {
+            return new Interval(down(1 / upper), Double.POSITIVE_INFINITY);
+        } else if (upper == 0)
+        {
+            return new Interval(Double.NEGATIVE_INFINITY, up(1 / lower));
+        }
+        return WHOLE;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof Interval))
+        {
+            return false;
+        }
+        Interval interval = (Interval) other;
+        return (isEmpty() && interval.isEmpty()) || (lower == interval.lower && upper == interval.upper);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return isEmpty() ? 0 : 31 * Double.hashCode(lower) + Double.hashCode(upper);
+    }
+
+    @Override
+    public String toString()
+    {
+        return isEmpty() ? "[]" : "[" + lower + ", " + upper + "]";
+    }
+
+    /**
+     * Returns the largest double below a correctly rounded result.
+     * 
+     * @param value
+     *            - the rounded result.
+     * @return the lower bound of the result.
+     */
+    static double down(double value)
+    {
+        return Double.isInfinite(value) ? value : java.lang.Math.nextDown(value);
+    }
+
+    /**
+     * Returns the smallest double above a correctly rounded result.
+     * 
+     * @param value
+     *            - the rounded result.
+     * @return the upper bound of the result.
+     */
+    static double up(double value)
+    {
+        return Double.isInfinite(value) ? value : java.lang.Math.nextUp(value);
+    }
+
+    /**
+     * Returns the product of two bounds, taking zero times infinity to be zero.
+     * 
+     * @param a
+     *            - the first bound.
+     * @param b
+     *            - the second bound.
+     * @return a * b.
+     */
+    private static double times(double a, double b)
+    {
+        return a == 0 || b == 0 ? 0 : a * b;
+    }
+
+    /**
+     * The lower bound.
+     */
+    private final double lower;
+
+    /**
+     * The upper bound.
+     */
+    private final double upper;
+}
@@ -0,0 +1,652 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+import calculator.Calculator.Mode;
+import calculator.ast.Accumulation;
+import calculator.ast.BinaryOperation;
+import calculator.ast.Constant;
+import calculator.ast.Expression;
+import calculator.ast.FunctionCall;
+import calculator.ast.Negation;
+import calculator.ast.NumberLiteral;
+import calculator.ast.RandomNumber;
+import calculator.ast.Temporary;
+import calculator.ast.Variable;
+import calculator.ast.Visitor;
+
+/**
+ * Evaluates an expression tree over intervals of x. The result of each node is an interval containing the exact value
+ * of the node at every point of its operands at which the node is defined, so the result of the tree encloses every
+ * value the function takes over the interval of x. Points at which a function is undefined are left out rather than
+ * thrown as errors, and a node which is undefined over all of its operands evaluates to the empty interval. The errors
+ * which do not depend on x, such as invalid limits of sums, are thrown as by DoubleEvaluator. Integrals are enclosed by
+ * the exact integral rather than the value of the engine's integration rule.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class IntervalEvaluator implements Visitor<Interval>
+{
+
+    /**
+     * Initializes the evaluator for engine and session.
+     * 
+     * @param engine
+     *            - the engine whose settings are used.
+     * @param session
+     *            - the session whose stored values are used.
+     */
+    IntervalEvaluator(CalculatorEngine engine, Session session)
+    {
+        this.session = session;
+        this.radians = engine.getMode() == Mode.radians;
+        this.slots = new Interval[1];
+    }
+
+    /**
+     * Returns the interval enclosing the values of function over x in slot.
+     * 
+     * @param function
+     *            - the function to be evaluated.
+     * @param slot
+     *            - the slot in which x is read by the function.
+     * @param x
+     *            - the interval of x.
+     * @return the interval enclosing the values of the function.
+     * @throws CalculatorError
+     */
+    Interval evaluateAt(Expression function, int slot, Interval x) throws CalculatorError
+    {
+        if (slot >= slots.length)
+        {
+            slots = Arrays.copyOf(slots, slot + 1);
+        }
+        Interval previous = slots[slot];
+        slots[slot] = x;
+        try
+        {
+            return function.accept(this);
+        } finally
+        {
+            slots[slot] = previous;
+        }
+    }
+
+    @Override
+    public Interval visitNumber(NumberLiteral node)
+    {
+        return enclose(node.getValue());
+    }
+
+    @Override
+    public Interval visitConstant(Constant node)
+    {
+        switch (node.getName())
+        {
+        case e:
+            return E;
+        case pi:
+            return PI;
+        case ans:
+            return enclose(session.getAnswer());
+        case mem:
+            return enclose(session.getMemory());
+        default:
+            return Interval.point(0);
+        }
+    }
+
+    @Override
+    public Interval visitVariable(Variable node) throws CalculatorError
+    {
+        if (node.getSlot() >= slots.length || slots[node.getSlot()] == null)
+        {
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+        return slots[node.getSlot()];
+    }
+
+    @Override
+    public Interval visitNegation(Negation node) throws CalculatorError
+    {
+        return node.getOperand().accept(this).negate();
+    }
+
+    @Override
+    public Interval visitBinaryOperation(BinaryOperation node) throws CalculatorError
+    {
+        Interval left = node.getLeft().accept(this);
+        Interval right = node.getRight().accept(this);
+        switch (node.getOperator())
+        {
+        case add:
+            return left.add(right);
+        case subtract:
+            return left.subtract(right);
+        case multiply:
+            return left.multiply(right);
+        case divide:
+            return left.divide(right);
+        case power:
+            return power(left, right);
+        case modulo:
+            return modulo(left, right);
+        default:
+            return Interval.point(0);
+        }
+    }
+
+    @Override
+    public Interval visitFunctionCall(FunctionCall node) throws CalculatorError
+    {
+        Interval temp = node.getArgument().accept(this);
+        switch (node.getFunction())
+        {
+        case sin:
+            return sin(toRadians(temp));
+        case cos:
+            return sin(toRadians(temp).add(HALF_PI));
+        case tan:
+            return tan(toRadians(temp));
+        case sec:
+            return sin(toRadians(temp).add(HALF_PI)).reciprocal();
+        case csc:
+            return sin(toRadians(temp)).reciprocal();
+        case cot:
+            return tan(HALF_PI.subtract(toRadians(temp)));
+        case exp:
+            return increasing(temp, java.lang.Math::exp).intersect(0, Double.POSITIVE_INFINITY);
+        case ln:
+            return increasing(temp.intersect(0, Double.POSITIVE_INFINITY), java.lang.Math::log);
+        case abs:
+            if (temp.getLower() >= 0)
+            {
+                return temp;
+            } else if (temp.getUpper() <= 0)
+            {
+                return temp.negate();
+            }
+            return temp.intersect(0, Double.POSITIVE_INFINITY).hull(temp.intersect(Double.NEGATIVE_INFINITY, 0)
+                    .negate());
+        case arcsin:
+            return fromRadians(increasing(temp.intersect(-1, 1), java.lang.Math::asin));
+        case arccos:
+            return fromRadians(decreasing(temp.intersect(-1, 1), java.lang.Math::acos));
+        case arctan:
+            return fromRadians(increasing(temp, java.lang.Math::atan));
+        case arcsec:
+            // The sides of the gap between -1 and 1 are inverted separately, as their reciprocals are bounded.
+            return fromRadians(decreasing(temp.intersect(1, Double.POSITIVE_INFINITY).reciprocal().intersect(-1, 1),
+                    java.lang.Math::acos).hull(
+                    decreasing(temp.intersect(Double.NEGATIVE_INFINITY, -1).reciprocal().intersect(-1, 1),
+                            java.lang.Math::acos)));
+        case arccsc:
+            return fromRadians(increasing(temp.intersect(1, Double.POSITIVE_INFINITY).reciprocal().intersect(-1, 1),
+                    java.lang.Math::asin).hull(
+                    increasing(temp.intersect(Double.NEGATIVE_INFINITY, -1).reciprocal().intersect(-1, 1),
+                            java.lang.Math::asin)));
+        case arccot:
+        {
+            // The sides of 0 are inverted separately, with arccot(0) = pi/2.
+            Interval result =
+                    increasing(temp.intersect(0, Double.POSITIVE_INFINITY).reciprocal(), java.lang.Math::atan).hull(
+                            increasing(temp.intersect(Double.NEGATIVE_INFINITY, 0).reciprocal(),
+                                    java.lang.Math::atan));
+            return fromRadians(temp.contains(0) ? result.hull(HALF_PI) : result);
+        }
+        case sinh:
+            return increasing(temp, java.lang.Math::sinh);
+        case cosh:
+            return cosh(temp);
+        case tanh:
+            return increasing(temp, java.lang.Math::tanh).intersect(-1, 1);
+        case sech:
+            return cosh(temp).reciprocal();
+        case csch:
+            return increasing(temp, java.lang.Math::sinh).reciprocal();
+        case coth:
+            return increasing(temp, java.lang.Math::tanh).intersect(-1, 1).reciprocal();
+        case arcsinh:
+            return increasing(temp, DoubleEvaluator::arcsinh);
+        case arccosh:
+            return increasing(temp.intersect(1, Double.POSITIVE_INFINITY), DoubleEvaluator::arccosh);
+        case arctanh:
+            return increasing(temp.intersect(-1, 1), DoubleEvaluator::arctanh);
+        case arcsech:
+            return increasing(temp.intersect(0, 1).reciprocal().intersect(1, Double.POSITIVE_INFINITY),
+                    DoubleEvaluator::arccosh);
+        case arccsch:
+            return increasing(temp.reciprocal(), DoubleEvaluator::arcsinh);
+        case arccoth:
+            return increasing(temp.intersect(1, Double.POSITIVE_INFINITY).reciprocal().intersect(-1, 1),
+                    DoubleEvaluator::arctanh).hull(
+                    increasing(temp.intersect(Double.NEGATIVE_INFINITY, -1).reciprocal().intersect(-1, 1),
+                            DoubleEvaluator::arctanh));
+        case sqrt:
+            return increasing(temp.intersect(0, Double.POSITIVE_INFINITY), java.lang.Math::sqrt).intersect(0,
+                    Double.POSITIVE_INFINITY);
+        default:
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+    }
+
+    @Override
+    public Interval visitAccumulation(Accumulation node) throws CalculatorError
+    {
+        Interval lowerLimit = node.getLowerLimit().accept(this);
+        Interval upperLimit = node.getUpperLimit().accept(this);
+        if (lowerLimit.isEmpty() || upperLimit.isEmpty())
+        {
+            return Interval.EMPTY;
+        }
+        switch (node.getKind())
+        {
+        case integral:
+        {
+            // The integral is the length of the range of integration times the mean of the function over it.
+            if (!lowerLimit.isBounded() || !upperLimit.isBounded())
+            {
+                return Interval.WHOLE;
+            }
+            Interval mean = evaluateAt(node.getFunction(), node.getSlot(), lowerLimit.hull(upperLimit));
+            if (!mean.isBounded())
+            {
+                return Interval.WHOLE;
+            }
+            return upperLimit.subtract(lowerLimit).multiply(mean);
+        }
+        case sum:
+        case product:
+        {
+            ErrorType error =
+                    node.getKind() == Accumulation.Kind.sum ? ErrorType.invalidSumParameters
+                            : ErrorType.invalidProductParameters;
+            double lower = java.lang.Math.ceil(lowerLimit.getLower());
+            double upper = java.lang.Math.floor(upperLimit.getUpper());
+            if (lower > lowerLimit.getUpper() || upper < upperLimit.getLower())
+            {
+                throw new CalculatorError(error);
+            } else if (lower != java.lang.Math.floor(lowerLimit.getUpper())
+                    || upper != java.lang.Math.ceil(upperLimit.getLower()))
+            {
+                // The limits depend on x, so the number of terms is not known.
+                return Interval.WHOLE;
+            } else if (lower > upper)
+            {
+                throw new CalculatorError(error);
+            }
+            Interval result = Interval.point(node.getKind() == Accumulation.Kind.sum ? 0 : 1);
+            for (double x = lower; x <= upper; x++)
+            {
+                Interval term = evaluateAt(node.getFunction(), node.getSlot(), Interval.point(x));
+                result = node.getKind() == Accumulation.Kind.sum ? result.add(term) : result.multiply(term);
+            }
+            return result;
+        }
+        default:
+            return Interval.point(0);
+        }
+    }
+
+    @Override
+    public Interval visitTemporary(Temporary node) throws CalculatorError
+    {
+        return node.getExpression().accept(this);
+    }
+
+    @Override
+    public Interval visitRandom(RandomNumber node) throws CalculatorError
+    {
+        if (node.getBound() == null)
+        {
+            return new Interval(0, 1);
+        }
+        Interval temp = node.getBound().accept(this);
+        if (temp.isEmpty())
+        {
+            return Interval.EMPTY;
+        }
+        double lower = java.lang.Math.max(1, java.lang.Math.ceil(temp.getLower()));
+        double upper = java.lang.Math.floor(temp.getUpper());
+        if (lower > upper)
+        {
+            throw new CalculatorError(ErrorType.invalidRandParameters);
+        } else if (lower > Integer.MAX_VALUE)
+        {
+            throw new CalculatorError(ErrorType.randArgumentTooBig);
+        }
+        return new Interval(0, java.lang.Math.min(upper, Integer.MAX_VALUE) - 1);
+    }
+
+    /**
+     * The relative error allowed for in the functions of java.lang.Math, which are accurate to one ulp, and in the
+     * formulas built from them.
+     */
+    private static final int ULPS = 4;
+
+    private static final Interval PI = new Interval(java.lang.Math.nextDown(java.lang.Math.PI),
+            java.lang.Math.nextUp(java.lang.Math.PI));
+
+    private static final Interval HALF_PI = new Interval(java.lang.Math.nextDown(java.lang.Math.PI / 2),
+            java.lang.Math.nextUp(java.lang.Math.PI / 2));
+
+    private static final Interval E = new Interval(java.lang.Math.nextDown(java.lang.Math.E),
+            java.lang.Math.nextUp(java.lang.Math.E));
+
+    private static final Interval RADIANS_PER_DEGREE = PI.divide(Interval.point(180));
+
+    private static final Interval DEGREES_PER_RADIAN = Interval.point(180).divide(PI);
+
+    /**
+     * The session whose stored values are used.
+     */
+    private final Session session;
+
+    /**
+     * Whether trigonometric functions use radians.
+     */
+    private final boolean radians;
+
+    /**
+     * The intervals of x bound in each slot, null if unbound.
+     */
+    private Interval[] slots;
+
+    /**
+     * Returns the smallest interval of doubles containing value.
+     * 
+     * @param value
+     *            - the value.
+     * @return the interval enclosing value.
+     */
+    private static Interval enclose(BigDecimal value)
+    {
+        double rounded = value.doubleValue();
+        if (!Double.isInfinite(rounded) && new BigDecimal(rounded).compareTo(value) == 0)
+        {
+            return Interval.point(rounded);
+        }
+        return new Interval(Interval.down(rounded), Interval.up(rounded));
+    }
+
+    /**
+     * Returns the image of x under an increasing function accurate to ULPS ulps.
+     * 
+     * @param x
+     *            - the interval.
+     * @param function
+     *            - the function.
+     * @return the interval enclosing the values of the function over x.
+     */
+    private static Interval increasing(Interval x, DoubleUnaryOperator function)
+    {
+        if (x.isEmpty())
+        {
+            return Interval.EMPTY;
+        }
+        return new Interval(widenDown(function.applyAsDouble(x.getLower())),
+                widenUp(function.applyAsDouble(x.getUpper())));
+    }
+
+    /**
+     * Returns the image of x under a decreasing function accurate to ULPS ulps.
+     * 
+     * @param x
+     *            - the interval.
+     * @param function
+     *            - the function.
+     * @return the interval enclosing the values of the function over x.
+     */
+    private static Interval decreasing(Interval x, DoubleUnaryOperator function)
+    {
+        return increasing(x.negate(), value -> function.applyAsDouble(-value));
+    }
+
+    /**
+     * Returns the sine of an interval in radians.
+     * 
+     * @param x
+     *            - the interval.
+     * @return the interval enclosing the sines of x.
+     */
+    private static Interval sin(Interval x)
+    {
+        if (!x.isBounded())
+        {
+            return x.isEmpty() ? Interval.EMPTY : new Interval(-1, 1);
+        }
+        double sinLower = java.lang.Math.sin(x.getLower());
+        double sinUpper = java.lang.Math.sin(x.getUpper());
+        double lower = widenDown(java.lang.Math.min(sinLower, sinUpper));
+        double upper = widenUp(java.lang.Math.max(sinLower, sinUpper));
+
+        // The extrema lie at pi/2 + k*pi. Those near the ends of x are counted whether or not they are inside.
+        if (containsMultiple(x, java.lang.Math.PI / 2, 2 * java.lang.Math.PI))
+        {
+            upper = 1;
+        }
+        if (containsMultiple(x, -java.lang.Math.PI / 2, 2 * java.lang.Math.PI))
+        {
+            lower = -1;
+        }
+        return new Interval(java.lang.Math.max(lower, -1), java.lang.Math.min(upper, 1));
+    }
+
+    /**
+     * Returns the tangent of an interval in radians.
+     * 
+     * @param x
+     *            - the interval.
+     * @return the interval enclosing the tangents of x.
+     */
+    private static Interval tan(Interval x)
+    {
+        if (x.isEmpty())
+        {
+            return Interval.EMPTY;
+        } else if (!x.isBounded() || containsMultiple(x, java.lang.Math.PI / 2, java.lang.Math.PI))
+        {
+            return Interval.WHOLE;
+        }
+        return increasing(x, java.lang.Math::tan);
+    }
+
+    /**
+     * Returns the hyperbolic cosine of an interval.
+     * 
+     * @param x
+     *            - the interval.
+     * @return the interval enclosing the hyperbolic cosines of x.
+     */
+    private static Interval cosh(Interval x)
+    {
+        if (x.isEmpty())
+        {
+            return Interval.EMPTY;
+        }
+        double lower = x.contains(0) ? 1 : java.lang.Math.cosh(java.lang.Math.min(java.lang.Math.abs(x.getLower()),
+                java.lang.Math.abs(x.getUpper())));
+        double upper = java.lang.Math.cosh(java.lang.Math.max(java.lang.Math.abs(x.getLower()),
+                java.lang.Math.abs(x.getUpper())));
+        return new Interval(java.lang.Math.max(widenDown(lower), 1), widenUp(upper));
+    }
+
+    /**
+     * Returns true if x contains or nearly contains offset + k*period for some integer k. Only the points which are
+     * clearly outside x are ruled out, which is enough for enclosures.
+     * 
+     * @param x
+     *            - the bounded interval.
+     * @param offset
+     *            - the offset of the points.
+     * @param period
+     *            - the distance between the points.
+     * @return true if x may contain one of the points.
+     */
+    private static boolean containsMultiple(Interval x, double offset, double period)
+    {
+        double margin = 1e-9;
+        double lower = (x.getLower() - offset) / period;
+        double upper = (x.getUpper() - offset) / period;
+        return java.lang.Math.floor(upper + margin * (1 + java.lang.Math.abs(upper))) >= java.lang.Math.ceil(lower
+                - margin * (1 + java.lang.Math.abs(lower)));
+    }
+
+    /**
+     * Returns the powers of the values of base to the values of exponent. Integer exponents follow the signs of the
+     * base, while other exponents are only defined for positive bases.
+     * 
+     * @param base
+     *            - the interval of the base.
+     * @param exponent
+     *            - the interval of the exponent.
+     * @return the interval enclosing base^exponent.
+     */
+    private static Interval power(Interval base, Interval exponent)
+    {
+        if (base.isEmpty() || exponent.isEmpty())
+        {
+            return Interval.EMPTY;
+        }
+        double n = exponent.getLower();
+        if (n == exponent.getUpper() && n == java.lang.Math.rint(n))
+        {
+            if (n == 0)
+            {
+                return Interval.point(1);
+            } else if (n < 0)
+            {
+                return power(base, Interval.point(-n)).reciprocal();
+            } else if (n % 2 == 1 || base.getLower() >= 0)
+            {
+                return increasing(base, value -> java.lang.Math.pow(value, n));
+            } else if (base.getUpper() <= 0)
+            {
+                return decreasing(base, value -> java.lang.Math.pow(value, n));
+            }
+            double magnitude = java.lang.Math.max(-base.getLower(), base.getUpper());
+            return new Interval(0, widenUp(java.lang.Math.pow(magnitude, n)));
+        }
+
+        // x^y = exp(y ln(x)) for x > 0, 0^y = 0 for y > 0, 0^0 = 1, and negative bases only have integer exponents.
+        if (base.getLower() < 0
+                && java.lang.Math.floor(exponent.getUpper()) >= java.lang.Math.ceil(exponent.getLower()))
+        {
+            return Interval.WHOLE;
+        }
+        Interval positive = base.intersect(java.lang.Math.nextUp(0.0), Double.POSITIVE_INFINITY);
+        Interval result =
+                increasing(exponent.multiply(increasing(positive, java.lang.Math::log)), java.lang.Math::exp)
+                        .intersect(0, Double.POSITIVE_INFINITY);
+        if (base.contains(0) && exponent.getUpper() > 0)
+        {
+            result = result.hull(Interval.point(0));
+        }
+        if (base.contains(0) && exponent.contains(0))
+        {
+            result = result.hull(Interval.point(1));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the remainders of the values of dividend divided by the non-zero values of divisor, which take the sign
+     * of the dividend.
+     * 
+     * @param dividend
+     *            - the interval of the dividend.
+     * @param divisor
+     *            - the interval of the divisor.
+     * @return the interval enclosing dividend % divisor.
+     */
+    private static Interval modulo(Interval dividend, Interval divisor)
+    {
+        if (dividend.isEmpty() || divisor.isEmpty() || (divisor.getLower() == 0 && divisor.getUpper() == 0))
+        {
+            return Interval.EMPTY;
+        } else if (dividend.getLower() == 0 && dividend.getUpper() == 0)
+        {
+            return Interval.point(0);
+        } else if (dividend.getUpper() <= 0 && dividend.getLower() < 0)
+        {
+            return modulo(dividend.negate(), divisor).negate();
+        } else if (dividend.getLower() < 0)
+        {
+            return modulo(dividend.intersect(0, Double.POSITIVE_INFINITY), divisor).hull(
+                    modulo(dividend.intersect(Double.NEGATIVE_INFINITY, 0), divisor));
+        }
+
+        // The dividend is now positive. If the divisor is fixed and no multiple of it lies inside the dividend, the
+        // remainder is the dividend shifted by that multiple.
+        double magnitude = java.lang.Math.max(-divisor.getLower(), divisor.getUpper());
+        if (divisor.getLower() == divisor.getUpper() && dividend.isBounded())
+        {
+            double quotient = java.lang.Math.floor(widenDown(dividend.getLower() / magnitude));
+            if (quotient == java.lang.Math.floor(widenUp(dividend.getUpper() / magnitude)))
+            {
+                Interval shift = Interval.point(quotient).multiply(Interval.point(magnitude));
+                return dividend.subtract(shift).intersect(0, magnitude);
+            }
+        }
+        return new Interval(0, java.lang.Math.min(magnitude, dividend.getUpper()));
+    }
+
+    /**
+     * Converts an interval in the engine's mode to radians.
+     * 
+     * @param angle
+     *            - the interval in the engine's mode.
+     * @return the interval in radians.
+     */
+    private Interval toRadians(Interval angle)
+    {
+        return radians ? angle : angle.multiply(RADIANS_PER_DEGREE);
+    }
+
+    /**
+     * Converts an interval in radians to the engine's mode.
+     * 
+     * @param angle
+     *            - the interval in radians.
+     * @return the interval in the engine's mode.
+     */
+    private Interval fromRadians(Interval angle)
+    {
+        return radians ? angle : angle.multiply(DEGREES_PER_RADIAN);
+    }
+
+    /**
+     * Returns a value below a result accurate to ULPS ulps.
+     * 
+     * @param value
+     *            - the result.
+     * @return the lower bound of the result.
+     */
+    private static double widenDown(double value)
+    {
+        if (Double.isNaN(value))
+        {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.isInfinite(value) ? value : value - ULPS * java.lang.Math.ulp(value);
+    }
+
+    /**
+     * Returns a value above a result accurate to ULPS ulps.
+     * 
+     * @param value
+     *            - the result.
+     * @return the upper bound of the result.
+     */
+    private static double widenUp(double value)
+    {
+        if (Double.isNaN(value))
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.isInfinite(value) ? value : value + ULPS * java.lang.Math.ulp(value);
+    }
+}
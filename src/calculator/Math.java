@@ -8,7 +8,8 @@ import java.math.BigInteger;
 import calculator.CalculatorError;
 
 /**
- * A class that contains static methods that perform mathematical operations on arguments of type BigDecimal.
+ * A class that contains methods that perform mathematical operations on arguments of type BigDecimal. Each instance
+ * computes its operations and constants to a fixed number of significant digits.
  * 
  * @author Andrei Purcarus
  *
@@ -17,53 +18,267 @@ public class Math
 {
 
     /**
-     * The MathContext applied to all operations in the Math class.
+     * The smallest number of significant digits a Math instance can be created with.
      */
-    public static final MathContext mc = new MathContext(32, RoundingMode.HALF_UP);
+    public static final int MIN_DIGITS = 4;
+
+    /**
+     * The number of significant digits used by default.
+     */
+    public static final int DEFAULT_DIGITS = 32;
+
+    /**
+     * The number of extra digits the constants are generated with, to absorb rounding errors in the operations which
+     * use them.
+     */
+    private static final int GUARD_DIGITS = 14;
+
+    /**
+     * The number of extra digits the operations are computed with before their results are rounded.
+     */
+    private static final int OPERATION_GUARD_DIGITS = 5;
+
+    /**
+     * Initializes the operations to be computed to digits significant digits. The operations are computed with
+     * OPERATION_GUARD_DIGITS extra digits and rounded, and the constants are generated with GUARD_DIGITS extra digits.
+     * 
+     * @param digits
+     *            - the number of significant digits, at least MIN_DIGITS.
+     * @throws IllegalArgumentException
+     */
+    public Math(int digits) throws IllegalArgumentException
+    {
+        this(digits, digits);
+    }
+
+    /**
+     * Initializes the operations to be computed to precision significant digits, taking results smaller than the error
+     * of digits significant digits to be zero. If precision is digits, the operations are delegated to an instance with
+     * OPERATION_GUARD_DIGITS extra digits, and their results are rounded.
+     * 
+     * @param digits
+     *            - the number of significant digits of the results, at least MIN_DIGITS.
+     * @param precision
+     *            - the number of significant digits the operations are computed with.
+     * @throws IllegalArgumentException
+     */
+    private Math(int digits, int precision) throws IllegalArgumentException
+    {
+        if (digits < MIN_DIGITS)
+        {
+            throw new IllegalArgumentException("digits must be at least " + MIN_DIGITS);
+        }
+        mc = new MathContext(precision, RoundingMode.HALF_UP);
+        mcIntRound = new MathContext(2 * digits / 3, RoundingMode.HALF_UP);
+        maxError = BigDecimal.ONE.scaleByPowerOfTen(-precision);
+        zeroError = BigDecimal.ONE.scaleByPowerOfTen(2 - digits);
+        guarded = precision == digits ? new Math(digits, digits + OPERATION_GUARD_DIGITS) : null;
+
+        // The constants are truncated rather than rounded to the guard precision.
+        MathContext mcConstant = new MathContext(precision + GUARD_DIGITS, RoundingMode.DOWN);
+        MathContext mcWorking = new MathContext(precision + 2 * GUARD_DIGITS, RoundingMode.HALF_UP);
+        e = computeE(mcWorking).round(mcConstant);
+        pi = computePi(mcWorking).round(mcConstant);
+        sqrt3 = computeSqrt(new BigDecimal("3"), mcWorking).round(mcConstant);
+        y = new BigDecimal("2").divide(e.add(new BigDecimal("1")), mc);
+        z = y.multiply(e, mc);
+        degToRad = pi.divide(new BigDecimal("180"), mc);
+    }
+
+    /**
+     * Returns the number of significant digits the operations are computed to.
+     * 
+     * @return the number of significant digits.
+     */
+    public int getDigits()
+    {
+        return mc.getPrecision();
+    }
+
+    /**
+     * Returns the MathContext applied to all operations.
+     * 
+     * @return mc.
+     */
+    public MathContext getMathContext()
+    {
+        return mc;
+    }
+
+    /**
+     * Returns the MathContext used when checking if a BigDecimal is an integer.
+     * 
+     * @return mcIntRound.
+     */
+    public MathContext getIntRoundContext()
+    {
+        return mcIntRound;
+    }
+
+    /**
+     * Returns the mathematical constant e.
+     * 
+     * @return e.
+     */
+    public BigDecimal getE()
+    {
+        return e.round(mc);
+    }
+
+    /**
+     * Returns the mathematical constant pi.
+     * 
+     * @return pi.
+     */
+    public BigDecimal getPi()
+    {
+        return pi.round(mc);
+    }
+
+    /**
+     * The MathContext applied to all operations.
+     */
+    private final MathContext mc;
 
     /**
      * The MathContext used when checking if a BigDecimal is an integer.
      */
-    public static MathContext mcIntRound = new MathContext(21, RoundingMode.HALF_UP);
+    private final MathContext mcIntRound;
+
+    /**
+     * The instance which computes the operations with OPERATION_GUARD_DIGITS extra digits, or null if this instance
+     * computes them itself.
+     */
+    private final Math guarded;
 
     /**
      * The maximum error for functions computed using Taylor polynomials.
      */
-    public static final BigDecimal MAX_ERROR = new BigDecimal("1e-30");
+    private final BigDecimal maxError;
+
+    /**
+     * The magnitude below which results are taken to be zero, as they are within the rounding error of the arguments.
+     */
+    private final BigDecimal zeroError;
 
     /**
      * The mathematical constant e.
      */
-    public static final BigDecimal E = new BigDecimal("2.718281828459045235360287471352662497757247093");
+    private final BigDecimal e;
 
     /**
-     * A special constant which satisfies E*Y = 2 - Y, implying that multiplying the constant by E will preserve its
+     * A special constant which satisfies e*y = 2 - y, implying that multiplying the constant by e will preserve its
      * distance from 1. It is used in the computation of the natural logarithm for this purpose, to obtain faster
      * convergence of the Taylor polynomial.
      */
-    public static final BigDecimal Y = new BigDecimal("2").divide(E.add(new BigDecimal("1")), mc);
+    private final BigDecimal y;
 
     /**
-     * A special constant which satisfies Z/E = 2 - Z, implying that dividing the constant by E will preserve its
+     * A special constant which satisfies z/e = 2 - z, implying that dividing the constant by e will preserve its
      * distance from 1. It is used in the computation of the natural logarithm for this purpose, to obtain faster
      * convergence of the Taylor polynomial.
      */
-    public static final BigDecimal Z = Y.multiply(E, mc);
+    private final BigDecimal z;
 
     /**
      * The square root of 3, used in the computation of arctan.
      */
-    public static final BigDecimal SQRT3 = new BigDecimal("1.732050807568877293527446341505872366942805253");
+    private final BigDecimal sqrt3;
 
     /**
      * The mathematical constant pi.
      */
-    public static final BigDecimal PI = new BigDecimal("3.141592653589793238462643383279502884197169399");
+    private final BigDecimal pi;
 
     /**
      * The conversion factor for converting degrees to radians.
      */
-    public static final BigDecimal DEG_TO_RAD = PI.divide(new BigDecimal("180"), mc);
+    private final BigDecimal degToRad;
+
+    /**
+     * Computes e as the sum of 1/k! over all k.
+     * 
+     * @param mc
+     *            - the MathContext to compute e with.
+     * @return the value of e.
+     */
+    private static BigDecimal computeE(MathContext mc)
+    {
+        BigDecimal error = BigDecimal.ONE.scaleByPowerOfTen(-mc.getPrecision());
+        BigDecimal term = new BigDecimal("1");
+        BigDecimal partialSum = new BigDecimal("1");
+        int i = 1;
+        do
+        {
+            term = term.divide(new BigDecimal(i), mc);
+            partialSum = partialSum.add(term);
+            i++;
+        } while (term.compareTo(error) >= 0);
+        return partialSum;
+    }
+
+    /**
+     * Computes pi using Machin's formula, pi = 16*arctan(1/5) - 4*arctan(1/239).
+     * 
+     * @param mc
+     *            - the MathContext to compute pi with.
+     * @return the value of pi.
+     */
+    private static BigDecimal computePi(MathContext mc)
+    {
+        return arctanInverse(5, mc).multiply(new BigDecimal("16")).subtract(
+                arctanInverse(239, mc).multiply(new BigDecimal("4")));
+    }
+
+    /**
+     * Computes arctan(1/n) for an integer n greater than 1 using its Taylor polynomial.
+     * 
+     * @param n
+     *            - the inverse of the argument.
+     * @param mc
+     *            - the MathContext to compute the arc tangent with.
+     * @return the value of arctan(1/n).
+     */
+    private static BigDecimal arctanInverse(int n, MathContext mc)
+    {
+        BigDecimal error = BigDecimal.ONE.scaleByPowerOfTen(-mc.getPrecision());
+        BigDecimal nSquared = new BigDecimal(n * n);
+        BigDecimal power = (new BigDecimal("1")).divide(new BigDecimal(n), mc);
+        BigDecimal partialSum = power;
+        BigDecimal term;
+        int i = 3;
+        boolean negative = true;
+        do
+        {
+            power = power.divide(nSquared, mc);
+            term = power.divide(new BigDecimal(i), mc);
+            partialSum = negative ? partialSum.subtract(term) : partialSum.add(term);
+            negative = !negative;
+            i += 2;
+        } while (term.compareTo(error) >= 0);
+        return partialSum;
+    }
+
+    /**
+     * Computes the square root of a positive argument using Newton's method.
+     * 
+     * @param argument
+     *            - the argument.
+     * @param mc
+     *            - the MathContext to compute the square root with.
+     * @return the square root of the argument.
+     */
+    private static BigDecimal computeSqrt(BigDecimal argument, MathContext mc)
+    {
+        BigDecimal result = new BigDecimal(java.lang.Math.sqrt(argument.doubleValue()));
+        BigDecimal previous;
+        do
+        {
+            previous = result;
+            result = result.add(argument.divide(result, mc)).divide(new BigDecimal("2"), mc);
+        } while (result.compareTo(previous) != 0);
+        return result;
+    }
 
     /**
      * Returns the absolute value of the argument.
@@ -84,8 +299,12 @@ public class Math
      *            - the argument.
      * @return the exponential function of the argument.
      */
-    public static BigDecimal exp(BigDecimal argument)
+    public BigDecimal exp(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.exp(argument).round(mc);
+        }
         BigDecimal partialAnswer = new BigDecimal("1");
         boolean negative = false;
         if (argument.signum() == -1)
@@ -96,7 +315,7 @@ public class Math
         while (argument.compareTo(new BigDecimal("1")) > 0)
         {
             argument = argument.subtract(new BigDecimal("1"));
-            partialAnswer = partialAnswer.multiply(E, mc);
+            partialAnswer = partialAnswer.multiply(e, mc);
         }
 
         BigDecimal term = new BigDecimal("1");
@@ -108,7 +327,7 @@ public class Math
             term = term.multiply(argument.divide(new BigDecimal(i), mc), mc);
             partialSum = partialSum.add(term);
             i++;
-        } while (abs(term).compareTo(MAX_ERROR) >= 0);
+        } while (abs(term).compareTo(maxError) >= 0);
 
         BigDecimal result = partialAnswer.multiply(partialSum, mc);
         if (negative)
@@ -116,7 +335,7 @@ public class Math
             result = (new BigDecimal("1")).divide(result, mc);
         }
 
-        if (abs(result).compareTo(MAX_ERROR) < 0)
+        if (abs(result).compareTo(zeroError) < 0)
         {
             return new BigDecimal("0");
         } else
@@ -133,8 +352,12 @@ public class Math
      * @return the natural logarithmic function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal ln(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal ln(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.ln(argument).round(mc);
+        }
         if (argument.signum() != 1)
         {
             throw new CalculatorError(ErrorType.lnUndef);
@@ -144,14 +367,14 @@ public class Math
         } else
         {
             int count = 0;
-            while (argument.compareTo(Z) > 0)
+            while (argument.compareTo(z) > 0)
             {
-                argument = argument.divide(E, mc);
+                argument = argument.divide(e, mc);
                 count++;
             }
-            while (argument.compareTo(Y) < 0)
+            while (argument.compareTo(y) < 0)
             {
-                argument = argument.multiply(E, mc);
+                argument = argument.multiply(e, mc);
                 count--;
             }
 
@@ -167,10 +390,10 @@ public class Math
                 term = termNumerator.divide(new BigDecimal(i), mc);
                 partialSum = partialSum.add(term);
                 i++;
-            } while (abs(term).compareTo(MAX_ERROR) >= 0);
+            } while (abs(term).compareTo(maxError) >= 0);
 
             BigDecimal result = (partialSum.add(new BigDecimal(count)));
-            if (abs(result).compareTo(MAX_ERROR) < 0)
+            if (abs(result).compareTo(zeroError) < 0)
             {
                 return new BigDecimal("0");
             } else
@@ -190,8 +413,12 @@ public class Math
      * @return argument to the power of exponent
      * @throws CalculatorError
      */
-    public static BigDecimal pow(BigDecimal argument, BigDecimal exponent) throws CalculatorError, ArithmeticException
+    public BigDecimal pow(BigDecimal argument, BigDecimal exponent) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.pow(argument, exponent).round(mc);
+        }
         if (exponent.signum() == 0)
         {
             return new BigDecimal("1");
@@ -236,8 +463,12 @@ public class Math
      * @return argument to the power of exponent
      * @throws CalculatorError
      */
-    public static BigDecimal sqrt(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal sqrt(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.sqrt(argument).round(mc);
+        }
         if (argument.signum() == -1)
         {
             throw new CalculatorError(ErrorType.nonIntegralPowerNegativeArg);
@@ -257,8 +488,12 @@ public class Math
      *            - the argument.
      * @return the sine function of the argument.
      */
-    public static BigDecimal sin(BigDecimal argument)
+    public BigDecimal sin(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.sin(argument).round(mc);
+        }
         // Use better reduction for higher numbers.
         boolean negative = false;
         if (argument.signum() == -1)
@@ -267,15 +502,15 @@ public class Math
             negative = true;
         }
 
-        BigDecimal tempArgument = argument.divide((new BigDecimal("2")).multiply(PI, mc), mc);
+        BigDecimal tempArgument = argument.divide((new BigDecimal("2")).multiply(pi, mc), mc);
         argument =
                 (tempArgument.subtract(new BigDecimal(tempArgument.toBigInteger().toString()))).multiply(
-                        (new BigDecimal("2")).multiply(PI, mc), mc);
-        // while (argument.compareTo((new BigDecimal("2")).multiply(PI, mc)) >= 0) {
-        // argument = argument.subtract((new BigDecimal("2")).multiply(PI, mc));
+                        (new BigDecimal("2")).multiply(pi, mc), mc);
+        // while (argument.compareTo((new BigDecimal("2")).multiply(pi, mc)) >= 0) {
+        // argument = argument.subtract((new BigDecimal("2")).multiply(pi, mc));
         // }
         // while (argument.compareTo(new BigDecimal("0")) < 0) {
-        // argument = argument.add((new BigDecimal("2")).multiply(PI, mc));
+        // argument = argument.add((new BigDecimal("2")).multiply(pi, mc));
         // }
 
         BigDecimal argumentSquared = argument.pow(2, mc);
@@ -288,9 +523,9 @@ public class Math
             term = term.multiply((argumentSquared.divide(new BigDecimal(i * (i + 1)), mc)).negate(), mc);
             partialSum = partialSum.add(term);
             i += 2;
-        } while (abs(term).compareTo(MAX_ERROR) >= 0);
+        } while (abs(term).compareTo(maxError) >= 0);
 
-        if (abs(partialSum).compareTo(MAX_ERROR) < 0)
+        if (abs(partialSum).compareTo(zeroError) < 0)
         {
             return new BigDecimal("0");
         } else
@@ -306,23 +541,27 @@ public class Math
      *            - the argument.
      * @return the cosine function of the argument.
      */
-    public static BigDecimal cos(BigDecimal argument)
+    public BigDecimal cos(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.cos(argument).round(mc);
+        }
         // Use better reduction for higher numbers.
         if (argument.signum() == -1)
         {
             argument = argument.negate();
         }
 
-        BigDecimal tempArgument = argument.divide((new BigDecimal("2")).multiply(PI, mc), mc);
+        BigDecimal tempArgument = argument.divide((new BigDecimal("2")).multiply(pi, mc), mc);
         argument =
                 (tempArgument.subtract(new BigDecimal(tempArgument.toBigInteger().toString()))).multiply(
-                        (new BigDecimal("2")).multiply(PI, mc), mc);
-        // while (argument.compareTo((new BigDecimal("2")).multiply(PI, mc)) >= 0) {
-        // argument = argument.subtract((new BigDecimal("2")).multiply(PI, mc));
+                        (new BigDecimal("2")).multiply(pi, mc), mc);
+        // while (argument.compareTo((new BigDecimal("2")).multiply(pi, mc)) >= 0) {
+        // argument = argument.subtract((new BigDecimal("2")).multiply(pi, mc));
         // }
         // while (argument.compareTo(new BigDecimal("0")) < 0) {
-        // argument = argument.add((new BigDecimal("2")).multiply(PI, mc));
+        // argument = argument.add((new BigDecimal("2")).multiply(pi, mc));
         // }
 
         BigDecimal argumentSquared = argument.pow(2, mc);
@@ -335,9 +574,9 @@ public class Math
             term = term.multiply((argumentSquared.divide(new BigDecimal(i * (i + 1)), mc)).negate(), mc);
             partialSum = partialSum.add(term);
             i += 2;
-        } while (abs(term).compareTo(MAX_ERROR) >= 0);
+        } while (abs(term).compareTo(maxError) >= 0);
 
-        if (abs(partialSum).compareTo(MAX_ERROR) < 0)
+        if (abs(partialSum).compareTo(zeroError) < 0)
         {
             return new BigDecimal("0");
         } else
@@ -354,8 +593,12 @@ public class Math
      * @return the tangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal tan(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal tan(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.tan(argument).round(mc);
+        }
         BigDecimal tempCos = cos(argument);
         if (tempCos.signum() == 0)
         {
@@ -374,8 +617,12 @@ public class Math
      * @return the secant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal sec(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal sec(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.sec(argument).round(mc);
+        }
         BigDecimal tempCos = cos(argument);
         if (tempCos.signum() == 0)
         {
@@ -394,8 +641,12 @@ public class Math
      * @return the cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal csc(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal csc(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.csc(argument).round(mc);
+        }
         BigDecimal tempSin = sin(argument);
         if (tempSin.signum() == 0)
         {
@@ -414,8 +665,12 @@ public class Math
      * @return the cotangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal cot(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal cot(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.cot(argument).round(mc);
+        }
         BigDecimal tempSin = sin(argument);
         if (tempSin.signum() == 0)
         {
@@ -433,9 +688,13 @@ public class Math
      *            - the argument.
      * @return the sine function of the argument.
      */
-    public static BigDecimal sinDeg(BigDecimal argument)
+    public BigDecimal sinDeg(BigDecimal argument)
     {
-        return sin(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.sinDeg(argument).round(mc);
+        }
+        return sin(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -445,9 +704,13 @@ public class Math
      *            - the argument.
      * @return the cosine function of the argument.
      */
-    public static BigDecimal cosDeg(BigDecimal argument)
+    public BigDecimal cosDeg(BigDecimal argument)
     {
-        return cos(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.cosDeg(argument).round(mc);
+        }
+        return cos(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -458,9 +721,13 @@ public class Math
      * @return the tangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal tanDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal tanDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return tan(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.tanDeg(argument).round(mc);
+        }
+        return tan(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -471,9 +738,13 @@ public class Math
      * @return the secant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal secDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal secDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return sec(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.secDeg(argument).round(mc);
+        }
+        return sec(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -484,9 +755,13 @@ public class Math
      * @return the cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal cscDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal cscDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return csc(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.cscDeg(argument).round(mc);
+        }
+        return csc(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -497,9 +772,13 @@ public class Math
      * @return the cotangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal cotDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal cotDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return cot(DEG_TO_RAD.multiply(argument, mc));
+        if (guarded != null)
+        {
+            return guarded.cotDeg(argument).round(mc);
+        }
+        return cot(degToRad.multiply(argument, mc));
     }
 
     /**
@@ -510,8 +789,12 @@ public class Math
      * @return the arc sine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsin(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsin(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arcsin(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) > 0 || argument.compareTo(new BigDecimal("-1")) < 0)
         {
             throw new CalculatorError(ErrorType.arcsinUndef);
@@ -523,11 +806,11 @@ public class Math
             }
             if (argument.compareTo(new BigDecimal("1")) == 0)
             {
-                return PI.divide(new BigDecimal("2"), mc);
+                return pi.divide(new BigDecimal("2"), mc);
             }
             if (argument.compareTo(new BigDecimal("-1")) == 0)
             {
-                return (PI.divide(new BigDecimal("2"), mc)).negate();
+                return (pi.divide(new BigDecimal("2"), mc)).negate();
             }
             return arctan(argument.divide(sqrt((new BigDecimal("1")).subtract(argument.pow(2, mc))), mc));
         }
@@ -541,14 +824,18 @@ public class Math
      * @return the arc cosine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccos(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccos(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arccos(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) > 0 || argument.compareTo(new BigDecimal("-1")) < 0)
         {
             throw new CalculatorError(ErrorType.arccosUndef);
         } else
         {
-            return (PI.divide(new BigDecimal("2"), mc)).subtract(arcsin(argument));
+            return (pi.divide(new BigDecimal("2"), mc)).subtract(arcsin(argument));
         }
     }
 
@@ -559,8 +846,12 @@ public class Math
      *            - the argument.
      * @return the arc tangent function of the argument.
      */
-    public static BigDecimal arctan(BigDecimal argument)
+    public BigDecimal arctan(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.arctan(argument).round(mc);
+        }
         if (argument.signum() == 0)
         {
             return new BigDecimal("0");
@@ -585,7 +876,7 @@ public class Math
         if (argument.compareTo(new BigDecimal("0.267949192431122706")) > 0)
         {
             argument =
-                    (((SQRT3).multiply(argument, mc)).subtract(new BigDecimal("1"))).divide((SQRT3).add(argument), mc);
+                    (((sqrt3).multiply(argument, mc)).subtract(new BigDecimal("1"))).divide((sqrt3).add(argument), mc);
             greaterThanBound = true;
         }
 
@@ -601,22 +892,22 @@ public class Math
             term = termNumerator.divide(new BigDecimal(i), mc);
             partialSum = partialSum.add(term);
             i += 2;
-        } while (abs(term).compareTo(MAX_ERROR) >= 0);
+        } while (abs(term).compareTo(maxError) >= 0);
 
         BigDecimal result = partialSum;
-        if (abs(result).compareTo(MAX_ERROR) < 0)
+        if (abs(result).compareTo(zeroError) < 0)
         {
             result = new BigDecimal("0");
         }
 
         if (greaterThanBound)
         {
-            result = (PI.divide(new BigDecimal("6"), mc)).add(result);
+            result = (pi.divide(new BigDecimal("6"), mc)).add(result);
         }
 
         if (greaterThanOne)
         {
-            result = (PI.divide(new BigDecimal("2"))).subtract(result);
+            result = (pi.divide(new BigDecimal("2"))).subtract(result);
         }
 
         if (negative)
@@ -635,8 +926,12 @@ public class Math
      * @return the arc secant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsec(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsec(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arcsec(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) < 0 && argument.compareTo(new BigDecimal("-1")) > 0)
         {
             throw new CalculatorError(ErrorType.arcsecUndef);
@@ -654,8 +949,12 @@ public class Math
      * @return the arc cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccsc(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccsc(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arccsc(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) < 0 && argument.compareTo(new BigDecimal("-1")) > 0)
         {
             throw new CalculatorError(ErrorType.arccscUndef);
@@ -672,14 +971,18 @@ public class Math
      *            - the argument.
      * @return the arc cotangent function of the argument.
      */
-    public static BigDecimal arccot(BigDecimal argument)
+    public BigDecimal arccot(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.arccot(argument).round(mc);
+        }
         if (argument.signum() != 0)
         {
             return arctan((new BigDecimal("1")).divide(argument, mc));
         } else
         {
-            return PI.divide(new BigDecimal("2"), mc);
+            return pi.divide(new BigDecimal("2"), mc);
         }
     }
 
@@ -691,9 +994,13 @@ public class Math
      * @return the arc sine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsinDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsinDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return arcsin(argument).divide(DEG_TO_RAD, mc);
+        if (guarded != null)
+        {
+            return guarded.arcsinDeg(argument).round(mc);
+        }
+        return arcsin(argument).divide(degToRad, mc);
     }
 
     /**
@@ -704,9 +1011,13 @@ public class Math
      * @return the arc cosine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccosDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccosDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return arccos(argument).divide(DEG_TO_RAD, mc);
+        if (guarded != null)
+        {
+            return guarded.arccosDeg(argument).round(mc);
+        }
+        return arccos(argument).divide(degToRad, mc);
     }
 
     /**
@@ -716,9 +1027,13 @@ public class Math
      *            - the argument.
      * @return the arc tangent function of the argument.
      */
-    public static BigDecimal arctanDeg(BigDecimal argument)
+    public BigDecimal arctanDeg(BigDecimal argument)
     {
-        return arctan(argument).divide(DEG_TO_RAD, mc);
+        if (guarded != null)
+        {
+            return guarded.arctanDeg(argument).round(mc);
+        }
+        return arctan(argument).divide(degToRad, mc);
     }
 
     /**
@@ -729,9 +1044,13 @@ public class Math
      * @return the arc secant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsecDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsecDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return arcsec(argument).divide(DEG_TO_RAD, mc);
+        if (guarded != null)
+        {
+            return guarded.arcsecDeg(argument).round(mc);
+        }
+        return arcsec(argument).divide(degToRad, mc);
     }
 
     /**
@@ -742,9 +1061,13 @@ public class Math
      * @return the arc cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccscDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccscDeg(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
-        return arccsc(argument).divide(DEG_TO_RAD, mc);
+        if (guarded != null)
+        {
+            return guarded.arccscDeg(argument).round(mc);
+        }
+        return arccsc(argument).divide(degToRad, mc);
     }
 
     /**
@@ -754,11 +1077,15 @@ public class Math
      *            - the argument.
      * @return the arc cotangent function of the argument.
      */
-    public static BigDecimal arccotDeg(BigDecimal argument)
+    public BigDecimal arccotDeg(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.arccotDeg(argument).round(mc);
+        }
         if (argument.signum() != 0)
         {
-            return arccot(argument).divide(DEG_TO_RAD, mc);
+            return arccot(argument).divide(degToRad, mc);
         } else
         {
             return new BigDecimal("90");
@@ -772,8 +1099,12 @@ public class Math
      *            - the argument.
      * @return the hyperbolic sine function of the argument.
      */
-    public static BigDecimal sinh(BigDecimal argument)
+    public BigDecimal sinh(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.sinh(argument).round(mc);
+        }
         BigDecimal tempExp = exp(argument);
         return (tempExp.subtract((new BigDecimal("1")).divide(tempExp, mc)).divide(new BigDecimal("2"), mc));
     }
@@ -785,8 +1116,12 @@ public class Math
      *            - the argument.
      * @return the hyperbolic cosine function of the argument.
      */
-    public static BigDecimal cosh(BigDecimal argument)
+    public BigDecimal cosh(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.cosh(argument).round(mc);
+        }
         BigDecimal tempExp = exp(argument);
         return (tempExp.add((new BigDecimal("1")).divide(tempExp, mc)).divide(new BigDecimal("2"), mc));
     }
@@ -798,8 +1133,12 @@ public class Math
      *            - the argument.
      * @return the hyperbolic tangent function of the argument.
      */
-    public static BigDecimal tanh(BigDecimal argument)
+    public BigDecimal tanh(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.tanh(argument).round(mc);
+        }
         BigDecimal positiveExponential = exp(argument);
         BigDecimal negativeExponential = (new BigDecimal("1")).divide(positiveExponential, mc);
         return (positiveExponential.subtract(negativeExponential)).divide(positiveExponential.add(negativeExponential),
@@ -813,8 +1152,12 @@ public class Math
      *            - the argument.
      * @return the hyperbolic secant function of the argument.
      */
-    public static BigDecimal sech(BigDecimal argument)
+    public BigDecimal sech(BigDecimal argument)
     {
+        if (guarded != null)
+        {
+            return guarded.sech(argument).round(mc);
+        }
         return (new BigDecimal("1")).divide(cosh(argument), mc);
     }
 
@@ -826,8 +1169,12 @@ public class Math
      * @return the hyperbolic cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal csch(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal csch(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.csch(argument).round(mc);
+        }
         if (argument.signum() == 0)
         {
             throw new CalculatorError(ErrorType.cschUndef);
@@ -845,8 +1192,12 @@ public class Math
      * @return the hyperbolic cotangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal coth(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal coth(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.coth(argument).round(mc);
+        }
         if (argument.signum() == 0)
         {
             throw new CalculatorError(ErrorType.cothUndef);
@@ -867,8 +1218,12 @@ public class Math
      * @return the arc hyperbolic sine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsinh(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsinh(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arcsinh(argument).round(mc);
+        }
         return ln(argument.add(sqrt(argument.pow(2, mc).add(new BigDecimal("1")))));
     }
 
@@ -880,8 +1235,12 @@ public class Math
      * @return the arc hyperbolic cosine function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccosh(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccosh(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arccosh(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) < 0)
         {
             throw new CalculatorError(ErrorType.arccoshUndef);
@@ -899,8 +1258,12 @@ public class Math
      * @return the arc hyperbolic tangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arctanh(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arctanh(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arctanh(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) >= 0 || argument.compareTo(new BigDecimal("-1")) <= 0)
         {
             throw new CalculatorError(ErrorType.arctanhUndef);
@@ -919,8 +1282,12 @@ public class Math
      * @return the arc hyperbolic secant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arcsech(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arcsech(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arcsech(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) > 0 || argument.compareTo(new BigDecimal("0")) <= 0)
         {
             throw new CalculatorError(ErrorType.arcsechUndef);
@@ -938,8 +1305,12 @@ public class Math
      * @return the arc hyperbolic cosecant function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccsch(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccsch(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arccsch(argument).round(mc);
+        }
         if (argument.signum() == 0)
         {
             throw new CalculatorError(ErrorType.arccschUndef);
@@ -957,8 +1328,12 @@ public class Math
      * @return the arc hyperbolic cotangent function of the argument.
      * @throws CalculatorError
      */
-    public static BigDecimal arccoth(BigDecimal argument) throws CalculatorError, ArithmeticException
+    public BigDecimal arccoth(BigDecimal argument) throws CalculatorError, ArithmeticException
     {
+        if (guarded != null)
+        {
+            return guarded.arccoth(argument).round(mc);
+        }
         if (argument.compareTo(new BigDecimal("1")) <= 0 && argument.compareTo(new BigDecimal("-1")) >= 0)
         {
             throw new CalculatorError(ErrorType.arccothUndef);
@@ -0,0 +1,244 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The values stored between evaluations by a single user of a calculator engine: the last answer, the memory and their
+ * functional counterparts. A session is not thread-safe and should be confined to one thread, while the engine it is
+ * used with can be shared.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Session
+{
+
+    /**
+     * Initializes the session with zero stored in answer and memory, and no stored functions.
+     */
+    public Session()
+    {
+        answer = new BigDecimal("0");
+        fanswer = " ";
+        memory = new BigDecimal("0");
+        fmemory = " ";
+        integralEvaluations = new AtomicLong();
+        unconvergedIntegrals = new AtomicLong();
+    }
+
+    /**
+     * Returns a new session holding the same answer, memory and stored functions, for use by another thread.
+     * 
+     * @return the copy of the session.
+     */
+    public Session copy()
+    {
+        Session copy = new Session();
+        copy.answer = answer;
+        copy.fanswer = fanswer;
+        copy.memory = memory;
+        copy.fmemory = fmemory;
+        return copy;
+    }
+
+    /**
+     * Sets the value of answer to value.
+     * 
+     * @param value
+     *            - the value to store as answer.
+     */
+    public void setAnswer(BigDecimal value)
+    {
+        answer = value;
+    }
+
+    /**
+     * Returns the current stored answer.
+     * 
+     * @return answer.
+     */
+    public BigDecimal getAnswer()
+    {
+        return answer;
+    }
+
+    /**
+     * Sets the functional answer to value.
+     * 
+     * @param function
+     *            - the functional answer to store as fanswer.
+     */
+    public void setFAnswer(String function)
+    {
+        fanswer = function;
+    }
+
+    /**
+     * Returns the value of the current stored functional answer.
+     * 
+     * @return fanswer.
+     */
+    public String getFAnswer()
+    {
+        return fanswer;
+    }
+
+    /**
+     * Sets the value of memory to value.
+     * 
+     * @param value
+     *            - the value to store in memory.
+     */
+    public void setMemory(BigDecimal value)
+    {
+        memory = value;
+    }
+
+    /**
+     * Returns the value of memory.
+     * 
+     * @return memory.
+     */
+    public BigDecimal getMemory()
+    {
+        return memory;
+    }
+
+    /**
+     * Sets the value of the function memory to function.
+     * 
+     * @param function
+     *            - the function to store in fmemory.
+     */
+    public void setFMemory(String function)
+    {
+        fmemory = function;
+    }
+
+    /**
+     * Returns the value of the function memory.
+     * 
+     * @return fmemory
+     */
+    public String getFMemory()
+    {
+        return fmemory;
+    }
+
+    /**
+     * Returns the number of function evaluations used by the integrals of the last evaluation.
+     * 
+     * @return the number of function evaluations.
+     */
+    public long getIntegralEvaluations()
+    {
+        return integralEvaluations.get();
+    }
+
+    /**
+     * Adds count to the number of function evaluations used by integrals. This may be called by the threads of a
+     * parallel integral.
+     * 
+     * @param count
+     *            - the number of function evaluations.
+     */
+    void addIntegralEvaluations(long count)
+    {
+        integralEvaluations.addAndGet(count);
+    }
+
+    /**
+     * Returns the number of adaptive integrals of the last evaluation which reached the largest number of divisions
+     * before their estimated error met the tolerance. Their values are the last estimates, which may be less accurate
+     * than the tolerance asks.
+     * 
+     * @return the number of integrals which did not converge.
+     */
+    public long getUnconvergedIntegrals()
+    {
+        return unconvergedIntegrals.get();
+    }
+
+    /**
+     * Counts an adaptive integral which did not converge. This may be called by the threads of a parallel evaluation.
+     */
+    void addUnconvergedIntegral()
+    {
+        unconvergedIntegrals.incrementAndGet();
+    }
+
+    /**
+     * Resets the number of function evaluations used by integrals, and of integrals which did not converge, at the
+     * start of an evaluation.
+     */
+    void resetIntegralEvaluations()
+    {
+        integralEvaluations.set(0);
+        unconvergedIntegrals.set(0);
+    }
+
+    /**
+     * Replaces all occurrences of "fans" and "fmem" with the String values fanswer and fmemory. Also makes the String
+     * lower case.
+     * 
+     * @param str
+     *            - the String for which to replace "fans" and "fmem" with their stored values.
+     * 
+     * @return the String in lower case with "fans" and "fmem" replaced with their values.
+     */
+    public String fReplace(String str)
+    {
+        str = Utility.toLowerCase(str);
+        for (int i = 0; i < str.length() - 3; i++)
+        {
+            if (str.charAt(i) == 'f')
+            {
+                String value = null;
+                if (str.substring(i + 1, i + 4).equals("ans"))
+                    value = fanswer;
+                else if (str.substring(i + 1, i + 4).equals("mem"))
+                    value = fmemory;
+                if (value != null)
+                {
+                    StringBuilder temp = new StringBuilder(str);
+                    temp.replace(i, i + 4, value);
+                    str = temp.toString();
+                    // The stored value is not scanned again, so text inside it is never replaced.
+                    i += value.length() - 1;
+                }
+            }
+        }
+        return str;
+    }
+
+    /**
+     * The last answer found.
+     */
+    private BigDecimal answer;
+
+    /**
+     * The last functional answer found.
+     */
+    private String fanswer;
+
+    /**
+     * The value stored in memory.
+     */
+    private BigDecimal memory;
+
+    /**
+     * The functional value stored in memory.
+     */
+    private String fmemory;
+
+    /**
+     * The number of function evaluations used by the integrals of the last evaluation.
+     */
+    private final AtomicLong integralEvaluations;
+
+    /**
+     * The number of adaptive integrals of the last evaluation which did not converge.
+     */
+    private final AtomicLong unconvergedIntegrals;
+}
@@ -0,0 +1,406 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import calculator.ast.Expression;
+
+/**
+ * Computes definite integrals with the tanh-sinh (double exponential) rule. The substitution x = tanh(pi/2 sinh(t))
+ * maps the interval onto the whole real line and makes the integrand decay double exponentially, so the trapezoid rule
+ * in t converges quickly even for integrands with singularities at the limits, such as ln(x) or 1/sqrt(x) from 0. The
+ * step in t is halved, reusing all previous points, until successive estimates agree to within the tolerance times the
+ * larger of 1 and the magnitude of the integral, or until the next level would exceed the maximum number of points,
+ * in which case the integral is counted in the session as not converged.
+ * 
+ * The abscissas and weights do not depend on the integrand, and are computed once for each number of significant
+ * digits and kept for all later integrals. The abscissas are stored as their distance from the nearest limit, so that
+ * points close to a singular limit are not rounded onto it.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class TanhSinh
+{
+
+    /**
+     * The number of times the step is halved before checking for convergence, which prevents early estimates that
+     * agree by chance from being accepted.
+     */
+    static final int MIN_LEVELS = 3;
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit, computed in decimal precision.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param tolerance
+     *            - the error tolerance.
+     * @param maxPoints
+     *            - the largest number of points to evaluate the function at.
+     * @param mc
+     *            - the MathContext applied to all operations.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * @param session
+     *            - the session in which the number of evaluations is recorded.
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    static BigDecimal integrate(Expression function, int slot, BigDecimal lowerLimit, BigDecimal upperLimit,
+            BigDecimal tolerance, int maxPoints, MathContext mc, DecimalEvaluator evaluator, Session session)
+            throws CalculatorError, ArithmeticException
+    {
+        Table table = getTable(mc.getPrecision());
+        BigDecimal halfLength = upperLimit.subtract(lowerLimit).multiply(HALF);
+        BigDecimal h = BigDecimal.ONE;
+        BigDecimal estimate = null;
+        int evaluations = 1;
+        try
+        {
+            BigDecimal sum =
+                    table.centerWeight.multiply(evaluator.evaluateAt(function, slot, lowerLimit.add(halfLength)), mc);
+            for (int level = 0;; level++)
+            {
+                BigDecimal[][] nodes = table.getLevel(level);
+                if (level > 0 && evaluations + 2L * nodes[0].length > maxPoints)
+                {
+                    session.addUnconvergedIntegral();
+                    break;
+                }
+                for (int i = 0; i < nodes[0].length; i++)
+                {
+                    // Points which round onto a limit are skipped, as the integrand may be singular there.
+                    BigDecimal offset = halfLength.multiply(nodes[0][i], mc);
+                    BigDecimal left = lowerLimit.add(offset).round(mc);
+                    if (left.compareTo(lowerLimit) != 0)
+                    {
+                        evaluations++;
+                        sum = sum.add(nodes[1][i].multiply(evaluator.evaluateAt(function, slot, left), mc));
+                    }
+                    BigDecimal right = upperLimit.subtract(offset).round(mc);
+                    if (right.compareTo(upperLimit) != 0)
+                    {
+                        evaluations++;
+                        sum = sum.add(nodes[1][i].multiply(evaluator.evaluateAt(function, slot, right), mc));
+                    }
+                }
+
+                BigDecimal previous = estimate;
+                estimate = sum.multiply(h.multiply(halfLength), mc);
+                if (level >= MIN_LEVELS
+                        && estimate.subtract(previous).abs().compareTo(
+                                tolerance.multiply(estimate.abs().max(BigDecimal.ONE))) <= 0)
+                {
+                    break;
+                }
+                h = h.multiply(HALF);
+            }
+        } finally
+        {
+            session.addIntegralEvaluations(evaluations);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the integral of function from lowerLimit to upperLimit, computed in double precision.
+     * 
+     * @param function
+     *            - the function to be integrated.
+     * @param slot
+     *            - the slot in which the function reads x.
+     * @param lowerLimit
+     *            - the lower limit of integration.
+     * @param upperLimit
+     *            - the upper limit of integration.
+     * @param tolerance
+     *            - the error tolerance.
+     * @param maxPoints
+     *            - the largest number of points to evaluate the function at.
+     * @param evaluator
+     *            - the evaluator used to compute the function.
+     * @param session
+     *            - the session in which the number of evaluations is recorded.
+     * @return the numerical value of the integral.
+     * @throws CalculatorError
+     */
+    static double integrate(Expression function, int slot, double lowerLimit, double upperLimit, double tolerance,
+            int maxPoints, DoubleEvaluator evaluator, Session session) throws CalculatorError
+    {
+        tolerance = java.lang.Math.max(tolerance, DoubleEvaluator.MIN_TOLERANCE);
+        double halfLength = 0.5 * (upperLimit - lowerLimit);
+        double h = 1;
+        double estimate = 0;
+        int evaluations = 1;
+        try
+        {
+            double sum = DOUBLE_TABLE.centerWeight * evaluator.evaluateAt(function, slot, lowerLimit + halfLength);
+            for (int level = 0;; level++)
+            {
+                double[][] nodes = DOUBLE_TABLE.getLevel(level);
+                if (level > 0 && evaluations + 2L * nodes[0].length > maxPoints)
+                {
+                    session.addUnconvergedIntegral();
+                    break;
+                }
+                for (int i = 0; i < nodes[0].length; i++)
+                {
+                    // Points which round onto a limit are skipped, as the integrand may be singular there.
+                    double offset = halfLength * nodes[0][i];
+                    double left = lowerLimit + offset;
+                    if (left != lowerLimit)
+                    {
+                        evaluations++;
+                        sum += nodes[1][i] * evaluator.evaluateAt(function, slot, left);
+                    }
+                    double right = upperLimit - offset;
+                    if (right != upperLimit)
+                    {
+                        evaluations++;
+                        sum += nodes[1][i] * evaluator.evaluateAt(function, slot, right);
+                    }
+                }
+
+                double previous = estimate;
+                estimate = sum * h * halfLength;
+                if (level >= MIN_LEVELS
+                        && java.lang.Math.abs(estimate - previous) <= tolerance
+                                * java.lang.Math.max(1, java.lang.Math.abs(estimate)))
+                {
+                    break;
+                }
+                h *= 0.5;
+            }
+        } finally
+        {
+            session.addIntegralEvaluations(evaluations);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the abscissas and weights computed to digits significant digits, generating them on first use.
+     * 
+     * @param digits
+     *            - the number of significant digits.
+     * @return the table of abscissas and weights.
+     */
+    private static Table getTable(int digits)
+    {
+        return TABLES.computeIfAbsent(digits, Table::new);
+    }
+
+    /**
+     * The abscissas and weights of the tanh-sinh rule in decimal precision, generated one level at a time as they are
+     * needed. Level 0 holds the points t = 1, 2, 3, ..., and level k the points at odd multiples of 2^-k. Each level
+     * stops once the distance of its abscissas from the limits falls below 10^(6 - 2*digits). The points dropped would
+     * change the integral of 1/sqrt(x) by less than 10^(3 - digits), and their square roots would be too small for
+     * the operations of Math to resolve.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class Table
+    {
+
+        /**
+         * Initializes the table to be computed to digits significant digits.
+         * 
+         * @param digits
+         *            - the number of significant digits.
+         */
+        Table(int digits)
+        {
+            math = new Math(digits + GUARD_DIGITS);
+            mc = new MathContext(digits, math.getMathContext().getRoundingMode());
+            threshold = BigDecimal.ONE.scaleByPowerOfTen(6 - 2 * digits);
+            centerWeight = math.getPi().multiply(HALF).round(mc);
+            levels = new ArrayList<BigDecimal[][]>();
+        }
+
+        /**
+         * Returns the distances from the limits, followed by the weights, of the points of a level.
+         * 
+         * @param level
+         *            - the level.
+         * @return the points of the level.
+         */
+        synchronized BigDecimal[][] getLevel(int level)
+        {
+            while (levels.size() <= level)
+            {
+                levels.add(computeLevel(levels.size()));
+            }
+            return levels.get(level);
+        }
+
+        /**
+         * Computes the points of a level.
+         * 
+         * @param level
+         *            - the level.
+         * @return the distances from the limits, followed by the weights, of the points of the level.
+         */
+        private BigDecimal[][] computeLevel(int level)
+        {
+            MathContext mcWorking = math.getMathContext();
+            BigDecimal pi = math.getPi();
+            BigDecimal two = new BigDecimal("2");
+            BigDecimal h = BigDecimal.ONE.divide(two.pow(level));
+            List<BigDecimal> complements = new ArrayList<BigDecimal>();
+            List<BigDecimal> weights = new ArrayList<BigDecimal>();
+            for (int k = 1;; k += level == 0 ? 1 : 2)
+            {
+                BigDecimal t = h.multiply(new BigDecimal(k));
+                // With u = pi/2 sinh(t), 1 - tanh(u) = 2/(e^(2u) + 1), and the weight pi/2 cosh(t)/cosh(u)^2 is
+                // pi cosh(t) times that distance times 1 minus half of it.
+                BigDecimal exponential = math.exp(pi.multiply(math.sinh(t), mcWorking));
+                BigDecimal complement = two.divide(exponential.add(BigDecimal.ONE), mcWorking);
+                if (complement.compareTo(threshold) < 0)
+                {
+                    break;
+                }
+                BigDecimal weight =
+                        pi.multiply(math.cosh(t), mcWorking).multiply(complement, mcWorking)
+                                .multiply(BigDecimal.ONE.subtract(complement.multiply(HALF)), mcWorking);
+                complements.add(complement.round(mc));
+                weights.add(weight.round(mc));
+            }
+            return new BigDecimal[][] { complements.toArray(new BigDecimal[0]), weights.toArray(new BigDecimal[0]) };
+        }
+
+        /**
+         * The operations used to generate the table, with GUARD_DIGITS extra digits.
+         */
+        private final Math math;
+
+        /**
+         * The MathContext the abscissas and weights are rounded to.
+         */
+        private final MathContext mc;
+
+        /**
+         * The distance from the limits below which points are dropped.
+         */
+        private final BigDecimal threshold;
+
+        /**
+         * The weight of the center of the interval.
+         */
+        private final BigDecimal centerWeight;
+
+        /**
+         * The levels generated so far.
+         */
+        private final List<BigDecimal[][]> levels;
+    }
+
+    /**
+     * The abscissas and weights of the tanh-sinh rule in double precision, organized by level as in Table.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class DoubleTable
+    {
+
+        /**
+         * Initializes an empty table.
+         */
+        DoubleTable()
+        {
+            centerWeight = java.lang.Math.PI / 2;
+            levels = new ArrayList<double[][]>();
+        }
+
+        /**
+         * Returns the distances from the limits, followed by the weights, of the points of a level.
+         * 
+         * @param level
+         *            - the level.
+         * @return the points of the level.
+         */
+        synchronized double[][] getLevel(int level)
+        {
+            while (levels.size() <= level)
+            {
+                levels.add(computeLevel(levels.size()));
+            }
+            return levels.get(level);
+        }
+
+        /**
+         * Computes the points of a level.
+         * 
+         * @param level
+         *            - the level.
+         * @return the distances from the limits, followed by the weights, of the points of the level.
+         */
+        private double[][] computeLevel(int level)
+        {
+            double h = java.lang.Math.scalb(1.0, -level);
+            List<double[]> points = new ArrayList<double[]>();
+            for (int k = 1;; k += level == 0 ? 1 : 2)
+            {
+                double t = k * h;
+                double complement = 2 / (java.lang.Math.exp(java.lang.Math.PI * java.lang.Math.sinh(t)) + 1);
+                if (complement < DOUBLE_THRESHOLD)
+                {
+                    break;
+                }
+                double weight = java.lang.Math.PI * java.lang.Math.cosh(t) * complement * (1 - 0.5 * complement);
+                points.add(new double[] { complement, weight });
+            }
+            double[][] nodes = new double[2][points.size()];
+            for (int i = 0; i < points.size(); i++)
+            {
+                nodes[0][i] = points.get(i)[0];
+                nodes[1][i] = points.get(i)[1];
+            }
+            return nodes;
+        }
+
+        /**
+         * The weight of the center of the interval.
+         */
+        private final double centerWeight;
+
+        /**
+         * The levels generated so far.
+         */
+        private final List<double[][]> levels;
+    }
+
+    /**
+     * The number of extra digits the abscissas and weights are generated with.
+     */
+    private static final int GUARD_DIGITS = 10;
+
+    /**
+     * The distance from the limits below which points are dropped in double precision, the square of the double
+     * precision machine epsilon.
+     */
+    private static final double DOUBLE_THRESHOLD = 1e-32;
+
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+
+    /**
+     * The tables generated so far in decimal precision, by number of significant digits.
+     */
+    private static final ConcurrentHashMap<Integer, Table> TABLES = new ConcurrentHashMap<Integer, Table>();
+
+    /**
+     * The table used in double precision.
+     */
+    private static final DoubleTable DOUBLE_TABLE = new DoubleTable();
+}
@@ -23,18 +23,18 @@ public class Utility
      */
     public static String toLowerCase(String str)
     {
-        String strLowerCase = "";
+        StringBuilder strLowerCase = new StringBuilder(str.length());
         for (int i = 0; i < str.length(); i++)
         {
             if (str.charAt(i) != '\u03A0' && str.charAt(i) != '\u03A3')
             {
-                strLowerCase += str.substring(i, i + 1).toLowerCase();
+                strLowerCase.append(Character.toLowerCase(str.charAt(i)));
             } else
             {
-                strLowerCase += str.substring(i, i + 1);
+                strLowerCase.append(str.charAt(i));
             }
         }
-        return strLowerCase;
+        return strLowerCase.toString();
     }
 
     /**
@@ -271,7 +271,8 @@ public class Utility
      * Adds the '*' character where implicit multiplication occurs in the String.
      * 
      * The 'e' character is special due to its usage in exponential notation, and so implicit multiplication should be
-     * avoided with this character.
+     * avoided with this character. The name "exp(" is also kept whole, since its 'e' and 'x' would otherwise be split
+     * into separate factors.
      * 
      * @param str
      *            - the String for which to make implicit multiplication explicit.
@@ -283,6 +284,17 @@ public class Utility
 
         for (int i = 0; i < result.length(); i++)
         {
+            if (i + 4 <= result.length() && result.substring(i, i + 4).equals("exp(")
+                    && (i == 0 || !isActualLetter(result.charAt(i - 1))))
+            {
+                if (i > 0 && (result.charAt(i - 1) == ')' || isActualNum(result.charAt(i - 1))))
+                {
+                    result.insert(i, '*');
+                    i++;
+                }
+                i += 3;
+                continue;
+            }
             if (isActualLetter(result.charAt(i)) || result.charAt(i) == '(' || isSpecialLeft(result.charAt(i)))
             {
                 if (i > 0 && (result.charAt(i - 1) == ')' || isActualNum(result.charAt(i - 1))))
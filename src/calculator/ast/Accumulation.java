@@ -0,0 +1,135 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * A definite integral, sum or product of a function of x between two limits. The function reads x from the slot
+ * bound by this operation, while the limits read x from the enclosing slot.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Accumulation extends Expression
+{
+
+    /**
+     * The operations that accumulate a function over a range of x.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    public static enum Kind
+    {
+        integral, sum, product
+    }
+
+    /**
+     * Initializes the accumulation of function from lowerLimit to upperLimit.
+     * 
+     * @param kind
+     *            - the operation to apply.
+     * @param function
+     *            - the function of x.
+     * @param slot
+     *            - the slot in which x is bound while evaluating function.
+     * @param lowerLimit
+     *            - the lower limit.
+     * @param upperLimit
+     *            - the upper limit.
+     */
+    public Accumulation(Kind kind, Expression function, int slot, Expression lowerLimit, Expression upperLimit)
+    {
+        this.kind = kind;
+        this.function = function;
+        this.slot = slot;
+        this.lowerLimit = lowerLimit;
+        this.upperLimit = upperLimit;
+    }
+
+    /**
+     * Returns the operation to apply.
+     * 
+     * @return kind.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Returns the function of x.
+     * 
+     * @return function.
+     */
+    public Expression getFunction()
+    {
+        return function;
+    }
+
+    /**
+     * Returns the slot in which x is bound while evaluating the function.
+     * 
+     * @return slot.
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    /**
+     * Returns the lower limit.
+     * 
+     * @return lowerLimit.
+     */
+    public Expression getLowerLimit()
+    {
+        return lowerLimit;
+    }
+
+    /**
+     * Returns the upper limit.
+     * 
+     * @return upperLimit.
+     */
+    public Expression getUpperLimit()
+    {
+        return upperLimit;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitAccumulation(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitAccumulation(this);
+    }
+
+    /**
+     * The operation to apply.
+     */
+    private final Kind kind;
+
+    /**
+     * The function of x.
+     */
+    private final Expression function;
+
+    /**
+     * The slot in which x is bound while evaluating the function.
+     */
+    private final int slot;
+
+    /**
+     * The lower limit.
+     */
+    private final Expression lowerLimit;
+
+    /**
+     * The upper limit.
+     */
+    private final Expression upperLimit;
+}
@@ -0,0 +1,98 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * One of the arithmetic operators applied to two operands.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class BinaryOperation extends Expression
+{
+
+    /**
+     * The arithmetic operators.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    public static enum Operator
+    {
+        add, subtract, multiply, divide, power, modulo
+    }
+
+    /**
+     * Initializes the operation left operator right.
+     * 
+     * @param operator
+     *            - the operator to apply.
+     * @param left
+     *            - the left operand.
+     * @param right
+     *            - the right operand.
+     */
+    public BinaryOperation(Operator operator, Expression left, Expression right)
+    {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Returns the operator.
+     * 
+     * @return operator.
+     */
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * Returns the left operand.
+     * 
+     * @return left.
+     */
+    public Expression getLeft()
+    {
+        return left;
+    }
+
+    /**
+     * Returns the right operand.
+     * 
+     * @return right.
+     */
+    public Expression getRight()
+    {
+        return right;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitBinaryOperation(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitBinaryOperation(this);
+    }
+
+    /**
+     * The operator to apply.
+     */
+    private final Operator operator;
+
+    /**
+     * The left operand.
+     */
+    private final Expression left;
+
+    /**
+     * The right operand.
+     */
+    private final Expression right;
+}
@@ -0,0 +1,62 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * A named value such as e or pi, or one of the values stored by the calculator such as ans.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Constant extends Expression
+{
+
+    /**
+     * The names that can be used for constants.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    public static enum Name
+    {
+        e, pi, ans, mem
+    }
+
+    /**
+     * Initializes the constant with name.
+     * 
+     * @param name
+     *            - the name of the constant.
+     */
+    public Constant(Name name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the constant.
+     * 
+     * @return name.
+     */
+    public Name getName()
+    {
+        return name;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitConstant(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitConstant(this);
+    }
+
+    /**
+     * The name of the constant.
+     */
+    private final Name name;
+}
@@ -0,0 +1,31 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * An operation applied to the nodes of an expression tree that produces a primitive double, such as its evaluation in
+ * double precision. It is separate from Visitor so that the results are not boxed at every node.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public interface DoubleVisitor
+{
+    public double visitNumber(NumberLiteral node) throws CalculatorError;
+
+    public double visitConstant(Constant node) throws CalculatorError;
+
+    public double visitVariable(Variable node) throws CalculatorError;
+
+    public double visitNegation(Negation node) throws CalculatorError;
+
+    public double visitBinaryOperation(BinaryOperation node) throws CalculatorError;
+
+    public double visitFunctionCall(FunctionCall node) throws CalculatorError;
+
+    public double visitAccumulation(Accumulation node) throws CalculatorError;
+
+    public double visitRandom(RandomNumber node) throws CalculatorError;
+
+    public double visitTemporary(Temporary node) throws CalculatorError;
+}
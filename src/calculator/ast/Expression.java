@@ -0,0 +1,34 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * A node of an immutable expression tree produced by Parser.compile(String). A compiled tree can be evaluated any
+ * number of times without scanning the original String again.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public abstract class Expression
+{
+
+    /**
+     * Passes this node to the matching method of the visitor.
+     * 
+     * @param visitor
+     *            - the visitor to apply to this node.
+     * @return the value returned by the visitor.
+     * @throws CalculatorError
+     */
+    public abstract <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException;
+
+    /**
+     * Passes this node to the matching method of a visitor that produces primitive doubles.
+     * 
+     * @param visitor
+     *            - the visitor to apply to this node.
+     * @return the value returned by the visitor.
+     * @throws CalculatorError
+     */
+    public abstract double accept(DoubleVisitor visitor) throws CalculatorError;
+}
@@ -0,0 +1,439 @@
+package calculator.ast;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import calculator.CalculatorError;
+
+/**
+ * A group of functions of x which are evaluated together, such as the curves of a graph. The subexpressions the
+ * functions have in common, or which occur more than once in one of them, are found by merging equal subtrees, and
+ * those whose value is fixed once x is are replaced by Temporary nodes. An evaluator which keeps the values of the
+ * temporaries then evaluates each of them once per value of x, however many functions use it. Subexpressions which
+ * read the x of an integral, sum or product, or which call rand, are never shared.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class ExpressionGroup
+{
+
+    /**
+     * Initializes the group of functions.
+     * 
+     * @param functions
+     *            - the compiled functions, which are left unchanged.
+     * @throws CalculatorError
+     */
+    public ExpressionGroup(List<Expression> functions) throws CalculatorError
+    {
+        Merger merger = new Merger();
+        Expression[] merged = new Expression[functions.size()];
+        for (int i = 0; i < merged.length; i++)
+        {
+            merged[i] = functions.get(i).accept(merger);
+            merger.use(merged[i]);
+        }
+        Rewriter rewriter = new Rewriter(merger);
+        this.functions = new Expression[merged.length];
+        for (int i = 0; i < merged.length; i++)
+        {
+            this.functions[i] = merged[i].accept(rewriter);
+        }
+        this.temporaries = rewriter.temporaries;
+    }
+
+    /**
+     * Returns the number of functions in the group.
+     * 
+     * @return the number of functions.
+     */
+    public int size()
+    {
+        return functions.length;
+    }
+
+    /**
+     * Returns a function of the group, in which the shared subexpressions are temporaries.
+     * 
+     * @param i
+     *            - the index of the function.
+     * @return function i.
+     */
+    public Expression getFunction(int i)
+    {
+        return functions[i];
+    }
+
+    /**
+     * Returns the number of temporaries used by the functions of the group, which are numbered from 0.
+     * 
+     * @return the number of temporaries.
+     */
+    public int getTemporaryCount()
+    {
+        return temporaries;
+    }
+
+    /**
+     * The functions, in which the shared subexpressions are temporaries.
+     */
+    private final Expression[] functions;
+
+    /**
+     * The number of temporaries.
+     */
+    private final int temporaries;
+
+    /**
+     * Rebuilds expression trees so that equal subtrees are the same node. Each node is identified by a key made of its
+     * type, its fields and the identifiers of its children, so equal subtrees are found bottom up in a single pass.
+     * The merger also counts the uses of each node and records which of them are fixed once x is.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class Merger implements Visitor<Expression>
+    {
+
+        @Override
+        public Expression visitNumber(NumberLiteral node)
+        {
+            return merge("n" + node.getValue(), node, FIXED);
+        }
+
+        @Override
+        public Expression visitConstant(Constant node)
+        {
+            return merge("c" + node.getName(), node, FIXED);
+        }
+
+        @Override
+        public Expression visitVariable(Variable node)
+        {
+            return merge("v" + node.getSlot(), node, node.getSlot() < 63 ? 1L << node.getSlot() : UNFIXED);
+        }
+
+        @Override
+        public Expression visitNegation(Negation node) throws CalculatorError, ArithmeticException
+        {
+            Expression operand = node.getOperand().accept(this);
+            String key = "-" + ids.get(operand);
+            if (!nodes.containsKey(key))
+            {
+                node = operand == node.getOperand() ? node : new Negation(operand);
+                use(operand);
+            }
+            return merge(key, node, slots.get(operand));
+        }
+
+        @Override
+        public Expression visitBinaryOperation(BinaryOperation node) throws CalculatorError, ArithmeticException
+        {
+            Expression left = node.getLeft().accept(this);
+            Expression right = node.getRight().accept(this);
+            String key = "b" + node.getOperator() + ":" + ids.get(left) + "," + ids.get(right);
+            if (!nodes.containsKey(key))
+            {
+                node =
+                        left == node.getLeft() && right == node.getRight() ? node : new BinaryOperation(
+                                node.getOperator(), left, right);
+                use(left);
+                use(right);
+            }
+            return merge(key, node, slots.get(left) | slots.get(right));
+        }
+
+        @Override
+        public Expression visitFunctionCall(FunctionCall node) throws CalculatorError, ArithmeticException
+        {
+            Expression argument = node.getArgument().accept(this);
+            String key = "f" + node.getFunction() + ":" + ids.get(argument);
+            if (!nodes.containsKey(key))
+            {
+                node = argument == node.getArgument() ? node : new FunctionCall(node.getFunction(), argument);
+                use(argument);
+            }
+            return merge(key, node, slots.get(argument));
+        }
+
+        @Override
+        public Expression visitAccumulation(Accumulation node) throws CalculatorError, ArithmeticException
+        {
+            Expression function = node.getFunction().accept(this);
+            Expression lowerLimit = node.getLowerLimit().accept(this);
+            Expression upperLimit = node.getUpperLimit().accept(this);
+            String key =
+                    "a" + node.getKind() + ":" + node.getSlot() + ":" + ids.get(function) + "," + ids.get(lowerLimit)
+                            + "," + ids.get(upperLimit);
+            if (!nodes.containsKey(key))
+            {
+                node =
+                        function == node.getFunction() && lowerLimit == node.getLowerLimit()
+                                && upperLimit == node.getUpperLimit() ? node : new Accumulation(node.getKind(),
+                                function, node.getSlot(), lowerLimit, upperLimit);
+                use(function);
+                use(lowerLimit);
+                use(upperLimit);
+            }
+
+            // The function reads x from the slot bound by the accumulation, which is not read by the result.
+            long functionSlots = slots.get(function);
+            if (node.getSlot() < 63)
+            {
+                functionSlots &= ~(1L << node.getSlot());
+            }
+            return merge(key, node, functionSlots | slots.get(lowerLimit) | slots.get(upperLimit));
+        }
+
+        @Override
+        public Expression visitRandom(RandomNumber node) throws CalculatorError, ArithmeticException
+        {
+            // Each call to rand gives a different number, so no two calls are merged.
+            if (node.getBound() != null)
+            {
+                Expression bound = node.getBound().accept(this);
+                node = bound == node.getBound() ? node : new RandomNumber(bound);
+                use(bound);
+            }
+            return merge("r" + ids.size(), node, UNFIXED);
+        }
+
+        @Override
+        public Expression visitTemporary(Temporary node) throws CalculatorError, ArithmeticException
+        {
+            return node.getExpression().accept(this);
+        }
+
+        /**
+         * Counts a use of a merged node.
+         * 
+         * @param node
+         *            - the node.
+         */
+        void use(Expression node)
+        {
+            uses.put(node, uses.get(node) + 1);
+        }
+
+        /**
+         * Returns the merged node with key, which is node if there is none yet.
+         * 
+         * @param key
+         *            - the key of the node.
+         * @param node
+         *            - the node, whose children are merged.
+         * @param nodeSlots
+         *            - the slots read by the node, as a mask of bits.
+         * @return the merged node.
+         */
+        private Expression merge(String key, Expression node, long nodeSlots)
+        {
+            Expression merged = nodes.get(key);
+            if (merged == null)
+            {
+                merged = node;
+                nodes.put(key, merged);
+                ids.put(merged, ids.size());
+                uses.put(merged, 0);
+                slots.put(merged, nodeSlots);
+            }
+            return merged;
+        }
+
+        /**
+         * The mask of the slots read by nodes which read no slot.
+         */
+        private static final long FIXED = 0;
+
+        /**
+         * The mask of the slots read by nodes which are never fixed.
+         */
+        private static final long UNFIXED = -1;
+
+        /**
+         * The merged nodes by key.
+         */
+        private final Map<String, Expression> nodes = new HashMap<String, Expression>();
+
+        /**
+         * The identifiers of the merged nodes.
+         */
+        private final Map<Expression, Integer> ids = new IdentityHashMap<Expression, Integer>();
+
+        /**
+         * The number of uses of each merged node.
+         */
+        private final Map<Expression, Integer> uses = new IdentityHashMap<Expression, Integer>();
+
+        /**
+         * The slots read by each merged node, as a mask of bits.
+         */
+        private final Map<Expression, Long> slots = new IdentityHashMap<Expression, Long>();
+    }
+
+    /**
+     * Rebuilds merged expression trees with the nodes used more than once replaced by temporaries, as long as they
+     * only read x from slot 0 and are not leaves, which are as cheap to evaluate as to look up.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    private static class Rewriter implements Visitor<Expression>
+    {
+
+        /**
+         * Initializes the rewriter for the nodes of merger.
+         * 
+         * @param merger
+         *            - the merger which merged the trees.
+         */
+        Rewriter(Merger merger)
+        {
+            this.merger = merger;
+        }
+
+        @Override
+        public Expression visitNumber(NumberLiteral node)
+        {
+            return node;
+        }
+
+        @Override
+        public Expression visitConstant(Constant node)
+        {
+            return node;
+        }
+
+        @Override
+        public Expression visitVariable(Variable node)
+        {
+            return node;
+        }
+
+        @Override
+        public Expression visitNegation(Negation node) throws CalculatorError, ArithmeticException
+        {
+            Expression rewritten = rewritten(node);
+            if (rewritten == null)
+            {
+                Expression operand = node.getOperand().accept(this);
+                rewritten = share(node, operand == node.getOperand() ? node : new Negation(operand));
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Expression visitBinaryOperation(BinaryOperation node) throws CalculatorError, ArithmeticException
+        {
+            Expression rewritten = rewritten(node);
+            if (rewritten == null)
+            {
+                Expression left = node.getLeft().accept(this);
+                Expression right = node.getRight().accept(this);
+                rewritten =
+                        share(node, left == node.getLeft() && right == node.getRight() ? node : new BinaryOperation(
+                                node.getOperator(), left, right));
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Expression visitFunctionCall(FunctionCall node) throws CalculatorError, ArithmeticException
+        {
+            Expression rewritten = rewritten(node);
+            if (rewritten == null)
+            {
+                Expression argument = node.getArgument().accept(this);
+                rewritten =
+                        share(node, argument == node.getArgument() ? node : new FunctionCall(node.getFunction(),
+                                argument));
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Expression visitAccumulation(Accumulation node) throws CalculatorError, ArithmeticException
+        {
+            Expression rewritten = rewritten(node);
+            if (rewritten == null)
+            {
+                Expression function = node.getFunction().accept(this);
+                Expression lowerLimit = node.getLowerLimit().accept(this);
+                Expression upperLimit = node.getUpperLimit().accept(this);
+                rewritten =
+                        share(node, function == node.getFunction() && lowerLimit == node.getLowerLimit()
+                                && upperLimit == node.getUpperLimit() ? node : new Accumulation(node.getKind(),
+                                function, node.getSlot(), lowerLimit, upperLimit));
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Expression visitRandom(RandomNumber node) throws CalculatorError, ArithmeticException
+        {
+            Expression rewritten = rewritten(node);
+            if (rewritten == null)
+            {
+                Expression bound = node.getBound() == null ? null : node.getBound().accept(this);
+                rewritten = share(node, bound == node.getBound() ? node : new RandomNumber(bound));
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Expression visitTemporary(Temporary node)
+        {
+            return node;
+        }
+
+        /**
+         * Returns the rewritten form of a merged node, or null if it has not been rewritten yet.
+         * 
+         * @param node
+         *            - the merged node.
+         * @return the rewritten node.
+         */
+        private Expression rewritten(Expression node)
+        {
+            return rewritten.get(node);
+        }
+
+        /**
+         * Records the rewritten form of a merged node, replacing it by a temporary if it is shared.
+         * 
+         * @param node
+         *            - the merged node.
+         * @param rebuilt
+         *            - the node rebuilt from the rewritten children.
+         * @return the rewritten node.
+         */
+        private Expression share(Expression node, Expression rebuilt)
+        {
+            Expression result = rebuilt;
+            if (merger.uses.get(node) > 1 && (merger.slots.get(node) & ~1L) == 0)
+            {
+                result = new Temporary(temporaries++, rebuilt);
+            }
+            rewritten.put(node, result);
+            return result;
+        }
+
+        /**
+         * The merger which merged the trees.
+         */
+        private final Merger merger;
+
+        /**
+         * The rewritten form of each merged node.
+         */
+        private final Map<Expression, Expression> rewritten = new IdentityHashMap<Expression, Expression>();
+
+        /**
+         * The number of temporaries created.
+         */
+        private int temporaries;
+    }
+}
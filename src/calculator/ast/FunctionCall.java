@@ -0,0 +1,81 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * One of the predefined functions of a single argument, such as sin(x) or ln(x).
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class FunctionCall extends Expression
+{
+
+    /**
+     * The predefined functions of a single argument.
+     * 
+     * @author Andrei Purcarus
+     *
+     */
+    public static enum Function
+    {
+        sin, cos, tan, sec, csc, cot, exp, ln, abs, arcsin, arccos, arctan, arcsec, arccsc, arccot, sinh, cosh, tanh,
+        sech, csch, coth, arcsinh, arccosh, arctanh, arcsech, arccsch, arccoth, sqrt
+    }
+
+    /**
+     * Initializes the call of function on argument.
+     * 
+     * @param function
+     *            - the function to call.
+     * @param argument
+     *            - the argument of the function.
+     */
+    public FunctionCall(Function function, Expression argument)
+    {
+        this.function = function;
+        this.argument = argument;
+    }
+
+    /**
+     * Returns the function to call.
+     * 
+     * @return function.
+     */
+    public Function getFunction()
+    {
+        return function;
+    }
+
+    /**
+     * Returns the argument of the function.
+     * 
+     * @return argument.
+     */
+    public Expression getArgument()
+    {
+        return argument;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitFunctionCall(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitFunctionCall(this);
+    }
+
+    /**
+     * The function to call.
+     */
+    private final Function function;
+
+    /**
+     * The argument of the function.
+     */
+    private final Expression argument;
+}
@@ -0,0 +1,51 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * The negation of an operand, written with a leading '-'.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Negation extends Expression
+{
+
+    /**
+     * Initializes the negation of operand.
+     * 
+     * @param operand
+     *            - the expression to negate.
+     */
+    public Negation(Expression operand)
+    {
+        this.operand = operand;
+    }
+
+    /**
+     * Returns the negated expression.
+     * 
+     * @return operand.
+     */
+    public Expression getOperand()
+    {
+        return operand;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitNegation(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitNegation(this);
+    }
+
+    /**
+     * The negated expression.
+     */
+    private final Expression operand;
+}
@@ -0,0 +1,69 @@
+package calculator.ast;
+
+import java.math.BigDecimal;
+
+import calculator.CalculatorError;
+
+/**
+ * A number written out in the expression, such as 2, 0.5 or 1.5e-3.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class NumberLiteral extends Expression
+{
+
+    /**
+     * Initializes the literal with value.
+     * 
+     * @param value
+     *            - the value of the literal.
+     */
+    public NumberLiteral(BigDecimal value)
+    {
+        this.value = value;
+        this.doubleValue = value.doubleValue();
+    }
+
+    /**
+     * Returns the value of the literal.
+     * 
+     * @return value.
+     */
+    public BigDecimal getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Returns the value of the literal rounded to a double.
+     * 
+     * @return doubleValue.
+     */
+    public double getDoubleValue()
+    {
+        return doubleValue;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitNumber(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitNumber(this);
+    }
+
+    /**
+     * The value of the literal.
+     */
+    private final BigDecimal value;
+
+    /**
+     * The value of the literal rounded to a double.
+     */
+    private final double doubleValue;
+}
@@ -0,0 +1,424 @@
+package calculator.ast;
+
+import java.math.BigDecimal;
+
+import calculator.CalculatorError;
+import calculator.ErrorType;
+import calculator.Utility;
+
+/**
+ * A single pass recursive descent parser that compiles a String into an expression tree.
+ * 
+ * The grammar follows the evaluation order of the calculator, from the loosest binding operator to the tightest: '+',
+ * '-', '*', '/', '^' and '%'. Products group to the right and all other operators group to the left. A leading '-'
+ * negates the product that follows it, and a leading '+' leaves it unchanged.
+ * 
+ * @author Andrei Purcarus
+ * 
+ */
+public class Parser
+{
+
+    /**
+     * Compiles the expression stored in the String into an expression tree.
+     * 
+     * @param str
+     *            - the String containing an expression to be compiled.
+     * @return the root of the expression tree.
+     * @throws CalculatorError
+     */
+    public static Expression compile(String str) throws CalculatorError
+    {
+        if (Utility.isAllBrackets(str))
+        {
+            throw new CalculatorError(ErrorType.missingArg);
+        } else if (!Utility.checkBracketPairs(str))
+        {
+            throw new CalculatorError(ErrorType.bracketMismatch);
+        }
+        Parser parser = new Parser(str);
+        Expression result = parser.parseSum();
+        if (parser.position < str.length())
+        {
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+        return result;
+    }
+
+    /**
+     * Initializes the parser at the start of str.
+     * 
+     * @param str
+     *            - the String to be parsed.
+     */
+    private Parser(String str)
+    {
+        this.str = str;
+        this.position = 0;
+        this.depth = 0;
+    }
+
+    /**
+     * The String being parsed.
+     */
+    private final String str;
+
+    /**
+     * The position of the next character to be read.
+     */
+    private int position;
+
+    /**
+     * The number of integrals, sums and products enclosing the current position, which is also the slot in which x
+     * is currently bound.
+     */
+    private int depth;
+
+    /**
+     * Parses a sum of differences.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseSum() throws CalculatorError
+    {
+        Expression left = parseDifference();
+        if (accept('+'))
+        {
+            return new BinaryOperation(BinaryOperation.Operator.add, left, parseSum());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a difference of products, with an optional leading sign.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseDifference() throws CalculatorError
+    {
+        Expression left;
+        if (accept('-'))
+        {
+            left = new Negation(parseProduct());
+        } else
+        {
+            accept('+');
+            left = parseProduct();
+        }
+        while (accept('-'))
+        {
+            left = new BinaryOperation(BinaryOperation.Operator.subtract, left, parseProduct());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a product of quotients.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseProduct() throws CalculatorError
+    {
+        Expression left = parseQuotient();
+        if (accept('*'))
+        {
+            return new BinaryOperation(BinaryOperation.Operator.multiply, left, parseProduct());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a quotient of powers.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseQuotient() throws CalculatorError
+    {
+        Expression left = parsePower();
+        while (accept('/'))
+        {
+            left = new BinaryOperation(BinaryOperation.Operator.divide, left, parsePower());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a power of modulo operations.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parsePower() throws CalculatorError
+    {
+        Expression left = parseModulo();
+        while (accept('^'))
+        {
+            left = new BinaryOperation(BinaryOperation.Operator.power, left, parseModulo());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a modulo operation of primary expressions.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseModulo() throws CalculatorError
+    {
+        Expression left = parsePrimary();
+        while (accept('%'))
+        {
+            left = new BinaryOperation(BinaryOperation.Operator.modulo, left, parsePrimary());
+        }
+        return left;
+    }
+
+    /**
+     * Parses a bracketed expression, a number, a constant or a function call.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parsePrimary() throws CalculatorError
+    {
+        if (position == str.length())
+        {
+            throw new CalculatorError(ErrorType.missingArg);
+        }
+        char character = str.charAt(position);
+        if (character == '+' || character == '-' || character == '*' || character == '/' || character == '^'
+                || character == '%' || character == ')' || character == ',')
+        {
+            throw new CalculatorError(ErrorType.missingArg);
+        } else if (character == '(')
+        {
+            position++;
+            Expression result = parseSum();
+            expect(')', ErrorType.functionUndef);
+            return result;
+        } else if (Utility.isActualNum(character))
+        {
+            return parseNumber();
+        } else
+        {
+            return parseName();
+        }
+    }
+
+    /**
+     * Parses a number, including any exponential notation.
+     * 
+     * @return the parsed number.
+     * @throws CalculatorError
+     */
+    private Expression parseNumber() throws CalculatorError
+    {
+        int start = position;
+        while (position < str.length() && Utility.isActualNum(str.charAt(position)))
+        {
+            position++;
+        }
+        if (position + 1 < str.length() && (str.charAt(position) == 'e' || str.charAt(position) == 'E'))
+        {
+            int exponent = position + 1;
+            if ((str.charAt(exponent) == '+' || str.charAt(exponent) == '-') && exponent + 1 < str.length())
+            {
+                exponent++;
+            }
+            if (isDigit(str.charAt(exponent)))
+            {
+                position = exponent;
+                while (position < str.length() && isDigit(str.charAt(position)))
+                {
+                    position++;
+                }
+            }
+        }
+        try
+        {
+            return new NumberLiteral(new BigDecimal(str.substring(start, position)));
+        } catch (NumberFormatException e)
+        {
+            throw new CalculatorError(ErrorType.functionUndef);
+        }
+    }
+
+    /**
+     * Parses a constant or a function call.
+     * 
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseName() throws CalculatorError
+    {
+        String name = readName();
+        if (name.equals("e"))
+        {
+            return new Constant(Constant.Name.e);
+        } else if (name.equals("pi") || name.equals("\u03C0"))
+        {
+            return new Constant(Constant.Name.pi);
+        } else if (name.equals("ans"))
+        {
+            return new Constant(Constant.Name.ans);
+        } else if (name.equals("mem"))
+        {
+            return new Constant(Constant.Name.mem);
+        } else if (name.equals("x"))
+        {
+            return new Variable(depth);
+        } else if (name.equals("rand"))
+        {
+            expect('(', ErrorType.functionUndef);
+            if (accept(')'))
+            {
+                return new RandomNumber(null);
+            }
+            Expression bound = parseSum();
+            expect(')', ErrorType.invalidRandParameters);
+            return new RandomNumber(bound);
+        } else if (name.equals("\u222B") || name.equals("integral"))
+        {
+            return parseAccumulation(Accumulation.Kind.integral, ErrorType.invalidIntegralParameters);
+        } else if (name.equals("\u03A3") || name.equals("sum"))
+        {
+            return parseAccumulation(Accumulation.Kind.sum, ErrorType.invalidSumParameters);
+        } else if (name.equals("\u03A0") || name.equals("product"))
+        {
+            return parseAccumulation(Accumulation.Kind.product, ErrorType.invalidProductParameters);
+        }
+
+        FunctionCall.Function function;
+        if (name.equals("\u221A"))
+        {
+            function = FunctionCall.Function.sqrt;
+        } else
+        {
+            try
+            {
+                function = FunctionCall.Function.valueOf(name);
+            } catch (IllegalArgumentException e)
+            {
+                throw new CalculatorError(ErrorType.functionUndef);
+            }
+        }
+        expect('(', ErrorType.functionUndef);
+        Expression argument = parseSum();
+        expect(')', ErrorType.functionUndef);
+        return new FunctionCall(function, argument);
+    }
+
+    /**
+     * Parses the arguments (f(x), a, b) of an integral, sum or product.
+     * 
+     * @param kind
+     *            - the operation to apply.
+     * @param error
+     *            - the error to throw if the arguments are invalid.
+     * @return the parsed expression.
+     * @throws CalculatorError
+     */
+    private Expression parseAccumulation(Accumulation.Kind kind, ErrorType error) throws CalculatorError
+    {
+        expect('(', ErrorType.functionUndef);
+        depth++;
+        Expression function = parseSum();
+        depth--;
+        expect(',', error);
+        Expression lowerLimit = parseSum();
+        expect(',', error);
+        Expression upperLimit = parseSum();
+        expect(')', error);
+        return new Accumulation(kind, function, depth + 1, lowerLimit, upperLimit);
+    }
+
+    /**
+     * Reads the name of a constant or function. Names are either a run of letters, which are converted to lower case,
+     * or a single special character.
+     * 
+     * @return the name.
+     * @throws CalculatorError
+     */
+    private String readName() throws CalculatorError
+    {
+        int start = position;
+        while (position < str.length() && isLetter(str.charAt(position)))
+        {
+            position++;
+        }
+        if (position > start)
+        {
+            return str.substring(start, position).toLowerCase();
+        }
+        char character = str.charAt(position);
+        if (Utility.isSpecialLeft(character) || Utility.isSpecialRight(character))
+        {
+            position++;
+            return str.substring(start, position);
+        }
+        throw new CalculatorError(ErrorType.functionUndef);
+    }
+
+    /**
+     * Skips the next character if it is equal to character.
+     * 
+     * @param character
+     *            - the expected character.
+     * @return true if the character was skipped, false otherwise.
+     */
+    private boolean accept(char character)
+    {
+        if (position < str.length() && str.charAt(position) == character)
+        {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the next character, which must be equal to character.
+     * 
+     * @param character
+     *            - the expected character.
+     * @param error
+     *            - the error to throw if the next character is different.
+     * @throws CalculatorError
+     */
+    private void expect(char character, ErrorType error) throws CalculatorError
+    {
+        if (!accept(character))
+        {
+            throw new CalculatorError(error);
+        }
+    }
+
+    /**
+     * Checks if the character is a numeral.
+     * 
+     * @param character
+     *            - the character to be checked.
+     * @return true if the character is a numeral, false otherwise.
+     */
+    private static boolean isDigit(char character)
+    {
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Checks if the character is an upper or lower case letter.
+     * 
+     * @param character
+     *            - the character to be checked.
+     * @return true if the character is a letter, false otherwise.
+     */
+    private static boolean isLetter(char character)
+    {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z');
+    }
+}
@@ -0,0 +1,51 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * A call of rand(n), or of rand() with no bound.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class RandomNumber extends Expression
+{
+
+    /**
+     * Initializes the call with an upper bound, or with null if no bound was given.
+     * 
+     * @param bound
+     *            - the exclusive upper bound, or null.
+     */
+    public RandomNumber(Expression bound)
+    {
+        this.bound = bound;
+    }
+
+    /**
+     * Returns the upper bound, or null if no bound was given.
+     * 
+     * @return bound.
+     */
+    public Expression getBound()
+    {
+        return bound;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitRandom(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitRandom(this);
+    }
+
+    /**
+     * The exclusive upper bound, or null if no bound was given.
+     */
+    private final Expression bound;
+}
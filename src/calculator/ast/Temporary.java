@@ -0,0 +1,70 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * A subexpression shared by several functions of an ExpressionGroup. Evaluators which keep the values of temporaries
+ * evaluate the subexpression once for each value of x, while others evaluate it wherever it occurs.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Temporary extends Expression
+{
+
+    /**
+     * Initializes the temporary standing for expression.
+     * 
+     * @param index
+     *            - the index of the temporary in its group.
+     * @param expression
+     *            - the shared subexpression.
+     */
+    public Temporary(int index, Expression expression)
+    {
+        this.index = index;
+        this.expression = expression;
+    }
+
+    /**
+     * Returns the index of the temporary in its group.
+     * 
+     * @return index.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the shared subexpression.
+     * 
+     * @return expression.
+     */
+    public Expression getExpression()
+    {
+        return expression;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitTemporary(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitTemporary(this);
+    }
+
+    /**
+     * The index of the temporary in its group.
+     */
+    private final int index;
+
+    /**
+     * The shared subexpression.
+     */
+    private final Expression expression;
+}
@@ -0,0 +1,53 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * An occurrence of the independent variable x. Each integral, sum or product binds x in a new numbered slot, so that
+ * x always refers to the innermost enclosing operation. Slot 0 holds the x of the whole expression, as used for
+ * graphing.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Variable extends Expression
+{
+
+    /**
+     * Initializes the variable stored in slot.
+     * 
+     * @param slot
+     *            - the slot holding the value of the variable.
+     */
+    public Variable(int slot)
+    {
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the slot holding the value of the variable.
+     * 
+     * @return slot.
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) throws CalculatorError, ArithmeticException
+    {
+        return visitor.visitVariable(this);
+    }
+
+    @Override
+    public double accept(DoubleVisitor visitor) throws CalculatorError
+    {
+        return visitor.visitVariable(this);
+    }
+
+    /**
+     * The slot holding the value of the variable.
+     */
+    private final int slot;
+}
@@ -0,0 +1,32 @@
+package calculator.ast;
+
+import calculator.CalculatorError;
+
+/**
+ * An operation applied to the nodes of an expression tree, such as its evaluation.
+ * 
+ * @author Andrei Purcarus
+ *
+ * @param <T>
+ *            - the type of the result of the operation.
+ */
+public interface Visitor<T>
+{
+    public T visitNumber(NumberLiteral node) throws CalculatorError, ArithmeticException;
+
+    public T visitConstant(Constant node) throws CalculatorError, ArithmeticException;
+
+    public T visitVariable(Variable node) throws CalculatorError, ArithmeticException;
+
+    public T visitNegation(Negation node) throws CalculatorError, ArithmeticException;
+
+    public T visitBinaryOperation(BinaryOperation node) throws CalculatorError, ArithmeticException;
+
+    public T visitFunctionCall(FunctionCall node) throws CalculatorError, ArithmeticException;
+
+    public T visitAccumulation(Accumulation node) throws CalculatorError, ArithmeticException;
+
+    public T visitRandom(RandomNumber node) throws CalculatorError, ArithmeticException;
+
+    public T visitTemporary(Temporary node) throws CalculatorError, ArithmeticException;
+}
@@ -0,0 +1,360 @@
+package calculator.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import calculator.CalculatorEngine;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+import calculator.Session;
+import calculator.ast.Expression;
+
+/**
+ * Evaluates a stream of expressions, one per line, and writes their results in the same order, one per line. The
+ * evaluation is a pipeline of four stages: a reader thread groups the lines into chunks of CHUNK_SIZE lines, a pool of
+ * threads compiles each chunk, a second pool evaluates it, each thread with its own copy of the session, and the
+ * calling thread writes the results of the chunks in the order they were read. The lines are evaluated independently
+ * of each other, so ans and mem hold the values stored in the session when the evaluator was created. The queues
+ * between the stages hold at most WINDOW_PER_THREAD chunks per thread, so a slow stage stops the stages before it,
+ * which bounds the memory used however long the stream is. Empty lines are written back as empty lines, so each result
+ * stays on the line of its expression, and a line which fails in any other way than with an error of the calculator,
+ * such as one nested too deeply to compile, is written as FAILURE rather than stopping the stream.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class BatchEvaluator
+{
+
+    /**
+     * The number of lines handled by a single task.
+     */
+    static final int CHUNK_SIZE = 64;
+
+    /**
+     * The number of chunks per thread which can wait between two stages.
+     */
+    static final int WINDOW_PER_THREAD = 4;
+
+    /**
+     * The message written for a line which fails without an error of the calculator.
+     */
+    static final String FAILURE = "Error. Evaluation failed.";
+
+    /**
+     * Initializes the evaluator.
+     * 
+     * @param engine
+     *            - the engine used to evaluate the expressions.
+     * @param session
+     *            - the session whose copies are used to evaluate the expressions.
+     * @param format
+     *            - the format of the results.
+     * @param threads
+     *            - the number of threads compiling the expressions, and of threads evaluating them.
+     */
+    public BatchEvaluator(CalculatorEngine engine, Session session, OutputFormat format, int threads)
+    {
+        this.engine = engine;
+        this.session = session.copy();
+        this.format = format;
+        this.threads = threads;
+    }
+
+    /**
+     * Evaluates the expressions read from in and writes their results to out, until the end of in.
+     * 
+     * @param in
+     *            - the stream of expressions.
+     * @param out
+     *            - the stream of results.
+     * @return the number of lines evaluated.
+     * @throws IOException
+     */
+    public long run(final BufferedReader in, Writer out) throws IOException
+    {
+        final int window = threads * WINDOW_PER_THREAD;
+        final ThreadPoolExecutor compilers = pool("batch-compiler", window);
+        final ThreadPoolExecutor evaluators = pool("batch-evaluator", window);
+        final ThreadLocal<Session> sessions = ThreadLocal.withInitial(session::copy);
+        final BlockingQueue<CompletableFuture<Chunk>> ordered =
+                new ArrayBlockingQueue<CompletableFuture<Chunk>>(window);
+
+        Thread reader = new Thread(() -> {
+            try
+            {
+                String[] lines = new String[CHUNK_SIZE];
+                int count = 0;
+                String line;
+                while ((line = in.readLine()) != null)
+                {
+                    lines[count++] = line;
+                    if (count == CHUNK_SIZE)
+                    {
+                        ordered.put(submit(new Chunk(lines, count), compilers, evaluators, sessions));
+                        lines = new String[CHUNK_SIZE];
+                        count = 0;
+                    }
+                }
+                if (count > 0)
+                {
+                    ordered.put(submit(new Chunk(lines, count), compilers, evaluators, sessions));
+                }
+                ordered.put(END);
+            } catch (IOException e)
+            {
+                CompletableFuture<Chunk> failed = new CompletableFuture<Chunk>();
+                failed.completeExceptionally(e);
+                try
+                {
+                    ordered.put(failed);
+                } catch (InterruptedException interrupted)
+                {
+                    // The writer has stopped, so nobody is waiting for the error.
+                }
+            } catch (InterruptedException e)
+            {
+                // The writer has stopped, so there is nothing left to read for.
+            }
+        }, "batch-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long lines = 0;
+        try
+        {
+            while (true)
+            {
+                CompletableFuture<Chunk> task = ordered.take();
+                if (task == END)
+                {
+                    break;
+                }
+                Chunk chunk = task.get();
+                for (int i = 0; i < chunk.count; i++)
+                {
+                    out.write(chunk.results[i]);
+                    out.write('\n');
+                }
+                lines += chunk.count;
+            }
+            out.flush();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating.", e);
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Evaluation failed.", e.getCause());
+        } finally
+        {
+            reader.interrupt();
+            compilers.shutdownNow();
+            evaluators.shutdownNow();
+        }
+        return lines;
+    }
+
+    /**
+     * Starts compiling and then evaluating a chunk.
+     * 
+     * @param chunk
+     *            - the chunk.
+     * @param compilers
+     *            - the threads compiling the expressions.
+     * @param evaluators
+     *            - the threads evaluating the expressions.
+     * @param sessions
+     *            - the session of each evaluating thread.
+     * @return the chunk, once its results are known.
+     */
+    private CompletableFuture<Chunk> submit(Chunk chunk, ThreadPoolExecutor compilers, ThreadPoolExecutor evaluators,
+            ThreadLocal<Session> sessions)
+    {
+        return CompletableFuture.supplyAsync(() -> compile(chunk), compilers).thenApplyAsync(
+                compiled -> evaluate(compiled, sessions.get()), evaluators);
+    }
+
+    /**
+     * Compiles the lines of a chunk, recording the error of each line which does not compile. Empty lines are left
+     * uncompiled, and lines which fail without an error of the calculator are given FAILURE as their result.
+     * 
+     * @param chunk
+     *            - the chunk.
+     * @return the chunk.
+     */
+    Chunk compile(Chunk chunk)
+    {
+        for (int i = 0; i < chunk.count; i++)
+        {
+            if (chunk.lines[i].trim().isEmpty())
+            {
+                continue;
+            }
+            try
+            {
+                chunk.expressions[i] = engine.compile(chunk.lines[i], session);
+            } catch (CalculatorError e)
+            {
+                chunk.errors[i] = e.getError();
+            } catch (ArithmeticException e)
+            {
+                chunk.errors[i] = ErrorType.overflow;
+            } catch (RuntimeException | StackOverflowError e)
+            {
+                chunk.results[i] = FAILURE;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Evaluates the compiled lines of a chunk, and stores the result or error of each line as it is written. The
+     * results of empty lines are empty strings, and lines which already have a result are skipped.
+     * 
+     * @param chunk
+     *            - the compiled chunk.
+     * @param session
+     *            - the session used to evaluate the expressions.
+     * @return the chunk.
+     */
+    Chunk evaluate(Chunk chunk, Session session)
+    {
+        for (int i = 0; i < chunk.count; i++)
+        {
+            if (chunk.results[i] != null)
+            {
+                continue;
+            } else if (chunk.errors[i] != null)
+            {
+                chunk.results[i] = format.format(chunk.errors[i]);
+            } else if (chunk.expressions[i] == null)
+            {
+                chunk.results[i] = "";
+            } else
+            {
+                try
+                {
+                    chunk.results[i] = format.format(engine.evaluate(chunk.expressions[i], session));
+                } catch (CalculatorError e)
+                {
+                    chunk.results[i] = format.format(e.getError());
+                } catch (ArithmeticException e)
+                {
+                    chunk.results[i] = format.format(ErrorType.overflow);
+                } catch (RuntimeException | StackOverflowError e)
+                {
+                    chunk.results[i] = FAILURE;
+                }
+                // The expression is no longer needed once it has been evaluated.
+                chunk.expressions[i] = null;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns a pool of threads for a stage of the pipeline. When the queue of the pool is full, the thread handing
+     * it a task runs the task itself, which slows the stage before.
+     * 
+     * @param name
+     *            - the name of the threads.
+     * @param capacity
+     *            - the number of tasks which can wait for a thread.
+     * @return the pool.
+     */
+    private ThreadPoolExecutor pool(final String name, int capacity)
+    {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+                capacity), runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * A group of consecutive lines, which passes through the stages of the pipeline together.
+     */
+    static final class Chunk
+    {
+
+        /**
+         * Initializes a chunk holding the first count lines.
+         * 
+         * @param lines
+         *            - the lines.
+         * @param count
+         *            - the number of lines.
+         */
+        Chunk(String[] lines, int count)
+        {
+            this.lines = lines;
+            this.count = count;
+            this.expressions = new Expression[count];
+            this.errors = new ErrorType[count];
+            this.results = new String[count];
+        }
+
+        /**
+         * The lines.
+         */
+        final String[] lines;
+
+        /**
+         * The number of lines.
+         */
+        final int count;
+
+        /**
+         * The compiled expression of each line, or null if it is empty or does not compile.
+         */
+        final Expression[] expressions;
+
+        /**
+         * The error of each line which does not compile, or null.
+         */
+        final ErrorType[] errors;
+
+        /**
+         * The result or error of each line, as it is written.
+         */
+        final String[] results;
+    }
+
+    /**
+     * The task marking the end of the stream.
+     */
+    private static final CompletableFuture<Chunk> END = CompletableFuture.completedFuture(null);
+
+    /**
+     * The engine used to evaluate the expressions.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session whose copies are used to evaluate the expressions. It is only read while compiling.
+     */
+    private final Session session;
+
+    /**
+     * The format of the results.
+     */
+    private final OutputFormat format;
+
+    /**
+     * The number of threads in each pool.
+     */
+    private final int threads;
+}
@@ -0,0 +1,153 @@
+package calculator.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import calculator.Calculator;
+import calculator.CalculatorError;
+
+/**
+ * The command line entry point of the calculator, which needs no display. Without -b, it starts an interactive loop
+ * which evaluates one expression per line. With -b, it evaluates a stream of expressions, one per line, read from a
+ * file or the standard input, and writes their results to the standard output in the same order. The options are:
+ * 
+ * <pre>
+ * -b [file]  evaluate the lines of file, or of the standard input if file is - or missing
+ * -j n       evaluate the lines with n threads, by default one per processor
+ * -s n       write n significant figures, or every digit if n is 0, by default 6
+ * -e         write results in engineering notation
+ * -g         use degrees rather than radians
+ * -d         use double precision rather than decimal precision
+ * -v         report the number of lines evaluated per second on the standard error
+ * </pre>
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class CommandLine
+{
+
+    /**
+     * Runs the command line.
+     * 
+     * @param args
+     *            - the options.
+     */
+    public static void main(String[] args)
+    {
+        boolean batch = false;
+        String file = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int significantFigures = 6;
+        boolean engineering = false;
+        boolean degrees = false;
+        boolean doublePrecision = false;
+        boolean verbose = false;
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                case "-b":
+                    batch = true;
+                    if (i + 1 < args.length && (!args[i + 1].startsWith("-") || args[i + 1].equals("-")))
+                    {
+                        file = args[++i];
+                    }
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-s":
+                    significantFigures = Integer.parseInt(args[++i]);
+                    break;
+                case "-e":
+                    engineering = true;
+                    break;
+                case "-g":
+                    degrees = true;
+                    break;
+                case "-d":
+                    doublePrecision = true;
+                    break;
+                case "-v":
+                    verbose = true;
+                    break;
+                default:
+                    usage();
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e)
+        {
+            usage();
+            System.exit(1);
+        }
+        if (threads < 1 || significantFigures < 0)
+        {
+            usage();
+            System.exit(1);
+        }
+
+        Calculator calc = new Calculator();
+        try
+        {
+            calc.setMode(degrees ? Calculator.Mode.degrees : Calculator.Mode.radians);
+            if (doublePrecision)
+            {
+                calc.setPrecision(Calculator.Precision.doublePrecision);
+            }
+        } catch (CalculatorError e)
+        {
+            System.err.println(e.getError().getMessage());
+            System.exit(1);
+        }
+        OutputFormat format = new OutputFormat(significantFigures, engineering);
+
+        try
+        {
+            if (batch)
+            {
+                InputStream stream = file.equals("-") ? System.in : new FileInputStream(file);
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+                {
+                    Writer out =
+                            new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                    long start = System.nanoTime();
+                    long lines = new BatchEvaluator(calc.getEngine(), calc.getSession(), format, threads).run(in, out);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    if (verbose)
+                    {
+                        System.err.printf("%d lines in %.3f s, %.0f lines/s%n", lines, seconds, lines / seconds);
+                    }
+                }
+            } else
+            {
+                BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                new Repl(calc, format, System.console() != null).run(in, out);
+            }
+        } catch (IOException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints how to use the command line.
+     */
+    private static void usage()
+    {
+        System.err.println("Usage: CommandLine [-b [file]] [-j threads] [-s significant figures] [-e] [-g] [-d] [-v]");
+    }
+}
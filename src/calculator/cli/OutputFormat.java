@@ -0,0 +1,82 @@
+package calculator.cli;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import calculator.ErrorType;
+
+/**
+ * The way results and errors are written by the command line: results are rounded to a number of significant figures
+ * and written in scientific or engineering notation, and errors are written as the messages shown by the calculator's
+ * display. A format is immutable and can be shared between threads.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class OutputFormat
+{
+
+    /**
+     * Initializes the format.
+     * 
+     * @param significantFigures
+     *            - the number of significant figures of the results, or 0 to write them unrounded.
+     * @param engineering
+     *            - whether the results are written in engineering notation rather than scientific notation.
+     */
+    public OutputFormat(int significantFigures, boolean engineering)
+    {
+        this.mc =
+                significantFigures == 0 ? MathContext.UNLIMITED : new MathContext(significantFigures,
+                        RoundingMode.HALF_UP);
+        this.engineering = engineering;
+    }
+
+    /**
+     * Returns a format with the same notation as this one and another number of significant figures.
+     * 
+     * @param significantFigures
+     *            - the number of significant figures of the results, or 0 to write them unrounded.
+     * @return the new format.
+     */
+    public OutputFormat withSignificantFigures(int significantFigures)
+    {
+        return new OutputFormat(significantFigures, engineering);
+    }
+
+    /**
+     * Returns a result as it is written.
+     * 
+     * @param result
+     *            - the result.
+     * @return the written result.
+     */
+    public String format(BigDecimal result)
+    {
+        BigDecimal rounded = result.round(mc);
+        return engineering ? rounded.toEngineeringString() : rounded.toString();
+    }
+
+    /**
+     * Returns the message written for an error, which is the one shown by the calculator's display.
+     * 
+     * @param error
+     *            - the error.
+     * @return the message.
+     */
+    public String format(ErrorType error)
+    {
+        return error.getMessage();
+    }
+
+    /**
+     * The precision the results are rounded to.
+     */
+    private final MathContext mc;
+
+    /**
+     * Whether the results are written in engineering notation.
+     */
+    private final boolean engineering;
+}
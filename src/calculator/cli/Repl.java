@@ -0,0 +1,189 @@
+package calculator.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+
+import calculator.Calculator;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+
+/**
+ * An interactive loop which evaluates the expressions typed by the user one at a time, as the calculator's display
+ * does. Each result is stored in ans, and the expression it came from in fans, with fans and fmem expanded and in
+ * brackets so that it can be used inside another expression. Lines starting with a colon are commands, which store
+ * the answer in mem or change the settings of the calculator.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class Repl
+{
+
+    /**
+     * Initializes the loop.
+     * 
+     * @param calc
+     *            - the calculator evaluating the expressions.
+     * @param format
+     *            - the format of the results.
+     * @param prompt
+     *            - whether a prompt is written before each line is read.
+     */
+    Repl(Calculator calc, OutputFormat format, boolean prompt)
+    {
+        this.calc = calc;
+        this.format = format;
+        this.prompt = prompt;
+    }
+
+    /**
+     * Evaluates the lines read from in and writes their results to out, until the end of in or the :quit command.
+     * 
+     * @param in
+     *            - the stream of lines.
+     * @param out
+     *            - the stream of results.
+     * @throws IOException
+     */
+    void run(BufferedReader in, PrintWriter out) throws IOException
+    {
+        while (true)
+        {
+            if (prompt)
+            {
+                out.print("> ");
+                out.flush();
+            }
+            String line = in.readLine();
+            if (line == null)
+            {
+                break;
+            }
+            line = line.trim();
+            if (line.isEmpty())
+            {
+                continue;
+            } else if (line.startsWith(":"))
+            {
+                if (!command(line.substring(1).trim(), out))
+                {
+                    break;
+                }
+            } else
+            {
+                out.println(evaluate(line));
+            }
+            out.flush();
+        }
+        out.flush();
+    }
+
+    /**
+     * Evaluates an expression, storing its result in ans and the expression in fans if it succeeds. An expression which
+     * fails without an error of the calculator, such as one nested too deeply to compile, gives BatchEvaluator.FAILURE.
+     * 
+     * @param expression
+     *            - the expression.
+     * @return the result or error, as it is written.
+     */
+    String evaluate(String expression)
+    {
+        try
+        {
+            BigDecimal result = calc.compute(expression);
+            calc.setAnswer(result);
+            calc.setFAnswer("(" + calc.normalize(expression) + ")");
+            return format.format(result);
+        } catch (CalculatorError e)
+        {
+            return format.format(e.getError());
+        } catch (ArithmeticException e)
+        {
+            return format.format(ErrorType.overflow);
+        } catch (RuntimeException | StackOverflowError e)
+        {
+            return BatchEvaluator.FAILURE;
+        }
+    }
+
+    /**
+     * Runs a command.
+     * 
+     * @param command
+     *            - the command, without its colon.
+     * @param out
+     *            - the stream of results.
+     * @return false if the loop must stop.
+     */
+    private boolean command(String command, PrintWriter out)
+    {
+        String[] words = command.split("\\s+", 2);
+        try
+        {
+            switch (words[0])
+            {
+            case "quit":
+            case "q":
+                return false;
+            case "sto":
+                calc.setMemory(calc.getAnswer());
+                out.println(format.format(calc.getMemory()));
+                break;
+            case "rad":
+                calc.setMode(Calculator.Mode.radians);
+                break;
+            case "deg":
+                calc.setMode(Calculator.Mode.degrees);
+                break;
+            case "double":
+                calc.setPrecision(Calculator.Precision.doublePrecision);
+                break;
+            case "decimal":
+                calc.setPrecision(Calculator.Precision.decimal);
+                break;
+            case "sf":
+                format = format.withSignificantFigures(Integer.parseInt(words[1].trim()));
+                break;
+            case "help":
+                out.println("Expressions are evaluated as they are typed. ans holds the last result, fans the");
+                out.println("expression it came from, and mem the value stored by :sto.");
+                out.println(":sto      store ans in mem");
+                out.println(":rad      use radians          :deg      use degrees");
+                out.println(":double   use double precision :decimal  use decimal precision");
+                out.println(":sf n     write n significant figures, or every digit if n is 0");
+                out.println(":quit     leave");
+                break;
+            default:
+                out.println("Unknown command. Type :help for the list of commands.");
+                break;
+            }
+        } catch (CalculatorError e)
+        {
+            out.println(format.format(e.getError()));
+        } catch (ArithmeticException e)
+        {
+            out.println(format.format(ErrorType.overflow));
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            out.println("Invalid number of significant figures.");
+        }
+        return true;
+    }
+
+    /**
+     * The calculator evaluating the expressions.
+     */
+    private final Calculator calc;
+
+    /**
+     * Whether a prompt is written before each line is read.
+     */
+    private final boolean prompt;
+
+    /**
+     * The format of the results.
+     */
+    private OutputFormat format;
+}
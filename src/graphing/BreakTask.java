@@ -0,0 +1,239 @@
+package graphing;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calculator.Calculator;
+import calculator.CalculatorEngine;
+import calculator.CalculatorError;
+import calculator.Session;
+import calculator.ast.Expression;
+
+/**
+ * Looks for discontinuities in a list of the columns of a graph, splitting the list in halves among the threads of a
+ * ForkJoinPool until it is at most CHUNK_SIZE columns long. A column is searched by bisecting it towards the largest
+ * jump in the function. The jump of a continuous function shrinks as the interval does, while the jump across a
+ * discontinuity or an asymptote stays as large or grows, so a column whose jump does not shrink by the end of the
+ * search, or in which the function is undefined, is marked as broken. Errors are treated as points at which the
+ * function is undefined.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class BreakTask extends RecursiveAction
+{
+
+    /**
+     * The largest number of columns searched by a single task.
+     */
+    static final int CHUNK_SIZE = 4;
+
+    /**
+     * The number of bisections after which a jump which has not shrunk is taken to be a discontinuity.
+     */
+    static final int DEPTH = 8;
+
+    /**
+     * Initializes the task to search the columns columns[i] for i from (inclusive) to to (exclusive), which must be in
+     * increasing order. Column k lies between the edges at start + k*step and start + (k+1)*step, whose values are
+     * estimates[k] and estimates[k+1]. Column k is marked as broken by setting breaks[k].
+     * 
+     * @param function
+     *            - the function to be graphed.
+     * @param engine
+     *            - the engine used to evaluate the function.
+     * @param session
+     *            - the session whose copies are used to evaluate the function.
+     * @param start
+     *            - the value of x of the first edge.
+     * @param step
+     *            - the distance in x between edges.
+     * @param columns
+     *            - the columns to search.
+     * @param estimates
+     *            - the values at the edges as doubles.
+     * @param breaks
+     *            - whether each column is broken.
+     * @param errorIndex
+     *            - the index of the leftmost edge known to fail, past which columns are skipped.
+     * @param from
+     *            - the index in columns of the first column to search.
+     * @param to
+     *            - the index in columns after the last column to search.
+     */
+    BreakTask(Expression function, CalculatorEngine engine, Session session, BigDecimal start, BigDecimal step,
+            int[] columns, double[] estimates, boolean[] breaks, AtomicInteger errorIndex, int from, int to)
+    {
+        this.function = function;
+        this.engine = engine;
+        this.session = session;
+        this.start = start;
+        this.step = step;
+        this.columns = columns;
+        this.estimates = estimates;
+        this.breaks = breaks;
+        this.errorIndex = errorIndex;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= CHUNK_SIZE)
+        {
+            Session copy = session.copy();
+            for (int i = from; i < to && columns[i] < errorIndex.get(); i++)
+            {
+                breaks[columns[i]] = isBroken(columns[i], copy);
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        invokeAll(new BreakTask(function, engine, session, start, step, columns, estimates, breaks, errorIndex, from,
+                middle), new BreakTask(function, engine, session, start, step, columns, estimates, breaks, errorIndex,
+                middle, to));
+    }
+
+    /**
+     * Returns true if a column contains a discontinuity.
+     * 
+     * @param k
+     *            - the index of the column.
+     * @param session
+     *            - the session used to evaluate the function.
+     * @return true if column k is broken.
+     */
+    private boolean isBroken(int k, Session session)
+    {
+        MathContext mc = engine.getMath().getMathContext();
+        BigDecimal two = new BigDecimal("2");
+        BigDecimal a = start.add(step.multiply(new BigDecimal(k)));
+        BigDecimal b = a.add(step);
+        double valueA = estimates[k];
+        double valueB = estimates[k + 1];
+        double jump = java.lang.Math.abs(valueB - valueA);
+        for (int depth = 0; depth < DEPTH; depth++)
+        {
+            BigDecimal middle = a.add(b).divide(two, mc);
+            double value = evaluate(middle, session);
+            if (Double.isNaN(value))
+            {
+                return true;
+            }
+
+            // Keeps the half with the largest jump.
+            if (java.lang.Math.abs(value - valueA) >= java.lang.Math.abs(valueB - value))
+            {
+                b = middle;
+                valueB = value;
+            } else
+            {
+                a = middle;
+                valueA = value;
+            }
+            double halfJump = java.lang.Math.abs(valueB - valueA);
+            if (halfJump < JUMP_RATIO * jump)
+            {
+                return false;
+            }
+            jump = halfJump;
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the function at x as a double.
+     * 
+     * @param x
+     *            - the value of x.
+     * @param session
+     *            - the session used to evaluate the function.
+     * @return the value of the function, or NaN if it is undefined or overflows.
+     */
+    private double evaluate(BigDecimal x, Session session)
+    {
+        double value;
+        try
+        {
+            if (engine.getPrecision() == Calculator.Precision.doublePrecision)
+            {
+                value = engine.evaluateDouble(function, x.doubleValue(), session);
+            } else
+            {
+                value = engine.evaluate(function, x, session).doubleValue();
+            }
+        } catch (CalculatorError | ArithmeticException e)
+        {
+            return Double.NaN;
+        }
+        return Double.isInfinite(value) ? Double.NaN : value;
+    }
+
+    private static final long serialVersionUID = -2302316548914652467L;
+
+    /**
+     * The ratio by which the jump in a half of an interval must be smaller than the jump in the whole interval for the
+     * function to be taken to be continuous. This is large enough to accept functions with infinite slopes, such as
+     * sqrt(x) and x^(1/3), whose jumps shrink by factors of 0.71 and 0.79.
+     */
+    private static final double JUMP_RATIO = 0.9;
+
+    /**
+     * The function to be graphed.
+     */
+    private final Expression function;
+
+    /**
+     * The engine used to evaluate the function.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session whose copies are used to evaluate the function.
+     */
+    private final Session session;
+
+    /**
+     * The value of x of the first edge.
+     */
+    private final BigDecimal start;
+
+    /**
+     * The distance in x between edges.
+     */
+    private final BigDecimal step;
+
+    /**
+     * The columns to search.
+     */
+    private final int[] columns;
+
+    /**
+     * The values at the edges as doubles.
+     */
+    private final double[] estimates;
+
+    /**
+     * Whether each column is broken.
+     */
+    private final boolean[] breaks;
+
+    /**
+     * The index of the leftmost edge known to fail, past which columns are skipped.
+     */
+    private final AtomicInteger errorIndex;
+
+    /**
+     * The index in columns of the first column to search.
+     */
+    private final int from;
+
+    /**
+     * The index in columns after the last column to search.
+     */
+    private final int to;
+}
@@ -0,0 +1,51 @@
+package graphing;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The samples kept between the graphs drawn by one owner, such as a display or an exporter, so that a graph which
+ * moves or rescales the previous one evaluates the functions only where they were never sampled. Each owner keeps its
+ * own cache, so graphs drawn for different owners do not share or evict each other's samples. A cache holds the
+ * samples of one group of functions at a time and lends them to one graph at a time, so a graph started while another
+ * holds them starts without them. The samples only save evaluations: a graph is drawn the same with or without them.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class GraphCache
+{
+
+    /**
+     * Initializes an empty cache.
+     */
+    public GraphCache()
+    {
+        spare = new AtomicReference<SampleCache>();
+    }
+
+    /**
+     * Takes the samples out of the cache, until they are returned.
+     * 
+     * @return the samples, or null if the cache is empty or lent to another graph.
+     */
+    SampleCache take()
+    {
+        return spare.getAndSet(null);
+    }
+
+    /**
+     * Returns samples to the cache, replacing any held.
+     * 
+     * @param samples
+     *            - the samples.
+     */
+    void give(SampleCache samples)
+    {
+        spare.set(samples);
+    }
+
+    /**
+     * The samples of the last graph, if no graph is using them.
+     */
+    private final AtomicReference<SampleCache> spare;
+}
@@ -0,0 +1,524 @@
+package graphing;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import calculator.Calculator;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+
+/**
+ * Writes graphs to PNG, SVG or text files without a user interface, so graphs can be drawn on machines without a
+ * display. PNG files hold the pixels of the raster drawn by a GraphRenderer, SVG files hold the curves through the
+ * samples of its last pass as paths, and text files hold one character per pixel, with # where the curves cover most of
+ * a pixel. An exporter reuses its raster between graphs of the same size, and the samples of its last graph between
+ * graphs of the same functions, and is only used by one thread at a time.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class GraphExporter
+{
+
+    /**
+     * The formats graphs can be written in.
+     */
+    public static enum Format
+    {
+        png, svg, ascii
+    }
+
+    /**
+     * Initializes the exporter for graphs of the given size, which must be at least 2 by 2 pixels.
+     * 
+     * @param width
+     *            - the width of the graphs in pixels.
+     * @param height
+     *            - the height of the graphs in pixels.
+     * @param thickness
+     *            - the thickness of the curves.
+     * @param spacing
+     *            - the number of pixels covered by each sampled column.
+     */
+    public GraphExporter(int width, int height, double thickness, double spacing)
+    {
+        this.width = width;
+        this.height = height;
+        this.thickness = thickness;
+        this.spacing = spacing;
+        this.cache = new GraphCache();
+    }
+
+    /**
+     * Returns the format of a file from its extension, which is .png, .svg or .txt.
+     * 
+     * @param fileName
+     *            - the name of the file.
+     * @return the format of the file, or null if the extension is unknown.
+     */
+    public static Format formatOf(String fileName)
+    {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png"))
+        {
+            return Format.png;
+        } else if (name.endsWith(".svg"))
+        {
+            return Format.svg;
+        } else if (name.endsWith(".txt"))
+        {
+            return Format.ascii;
+        }
+        return null;
+    }
+
+    /**
+     * Graphs functions over the given range and writes the graph to out.
+     * 
+     * @param functions
+     *            - the functions to graph.
+     * @param xMin
+     *            - the expression for the smallest value of x.
+     * @param xMax
+     *            - the expression for the largest value of x.
+     * @param yMin
+     *            - the expression for the smallest value of y.
+     * @param yMax
+     *            - the expression for the largest value of y.
+     * @param calc
+     *            - the calculator used to evaluate the expressions.
+     * @param format
+     *            - the format of the output.
+     * @param out
+     *            - the stream the graph is written to.
+     * @throws CalculatorError
+     *             if one of the functions fails.
+     * @throws IllegalArgumentException
+     *             if the range is invalid, with a message describing why.
+     * @throws IOException
+     */
+    public void export(List<String> functions, String xMin, String xMax, String yMin, String yMax, Calculator calc,
+            Format format, OutputStream out) throws CalculatorError, ArithmeticException, IOException
+    {
+        // The raster has one more column and row than the width and height of the graph.
+        GraphRenderer renderer =
+                new GraphRenderer(width - 1, height - 1, thickness, spacing, functions, xMin, xMax, yMin, yMax,
+                        calc.getEngine(), calc.getSession());
+        // Only the last frame is written.
+        raster = renderer.render(raster, cache, frame -> {});
+        switch (format)
+        {
+        case png:
+            writePng(raster, out);
+            break;
+        case svg:
+            writeSvg(renderer, raster, out);
+            break;
+        case ascii:
+            writeAscii(raster, out);
+            break;
+        }
+    }
+
+    /**
+     * Graphs from the command line. A single graph is written with
+     * 
+     * <pre>
+     * GraphExporter [options] output function xmin xmax ymin ymax
+     * </pre>
+     * 
+     * and a batch of graphs with
+     * 
+     * <pre>
+     * GraphExporter [options] -b batchfile
+     * </pre>
+     * 
+     * where each line of the batch file holds the output, function, xmin, xmax, ymin and ymax of a graph separated by
+     * tabs. Several functions are separated by semicolons, and the format of the output is given by its extension. The
+     * options are -w width, -h height, -t thickness and -s spacing, and -d for double precision. The exporter exits
+     * with status 1 if the arguments are invalid or a graph could not be written.
+     * 
+     * @param args
+     *            - the arguments.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+        int width = 640;
+        int height = 400;
+        double thickness = 3;
+        double spacing = 1;
+        boolean doublePrecision = false;
+        String batch = null;
+        int i = 0;
+        try
+        {
+            for (; i < args.length && args[i].startsWith("-") && args[i].length() == 2; i++)
+            {
+                switch (args[i].charAt(1))
+                {
+                case 'w':
+                    width = Integer.parseInt(args[++i]);
+                    break;
+                case 'h':
+                    height = Integer.parseInt(args[++i]);
+                    break;
+                case 't':
+                    thickness = Double.parseDouble(args[++i]);
+                    break;
+                case 's':
+                    spacing = Double.parseDouble(args[++i]);
+                    break;
+                case 'd':
+                    doublePrecision = true;
+                    break;
+                case 'b':
+                    batch = args[++i];
+                    break;
+                default:
+                    usage();
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e)
+        {
+            usage();
+            System.exit(1);
+        }
+        if (width < 2 || height < 2 || thickness <= 0 || spacing < 1
+                || (batch == null ? args.length - i != 6 : args.length != i))
+        {
+            usage();
+            System.exit(1);
+        }
+
+        Calculator calc = new Calculator();
+        try
+        {
+            calc.setMode(Calculator.Mode.radians);
+            if (doublePrecision)
+            {
+                calc.setPrecision(Calculator.Precision.doublePrecision);
+            }
+        } catch (CalculatorError e)
+        {
+            System.err.println(e.getError().getMessage());
+            System.exit(1);
+        }
+        GraphExporter exporter = new GraphExporter(width, height, thickness, spacing);
+        if (batch == null)
+        {
+            if (!exporter.exportFile(args[i], args[i + 1], args[i + 2], args[i + 3], args[i + 4], args[i + 5], calc))
+            {
+                System.exit(1);
+            }
+            return;
+        }
+
+        boolean failed = false;
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(new FileInputStream(batch), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().isEmpty())
+                {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length != 6)
+                {
+                    System.err.println("Invalid line: " + line);
+                    failed = true;
+                    continue;
+                }
+                failed |= !exporter.exportFile(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], calc);
+            }
+        } catch (IOException e)
+        {
+            System.err.println(batch + ": " + e.getMessage());
+            failed = true;
+        }
+        if (failed)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Graphs functions over the given range and writes the graph to a file, reporting errors on the standard error.
+     * 
+     * @param output
+     *            - the name of the file.
+     * @param functions
+     *            - the functions to graph, separated by semicolons.
+     * @param xMin
+     *            - the expression for the smallest value of x.
+     * @param xMax
+     *            - the expression for the largest value of x.
+     * @param yMin
+     *            - the expression for the smallest value of y.
+     * @param yMax
+     *            - the expression for the largest value of y.
+     * @param calc
+     *            - the calculator used to evaluate the expressions.
+     * @return true if the graph was written.
+     */
+    private boolean exportFile(String output, String functions, String xMin, String xMax, String yMin, String yMax,
+            Calculator calc)
+    {
+        Format format = formatOf(output);
+        List<String> list = GraphRenderer.splitFunctions(functions);
+        if (format == null)
+        {
+            System.err.println(output + ": unknown format, expected .png, .svg or .txt.");
+            return false;
+        } else if (list.isEmpty())
+        {
+            System.err.println(output + ": no function to graph.");
+            return false;
+        }
+        try
+        {
+            // The graph is drawn before the file is opened, so a graph which fails leaves no file behind.
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            export(list, GraphRenderer.normalize(xMin), GraphRenderer.normalize(xMax), GraphRenderer.normalize(yMin),
+                    GraphRenderer.normalize(yMax), calc, format, buffer);
+            try (OutputStream out = new FileOutputStream(output))
+            {
+                buffer.writeTo(out);
+            }
+            return true;
+        } catch (CalculatorError e)
+        {
+            System.err.println(output + ": " + e.getError().getMessage());
+        } catch (ArithmeticException e)
+        {
+            System.err.println(output + ": " + ErrorType.overflow.getMessage());
+        } catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println(output + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Prints how to use the command line.
+     */
+    private static void usage()
+    {
+        System.err.println("Usage: GraphExporter [-w width] [-h height] [-t thickness] [-s spacing] [-d] "
+                + "output function xmin xmax ymin ymax");
+        System.err.println("       GraphExporter [-w width] [-h height] [-t thickness] [-s spacing] [-d] -b batchfile");
+    }
+
+    /**
+     * Writes the pixels of a raster as a PNG image.
+     * 
+     * @param raster
+     *            - the raster.
+     * @param out
+     *            - the stream the image is written to.
+     * @throws IOException
+     */
+    private static void writePng(Raster raster, OutputStream out) throws IOException
+    {
+        int columns = raster.getColumns();
+        int rows = raster.getRows();
+        BufferedImage image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, columns, rows, raster.getPixels(), 0, columns);
+        ImageIO.write(image, "png", out);
+    }
+
+    /**
+     * Writes a graph as an SVG image. The background and the axes are drawn as in the raster, and each curve as a path
+     * through the values of its function at the edges of the columns, which is broken where the function is undefined
+     * or discontinuous.
+     * 
+     * @param renderer
+     *            - the renderer which drew the graph.
+     * @param raster
+     *            - the raster it drew into.
+     * @param out
+     *            - the stream the image is written to.
+     * @throws IOException
+     */
+    private void writeSvg(GraphRenderer renderer, Raster raster, OutputStream out) throws IOException
+    {
+        int columns = raster.getColumns();
+        int rows = raster.getRows();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + columns + "\" height=\"" + rows
+                + "\" viewBox=\"-0.5 -0.5 " + columns + " " + rows + "\">\n");
+        writer.write("<rect x=\"-0.5\" y=\"-0.5\" width=\"" + columns + "\" height=\"" + rows + "\" fill=\""
+                + toHex(Raster.BACKGROUND) + "\"/>\n");
+
+        // The axes are as thick as in the raster.
+        double axisRow = renderer.getRow(0);
+        double axisColumn = renderer.getColumn(0);
+        if (axisRow > -0.5 && axisRow < rows - 0.5)
+        {
+            writer.write("<line x1=\"-0.5\" y1=\"" + format(axisRow) + "\" x2=\"" + format(columns - 0.5) + "\" y2=\""
+                    + format(axisRow) + "\" stroke=\"" + toHex(Raster.AXIS) + "\" stroke-width=\""
+                    + format(2 * AXIS_HALF_THICKNESS * spacing) + "\"/>\n");
+        }
+        if (axisColumn > -0.5 && axisColumn < columns - 0.5)
+        {
+            writer.write("<line x1=\"" + format(axisColumn) + "\" y1=\"-0.5\" x2=\"" + format(axisColumn) + "\" y2=\""
+                    + format(rows - 0.5) + "\" stroke=\"" + toHex(Raster.AXIS) + "\" stroke-width=\""
+                    + format(2 * AXIS_HALF_THICKNESS) + "\"/>\n");
+        }
+
+        writer.write("<g fill=\"none\" stroke-width=\"" + format((thickness + 0.2) * spacing)
+                + "\" stroke-linecap=\"round\" stroke-linejoin=\"round\">\n");
+        for (int f = 0; f < renderer.getFunctionCount(); f++)
+        {
+            StringBuilder path = new StringBuilder();
+            boolean drawing = false;
+            for (int j = 0; j < renderer.getEdgeCount(); j++)
+            {
+                double value = renderer.getValue(f, j);
+                if (Double.isNaN(value))
+                {
+                    drawing = false;
+                    continue;
+                }
+                // Values far off the graph are moved closer, which keeps the path in range without visibly changing
+                // its slope.
+                double row = java.lang.Math.max(-FAR_ROWS, java.lang.Math.min(renderer.getRow(value), FAR_ROWS));
+                path.append(drawing ? " L" : " M").append(format(renderer.getEdgePosition(j))).append(',')
+                        .append(format(row));
+                drawing = j >= renderer.getEdgeCount() - 1 || !renderer.isBroken(f, j);
+            }
+            if (path.length() > 0)
+            {
+                writer.write("<path stroke=\"" + toHex(Raster.CURVES[f % Raster.CURVES.length]) + "\" d=\""
+                        + path.substring(1) + "\"/>\n");
+            }
+        }
+        writer.write("</g>\n</svg>\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes the pixels of a raster as text, one character per pixel and one line per row. Pixels mostly covered by
+     * the curves are #, and the axes are -, | and + at the origin.
+     * 
+     * @param raster
+     *            - the raster.
+     * @param out
+     *            - the stream the text is written to.
+     * @throws IOException
+     */
+    private static void writeAscii(Raster raster, OutputStream out) throws IOException
+    {
+        int columns = raster.getColumns();
+        int rows = raster.getRows();
+        char[] line = new char[columns + 1];
+        line[columns] = '\n';
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (int row = 0; row < rows; row++)
+        {
+            for (int i = 0; i < columns; i++)
+            {
+                if (raster.getCurveCoverage(row, i) >= 0.5)
+                {
+                    line[i] = '#';
+                } else if (raster.isAxisRow(row) && raster.isAxisColumn(i))
+                {
+                    line[i] = '+'; // The origin.
+                } else if (raster.isAxisRow(row))
+                {
+                    line[i] = '-';
+                } else if (raster.isAxisColumn(i))
+                {
+                    line[i] = '|';
+                } else
+                {
+                    line[i] = ' ';
+                }
+            }
+            writer.write(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Returns a number with two decimals for SVG output.
+     * 
+     * @param value
+     *            - the number.
+     * @return the formatted number.
+     */
+    private static String format(double value)
+    {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Returns an opaque ARGB color in the #rrggbb form.
+     * 
+     * @param color
+     *            - the color.
+     * @return the formatted color.
+     */
+    private static String toHex(int color)
+    {
+        return String.format("#%06x", color & 0xFFFFFF);
+    }
+
+    /**
+     * The half thickness of the axes in pixels, as drawn by the renderer.
+     */
+    private static final double AXIS_HALF_THICKNESS = 0.6;
+
+    /**
+     * The distance in rows from the top of the graph past which the points of a path are moved closer.
+     */
+    private static final double FAR_ROWS = 1e6;
+
+    /**
+     * The width of the graphs in pixels.
+     */
+    private final int width;
+
+    /**
+     * The height of the graphs in pixels.
+     */
+    private final int height;
+
+    /**
+     * The thickness of the curves.
+     */
+    private final double thickness;
+
+    /**
+     * The number of pixels covered by each sampled column.
+     */
+    private final double spacing;
+
+    /**
+     * The raster of the last graph, which is reused by the next one of the same size.
+     */
+    private Raster raster;
+
+    /**
+     * The samples of the last graph.
+     */
+    private final GraphCache cache;
+}
@@ -0,0 +1,952 @@
+package graphing;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import calculator.Calculator;
+import calculator.CalculatorEngine;
+import calculator.CalculatorError;
+import calculator.Interval;
+import calculator.Session;
+import calculator.Utility;
+import calculator.ast.Expression;
+import calculator.ast.ExpressionGroup;
+
+/**
+ * Samples functions over a viewport and rasterizes their graph, independently of any user interface. The renderer
+ * evaluates the functions with an engine and a session which must not be changed while it runs. A coarse graph is
+ * drawn first and refined in passes, each reusing the samples of the previous ones, and the raster is handed to a
+ * listener after each pass. A renderer can be cancelled at any time from another thread, after which the edges not yet
+ * sampled are skipped and no more passes are drawn. Once a graph is done, the samples of its last pass are kept for
+ * vector output. The samples of earlier graphs are taken from the cache of the renderer's owner, and only replace
+ * evaluations, so a graph only depends on its range and functions, and not on the graphs drawn before it.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class GraphRenderer
+{
+
+    /**
+     * The distance between the edges sampled by the first, coarsest pass of a graph. The function is assumed to be
+     * smooth between these edges.
+     */
+    static final int COARSEST_STRIDE = 8;
+
+    /**
+     * The number of rows by which the enclosure of a column may stray from the band between its sampled ends before
+     * it is checked for being loose.
+     */
+    static final int COVER_SLACK_ROWS = 2;
+
+    /**
+     * Initializes the renderer to graph functions over the given range, each in its own color.
+     * 
+     * @param width
+     *            - the width of the graph in pixels.
+     * @param height
+     *            - the height of the graph in pixels.
+     * @param thickness
+     *            - the thickness of the curves.
+     * @param spacing
+     *            - the number of pixels covered by each sampled column.
+     * @param functions
+     *            - the functions to graph.
+     * @param xMin
+     *            - the expression for the smallest value of x.
+     * @param xMax
+     *            - the expression for the largest value of x.
+     * @param yMin
+     *            - the expression for the smallest value of y.
+     * @param yMax
+     *            - the expression for the largest value of y.
+     * @param engine
+     *            - the engine used to evaluate the expressions.
+     * @param session
+     *            - the session used to evaluate the expressions.
+     */
+    public GraphRenderer(double width, double height, double thickness, double spacing, List<String> functions,
+            String xMin, String xMax, String yMin, String yMax, CalculatorEngine engine, Session session)
+    {
+        this.width = width;
+        this.height = height;
+        this.thickness = thickness;
+        this.spacing = spacing;
+        this.functions = functions;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        this.engine = engine;
+        this.session = session;
+        this.errorIndex = new AtomicInteger(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the functions separated by semicolons in text, each prepared for evaluation as in normalize. Empty
+     * functions are dropped.
+     * 
+     * @param text
+     *            - the text.
+     * @return the functions in text.
+     */
+    public static List<String> splitFunctions(String text)
+    {
+        List<String> functions = new ArrayList<String>();
+        for (String part : text.split(";"))
+        {
+            String function = normalize(part);
+            if (!function.isEmpty())
+            {
+                functions.add(function);
+            }
+        }
+        return functions;
+    }
+
+    /**
+     * Prepares an expression typed by the user for evaluation, by removing its white space and making its implicit
+     * multiplications explicit.
+     * 
+     * @param expression
+     *            - the expression.
+     * @return the prepared expression.
+     */
+    public static String normalize(String expression)
+    {
+        return Utility.addImplicitMultiplication(Utility.removeWhiteSpace(expression));
+    }
+
+    /**
+     * Cancels the graph. The edges not yet sampled are skipped, and no frame is drawn after the one in progress.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        // Marking the first edge as failed makes the edges not yet sampled be skipped.
+        errorIndex.set(0);
+    }
+
+    /**
+     * Returns true if the graph was cancelled.
+     * 
+     * @return cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Draws the graph into a raster, passing it to frames after each pass. The raster is replaced by a new one if it is
+     * null or does not have one more column and row than the width and height of the graph. Nothing is drawn if the
+     * range is invalid, and nothing more once the graph is cancelled.
+     * 
+     * @param raster
+     *            - the raster to draw into, which may be null.
+     * @param graphCache
+     *            - the samples of the earlier graphs of the same owner, which are reused and replaced by those of
+     *            this graph.
+     * @param frames
+     *            - the listener which is passed the raster after each pass, on the thread drawing the graph.
+     * @return the raster drawn into.
+     * @throws CalculatorError
+     *             if one of the functions fails.
+     * @throws IllegalArgumentException
+     *             if the range is invalid, with a message describing why.
+     */
+    public Raster render(Raster raster, GraphCache graphCache, Consumer<Raster> frames) throws CalculatorError,
+            ArithmeticException
+    {
+        // Checks for valid xMax, xMin, yMax, yMin.
+        BigDecimal xMinValue, xMaxValue, yMinValue, yMaxValue;
+        try
+        {
+            xMinValue = engine.compute(xMin, session);
+        } catch (CalculatorError e)
+        {
+            throw new IllegalArgumentException("Invalid xmin value.");
+        }
+        try
+        {
+            xMaxValue = engine.compute(xMax, session);
+        } catch (CalculatorError e)
+        {
+            throw new IllegalArgumentException("Invalid xmax value.");
+        }
+        try
+        {
+            yMinValue = engine.compute(yMin, session);
+        } catch (CalculatorError e)
+        {
+            throw new IllegalArgumentException("Invalid ymin value.");
+        }
+        try
+        {
+            yMaxValue = engine.compute(yMax, session);
+        } catch (CalculatorError e)
+        {
+            throw new IllegalArgumentException("Invalid ymax value.");
+        }
+
+        // Checks for xMax > xMin
+        if (xMaxValue.compareTo(xMinValue) <= 0)
+        {
+            throw new IllegalArgumentException("xmax must be greater than xmin.");
+        }
+
+        // Checks for yMax > yMin
+        if (yMaxValue.compareTo(yMinValue) <= 0)
+        {
+            throw new IllegalArgumentException("ymax must be greater than ymin.");
+        }
+
+        // Compile the functions once for all edges, sharing their common subexpressions.
+        ExpressionGroup group = engine.compile(functions, session);
+        int size = group.size();
+
+        // Graph the functions
+        MathContext mc = engine.getMath().getMathContext();
+        BigDecimal dx = (xMaxValue.subtract(xMinValue)).divide(new BigDecimal(width), mc);
+        BigDecimal dy = (yMaxValue.subtract(yMinValue)).divide(new BigDecimal(height), mc);
+        BigDecimal spacingValue = new BigDecimal(spacing);
+        BigDecimal halfThickness = new BigDecimal((thickness / 2) + 0.1);
+
+        if (raster == null || !raster.hasSize((int) width + 1, (int) height + 1))
+        {
+            raster = new Raster((int) width + 1, (int) height + 1);
+        }
+
+        // The samples of the last graph are reused as long as the functions and the width of the columns stay the same.
+        int columns = (int) width / (int) spacing + 1;
+        BigDecimal step = dx.multiply(new BigDecimal((int) spacing), mc);
+        BigDecimal start = xMinValue.subtract(dx.divide(TWO, mc));
+        SampleCache cache = graphCache.take();
+        if (cache == null || !cache.matches(functions, engine, session, start, step))
+        {
+            cache = new SampleCache(functions, engine, session, start, step);
+        }
+        int index = cache.indexOf(start);
+        int phase = phaseOf(start, step);
+        try
+        {
+            BigDecimal curveHalfWidth = dy.multiply(halfThickness.multiply(spacingValue, mc), mc);
+            raster.setRows(yMaxValue, dy, dy.multiply(AXIS_HALF_THICKNESS.multiply(spacingValue, mc), mc),
+                    curveHalfWidth);
+
+            // The functions are sampled together once at each edge between columns, and each column covers the
+            // values at its two edges. The graph is drawn in passes from coarse to fine, each halving the groups of
+            // columns between known edges. The middle edge of a group is only sampled where one of the curves is
+            // steep or bends, or where its enclosure strays from the band between the ends of the group, and is
+            // interpolated elsewhere. Edges between columns whose enclosures are off the graph for every function are
+            // not sampled. The edges of each pass are sampled in parallel, and the graph is redrawn after each pass.
+            // The groups are aligned with the multiples of step rather than with the ends of the graph, so that a
+            // graph moved by whole columns splits the same groups as before and finds their edges in the cache. The
+            // edges to sample are chosen as if the cache were empty, and the cache only spares evaluating them.
+            BigDecimal axisHalfWidth = dx.multiply(AXIS_HALF_THICKNESS, mc);
+            for (int k = 0; k < columns; k++)
+            {
+                BigDecimal x = xMinValue.add(step.multiply(new BigDecimal(k)));
+                raster.setAxisColumns(k * (int) spacing, (int) spacing, x.abs().compareTo(axisHalfWidth) < 0);
+            }
+            BigDecimal[][] values =
+                    engine.getPrecision() == Calculator.Precision.doublePrecision ? null
+                            : new BigDecimal[size][columns + 1];
+            double[][] estimates = new double[size][columns + 1];
+            boolean[] known = new boolean[columns + 1];
+            boolean[][] breaks = new boolean[size][columns];
+            double threshold = dy.doubleValue();
+            double bottom = yMinValue.doubleValue() - curveHalfWidth.doubleValue() - threshold;
+            double top = yMaxValue.doubleValue() + curveHalfWidth.doubleValue() + threshold;
+            // Without enclosures, every column is sampled as if the function were on the graph there.
+            double[][] lower = new double[size][];
+            double[][] upper = new double[size][];
+            double[] x = new double[columns + 1];
+            for (int j = 0; j <= columns; j++)
+            {
+                x[j] = start.add(step.multiply(new BigDecimal(j))).doubleValue();
+            }
+            for (int f = 0; f < size; f++)
+            {
+                lower[f] = new double[columns];
+                upper[f] = new double[columns];
+                try
+                {
+                    encloseColumns(group.getFunction(f), f, x, cache, index, phase, 0, columns, bottom, top, lower[f],
+                            upper[f]);
+                } catch (CalculatorError | ArithmeticException e)
+                {
+                    // Whether a function can be enclosed may depend on the range of x, so it is tried again by each
+                    // graph.
+                    lower[f] = null;
+                    upper[f] = null;
+                }
+            }
+            if (cancelled)
+            {
+                return raster;
+            }
+            int[] edges = new int[columns / 2 + 2];
+            for (int stride = COARSEST_STRIDE; stride >= 1; stride /= 2)
+            {
+                int count = 0;
+                if (stride == COARSEST_STRIDE)
+                {
+                    // Samples the ends of the graph and the edges on the grid of the cache in between.
+                    for (int j = 0; j < columns + stride; j += stride - java.lang.Math.floorMod(phase + j, stride))
+                    {
+                        int edge = java.lang.Math.min(j, columns);
+                        int left = java.lang.Math.max(edge - 1, 0);
+                        int right = java.lang.Math.min(edge + 1, columns);
+                        boolean visible = false;
+                        for (int f = 0; f < size; f++)
+                        {
+                            visible |= isVisible(lower[f], upper[f], left, right);
+                        }
+                        if (visible)
+                        {
+                            edges[count++] = edge;
+                        } else
+                        {
+                            for (int f = 0; f < size; f++)
+                            {
+                                estimates[f][edge] = Double.NaN;
+                            }
+                        }
+                    }
+                } else
+                {
+                    for (int j = java.lang.Math.floorMod(stride - phase, 2 * stride); j < columns; j += 2 * stride)
+                    {
+                        int left = java.lang.Math.max(j - stride, 0);
+                        int right = java.lang.Math.min(j + stride, columns);
+                        if (j == 0 || known[j])
+                        {
+                            continue;
+                        }
+                        boolean sample = false;
+                        for (int f = 0; f < size && !sample; f++)
+                        {
+                            sample =
+                                    isVisible(lower[f], upper[f], left, right)
+                                            && needsSample(estimates[f], lower[f], upper[f], left, right, 2 * stride,
+                                                    threshold, bottom, top);
+                        }
+                        if (sample)
+                        {
+                            edges[count++] = j;
+                            continue;
+                        }
+                        for (int f = 0; f < size; f++)
+                        {
+                            if (!isVisible(lower[f], upper[f], left, right))
+                            {
+                                // Interpolating across a group off the graph could join values on opposite sides
+                                // of it.
+                                estimates[f][j] = Double.NaN;
+                                if (values != null)
+                                {
+                                    values[f][j] = null;
+                                }
+                            } else
+                            {
+                                estimates[f][j] = (estimates[f][left] + estimates[f][right]) / 2;
+                                if (values != null)
+                                {
+                                    values[f][j] =
+                                            values[f][left] == null ? null : values[f][left].add(values[f][right])
+                                                    .divide(TWO, mc);
+                                }
+                            }
+                        }
+                    }
+                }
+                int sampled = 0;
+                for (int i = 0; i < count; i++)
+                {
+                    if (cache.loadSample(index + edges[i], edges[i], values, estimates))
+                    {
+                        known[edges[i]] = true;
+                    } else
+                    {
+                        edges[sampled++] = edges[i];
+                    }
+                }
+                count = sampled;
+                SampleTask task =
+                        new SampleTask(group, engine, session, start, step, edges, values, estimates, errorIndex, 0,
+                                count);
+                invoke(task);
+                if (cancelled)
+                {
+                    return raster;
+                }
+
+                // The edges to the right of an error are not sampled, so the graph stops at the first pass which fails.
+                task.checkError();
+                for (int i = 0; i < count; i++)
+                {
+                    known[edges[i]] = true;
+                }
+                cache.storeSamples(index, edges, count, values, estimates);
+
+                // Once every column is known, the columns across which a curve jumps by more than BREAK_ROWS rows are
+                // checked for discontinuities of its function, so that asymptotes are not drawn as walls.
+                if (stride == 1)
+                {
+                    for (int f = 0; f < size; f++)
+                    {
+                        count = 0;
+                        for (int k = 0; k < columns; k++)
+                        {
+                            if (!(java.lang.Math.abs(estimates[f][k + 1] - estimates[f][k]) <= BREAK_ROWS * threshold)
+                                    && !Double.isNaN(estimates[f][k]) && !Double.isNaN(estimates[f][k + 1])
+                                    && isVisible(lower[f], upper[f], k, k + 1))
+                            {
+                                if (known[k] && known[k + 1] && cache.isSearched(f, index + k))
+                                {
+                                    breaks[f][k] = cache.isBroken(f, index + k);
+                                    continue;
+                                } else if (count == edges.length)
+                                {
+                                    edges = Arrays.copyOf(edges, 2 * count);
+                                }
+                                edges[count++] = k;
+                            }
+                        }
+                        invoke(new BreakTask(group.getFunction(f), engine, session, start, step, edges, estimates[f],
+                                breaks[f], errorIndex, 0, count));
+                        if (cancelled)
+                        {
+                            return raster;
+                        }
+
+                        // Searches between interpolated values are not kept, as their results depend on the range of
+                        // y.
+                        for (int i = 0; i < count; i++)
+                        {
+                            if (known[edges[i]] && known[edges[i] + 1])
+                            {
+                                cache.storeBreak(f, index + edges[i], breaks[f][edges[i]]);
+                            }
+                        }
+                    }
+                }
+                for (int k = 0; k < columns; k += stride)
+                {
+                    int next = java.lang.Math.min(k + stride, columns);
+                    raster.clearColumns(k * (int) spacing, (next - k) * (int) spacing);
+                    for (int f = 0; f < size; f++)
+                    {
+                        // Once the columns are final, each is drawn over the whole of its enclosure, so that a spike
+                        // between its edges is not missed. Unbounded enclosures are only drawn where the function
+                        // becomes undefined, rather than across an asymptote, and loose enclosures are not drawn.
+                        BigDecimal valueMinus = getValue(values, estimates, f, k);
+                        BigDecimal valuePlus = getValue(values, estimates, f, next);
+                        BigDecimal coverLower = null;
+                        BigDecimal coverUpper = null;
+                        if (stride == 1 && lower[f] != null && lower[f][k] <= upper[f][k] && !breaks[f][k]
+                                && ((lower[f][k] > Double.NEGATIVE_INFINITY && upper[f][k] < Double.POSITIVE_INFINITY)
+                                        || valueMinus == null || valuePlus == null)
+                                && isCoverTight(group.getFunction(f), x, k, lower[f][k], upper[f][k], estimates[f][k],
+                                        estimates[f][next], COVER_SLACK_ROWS * threshold))
+                        {
+                            coverLower = BigDecimal.valueOf(java.lang.Math.max(lower[f][k], bottom));
+                            coverUpper = BigDecimal.valueOf(java.lang.Math.min(upper[f][k], top));
+                        }
+                        raster.drawColumn(k * (int) spacing, (next - k) * (int) spacing,
+                                Raster.CURVES[f % Raster.CURVES.length], valueMinus, valuePlus, breaks[f][k],
+                                coverLower, coverUpper);
+                    }
+                }
+                frames.accept(raster);
+            }
+
+            // The samples of the last pass are kept for vector output.
+            this.values = estimates;
+            this.breaks = breaks;
+            this.columns = columns;
+            this.xMinValue = xMinValue.doubleValue();
+            this.yMaxValue = yMaxValue.doubleValue();
+            this.dx = dx.doubleValue();
+            this.dy = dy.doubleValue();
+            return raster;
+        } finally
+        {
+            graphCache.give(cache);
+        }
+    }
+
+    /**
+     * Returns the number of functions graphed.
+     * 
+     * @return the number of functions.
+     */
+    int getFunctionCount()
+    {
+        return values.length;
+    }
+
+    /**
+     * Returns the number of edges between the sampled columns of the graph.
+     * 
+     * @return the number of edges.
+     */
+    int getEdgeCount()
+    {
+        return columns + 1;
+    }
+
+    /**
+     * Returns the value of a function at an edge, which is NaN if it is undefined there or off the graph.
+     * 
+     * @param f
+     *            - the index of the function.
+     * @param j
+     *            - the index of the edge.
+     * @return the value of function f at edge j.
+     */
+    double getValue(int f, int j)
+    {
+        return values[f][j];
+    }
+
+    /**
+     * Returns true if a function is discontinuous in a column.
+     * 
+     * @param f
+     *            - the index of the function.
+     * @param k
+     *            - the index of the column, between edges k and k+1.
+     * @return true if the column is broken.
+     */
+    boolean isBroken(int f, int k)
+    {
+        return breaks[f][k];
+    }
+
+    /**
+     * Returns the horizontal position of an edge in pixels, measured from the center of the leftmost pixel.
+     * 
+     * @param j
+     *            - the index of the edge.
+     * @return the position of edge j.
+     */
+    double getEdgePosition(int j)
+    {
+        return j * (int) spacing - 0.5;
+    }
+
+    /**
+     * Returns the horizontal position of a value of x in pixels, measured from the center of the leftmost pixel.
+     * 
+     * @param x
+     *            - the value of x.
+     * @return the position of x.
+     */
+    double getColumn(double x)
+    {
+        return (x - xMinValue) / dx;
+    }
+
+    /**
+     * Returns the vertical position of a value of y in pixels, measured down from the center of the top pixel.
+     * 
+     * @param y
+     *            - the value of y.
+     * @return the position of y.
+     */
+    double getRow(double y)
+    {
+        return (yMaxValue - y) / dy;
+    }
+
+    /**
+     * Encloses the values of a function over the columns from (inclusive) to to (exclusive) by splitting them in
+     * halves. Columns whose enclosures lie off the graph are given empty enclosures, and so are the halves of a range
+     * whose enclosure lies off the graph, which are not split further. Ranges are split at the edge whose multiple of
+     * step is the multiple of the largest power of two, so that graphs moved by whole columns split them in the same
+     * places, and find most of their enclosures in the cache.
+     * 
+     * @param function
+     *            - the function to be graphed.
+     * @param f
+     *            - the index of the function in the cache.
+     * @param x
+     *            - the values of x of the edges.
+     * @param cache
+     *            - the cache of enclosures.
+     * @param index
+     *            - the index on the grid of the cache of the first edge.
+     * @param phase
+     *            - the alignment of the first edge, as returned by phaseOf.
+     * @param from
+     *            - the first column.
+     * @param to
+     *            - the column after the last.
+     * @param bottom
+     *            - the smallest value on the graph.
+     * @param top
+     *            - the largest value on the graph.
+     * @param lower
+     *            - the lower bounds of the enclosures of the columns.
+     * @param upper
+     *            - the upper bounds of the enclosures of the columns.
+     * @throws CalculatorError
+     */
+    private void encloseColumns(Expression function, int f, double[] x, SampleCache cache, int index, int phase,
+            int from, int to, double bottom, double top, double[] lower, double[] upper) throws CalculatorError
+    {
+        if (cancelled)
+        {
+            return;
+        }
+        Interval range = cache.getEnclosure(f, index + from, index + to);
+        if (range == null)
+        {
+            range =
+                    engine.evaluateInterval(function,
+                            new Interval(java.lang.Math.nextDown(x[from]), java.lang.Math.nextUp(x[to])), session);
+            cache.storeEnclosure(f, index + from, index + to, range);
+        }
+        if (range.isEmpty() || range.getLower() > top || range.getUpper() < bottom)
+        {
+            Arrays.fill(lower, from, to, Double.POSITIVE_INFINITY);
+            Arrays.fill(upper, from, to, Double.NEGATIVE_INFINITY);
+        } else if (to - from == 1)
+        {
+            lower[from] = range.getLower();
+            upper[from] = range.getUpper();
+        } else
+        {
+            int last = phase + to - 1;
+            int middle = (last & -Integer.highestOneBit((phase + from) ^ last)) - phase;
+            encloseColumns(function, f, x, cache, index, phase, from, middle, bottom, top, lower, upper);
+            encloseColumns(function, f, x, cache, index, phase, middle, to, bottom, top, lower, upper);
+        }
+    }
+
+    /**
+     * Returns true if the enclosure of a column may be drawn as its cover. An enclosure which strays from the band
+     * between the sampled ends of the column by more than slack is only kept if the enclosures of the function at its
+     * defined ends are within slack, so that a spike is drawn but an enclosure which stays loose at a single point,
+     * such as that of an integral with a variable bound, is not.
+     * 
+     * @param function
+     *            - the function enclosed.
+     * @param x
+     *            - the values of x of the edges.
+     * @param k
+     *            - the column.
+     * @param lower
+     *            - the lower bound of the enclosure of the column.
+     * @param upper
+     *            - the upper bound of the enclosure of the column.
+     * @param minus
+     *            - the value of the function at the left edge of the column, or NaN if it is undefined there.
+     * @param plus
+     *            - the value of the function at the right edge of the column, or NaN if it is undefined there.
+     * @param slack
+     *            - the distance in y within which an enclosure is tight.
+     * @return true if the enclosure may be drawn.
+     */
+    private boolean isCoverTight(Expression function, double[] x, int k, double lower, double upper, double minus,
+            double plus, double slack)
+    {
+        if (Double.isNaN(minus) && Double.isNaN(plus))
+        {
+            return true;
+        }
+        double bandLower = Double.isNaN(minus) ? plus : Double.isNaN(plus) ? minus : java.lang.Math.min(minus, plus);
+        double bandUpper = Double.isNaN(minus) ? plus : Double.isNaN(plus) ? minus : java.lang.Math.max(minus, plus);
+        if (lower >= bandLower - slack && upper <= bandUpper + slack)
+        {
+            return true;
+        }
+        return (Double.isNaN(minus) || isPointTight(function, x[k], slack))
+                && (Double.isNaN(plus) || isPointTight(function, x[k + 1], slack));
+    }
+
+    /**
+     * Returns true if the enclosure of the function over the smallest interval around a value of x is narrower than
+     * slack.
+     * 
+     * @param function
+     *            - the function enclosed.
+     * @param x
+     *            - the value of x.
+     * @param slack
+     *            - the distance in y within which an enclosure is tight.
+     * @return true if the enclosure at x is tight.
+     */
+    private boolean isPointTight(Expression function, double x, double slack)
+    {
+        try
+        {
+            Interval range =
+                    engine.evaluateInterval(function,
+                            new Interval(java.lang.Math.nextDown(x), java.lang.Math.nextUp(x)), session);
+            return range.isEmpty() || range.getUpper() - range.getLower() <= slack;
+        } catch (CalculatorError | ArithmeticException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the alignment of the groups of columns of a graph, which is the index of its first edge among the
+     * multiples of step, reduced modulo PHASE_PERIOD. It only depends on the range of the graph, and grows by one for
+     * each column the graph is moved to the right.
+     * 
+     * @param start
+     *            - the value of x of the first edge.
+     * @param step
+     *            - the distance in x between edges.
+     * @return the alignment of the first edge.
+     */
+    private static int phaseOf(BigDecimal start, BigDecimal step)
+    {
+        BigDecimal[] division = start.divideAndRemainder(step);
+        BigInteger multiple = division[0].toBigInteger();
+        if (division[1].signum() < 0)
+        {
+            multiple = multiple.subtract(BigInteger.ONE);
+        }
+        return multiple.mod(PHASE_PERIOD).intValue();
+    }
+
+    /**
+     * Returns true if the function may be on the graph in one of the columns from (inclusive) to to (exclusive).
+     * 
+     * @param lower
+     *            - the lower bounds of the enclosures of the columns, or null if they are unknown.
+     * @param upper
+     *            - the upper bounds of the enclosures of the columns.
+     * @param from
+     *            - the first column.
+     * @param to
+     *            - the column after the last.
+     * @return true if one of the columns may be on the graph.
+     */
+    private static boolean isVisible(double[] lower, double[] upper, int from, int to)
+    {
+        if (lower == null)
+        {
+            return true;
+        }
+        for (int k = from; k < to; k++)
+        {
+            if (lower[k] <= upper[k])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the middle edge of a group of columns must be sampled rather than interpolated. This is the case
+     * if the function is defined at only one end of the group, if it changes by more than threshold across the group,
+     * or if it bends by more than threshold between the group and the groups of the same size next to it, which is
+     * only checked for groups not cut short by the ends of the graph. If the enclosures of the columns are known, the
+     * group is also split if none of its ends is defined but the function may be on the graph inside it, or if the
+     * enclosure of the group strays more than threshold out of the range between the values at its ends.
+     * 
+     * @param estimates
+     *            - the values at the edges as doubles.
+     * @param lower
+     *            - the lower bounds of the enclosures of the columns, or null if they are unknown.
+     * @param upper
+     *            - the upper bounds of the enclosures of the columns.
+     * @param left
+     *            - the edge at the left end of the group.
+     * @param right
+     *            - the edge at the right end of the group.
+     * @param size
+     *            - the number of columns in a group which is not cut short.
+     * @param threshold
+     *            - the largest change in the function which can be interpolated over.
+     * @param bottom
+     *            - the smallest value on the graph.
+     * @param top
+     *            - the largest value on the graph.
+     * @return true if the group must be split.
+     */
+    private static boolean needsSample(double[] estimates, double[] lower, double[] upper, int left, int right,
+            int size, double threshold, double bottom, double top)
+    {
+        double rangeLower = Double.POSITIVE_INFINITY;
+        double rangeUpper = Double.NEGATIVE_INFINITY;
+        if (lower != null)
+        {
+            for (int k = left; k < right; k++)
+            {
+                rangeLower = java.lang.Math.min(rangeLower, lower[k]);
+                rangeUpper = java.lang.Math.max(rangeUpper, upper[k]);
+            }
+        }
+
+        double valueLeft = estimates[left];
+        double valueRight = estimates[right];
+        if (Double.isNaN(valueLeft) || Double.isNaN(valueRight))
+        {
+            return Double.isNaN(valueLeft) != Double.isNaN(valueRight) || lower != null;
+        }
+        if (!(java.lang.Math.abs(valueRight - valueLeft) <= threshold))
+        {
+            return true;
+        }
+
+        // Compares the group with the groups of the same size on each side. Undefined values never bend.
+        if (right - left == size && left - size >= 0
+                && java.lang.Math.abs(estimates[left - size] - 2 * valueLeft + valueRight) > threshold)
+        {
+            return true;
+        }
+        if (right - left == size && right + size < estimates.length
+                && java.lang.Math.abs(valueLeft - 2 * valueRight + estimates[right + size]) > threshold)
+        {
+            return true;
+        }
+        return lower != null
+                && (java.lang.Math.max(rangeLower, bottom) < java.lang.Math.min(valueLeft, valueRight) - threshold
+                || java.lang.Math.min(rangeUpper, top) > java.lang.Math.max(valueLeft, valueRight) + threshold);
+    }
+
+    /**
+     * Returns the value of a function at an edge as a BigDecimal.
+     * 
+     * @param values
+     *            - the values of the functions at the edges in decimal precision, or null in double precision.
+     * @param estimates
+     *            - the values of the functions at the edges as doubles.
+     * @param f
+     *            - the index of the function.
+     * @param j
+     *            - the index of the edge.
+     * @return the value of function f at edge j, or null if the function is undefined there.
+     */
+    private static BigDecimal getValue(BigDecimal[][] values, double[][] estimates, int f, int j)
+    {
+        if (values != null)
+        {
+            return values[f][j];
+        }
+        return Double.isNaN(estimates[f][j]) ? null : BigDecimal.valueOf(estimates[f][j]);
+    }
+
+    /**
+     * Runs task in the ForkJoinPool, in the current one if there is one and in the common pool otherwise.
+     * 
+     * @param task
+     *            - the task.
+     */
+    private static void invoke(ForkJoinTask<?> task)
+    {
+        if (ForkJoinTask.inForkJoinPool())
+        {
+            task.invoke();
+        } else
+        {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    private static final BigDecimal AXIS_HALF_THICKNESS = new BigDecimal("0.6");
+
+    private static final BigDecimal TWO = new BigDecimal("2");
+
+    /**
+     * The number of rows the curve must jump across a column for the column to be checked for a discontinuity.
+     */
+    private static final int BREAK_ROWS = 4;
+
+    /**
+     * The period of the alignment of the groups of columns. It is a power of two, larger than any group, and small
+     * enough that the index of an edge plus the alignment fits in an int.
+     */
+    private static final BigInteger PHASE_PERIOD = BigInteger.ONE.shiftLeft(30);
+
+    /**
+     * The width of the graph in pixels.
+     */
+    private final double width;
+
+    /**
+     * The height of the graph in pixels.
+     */
+    private final double height;
+
+    /**
+     * The thickness of the curve.
+     */
+    private final double thickness;
+
+    /**
+     * The number of pixels covered by each sampled column.
+     */
+    private final double spacing;
+
+    /**
+     * The functions to graph.
+     */
+    private final List<String> functions;
+
+    /**
+     * The expressions for the limits of the graph.
+     */
+    private final String xMin, xMax, yMin, yMax;
+
+    /**
+     * The engine used to evaluate the expressions.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session used to evaluate the expressions.
+     */
+    private final Session session;
+
+    /**
+     * The index of the leftmost edge known to fail, shared with the tasks sampling the edges.
+     */
+    private final AtomicInteger errorIndex;
+
+    /**
+     * Whether the graph has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The values of the functions at the edges of the last pass.
+     */
+    private double[][] values;
+
+    /**
+     * Whether each function is discontinuous in each column of the last pass.
+     */
+    private boolean[][] breaks;
+
+    /**
+     * The number of sampled columns.
+     */
+    private int columns;
+
+    /**
+     * The smallest value of x and the largest value of y on the graph.
+     */
+    private double xMinValue, yMaxValue;
+
+    /**
+     * The distances in x between pixel columns and in y between pixel rows.
+     */
+    private double dx, dy;
+}
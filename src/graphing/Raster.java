@@ -0,0 +1,406 @@
+package graphing;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * A pixel framebuffer for graphs, holding the colors of the pixels of the graph display as ARGB ints, row by row. The
+ * buffer is kept between redraws of the same size, so drawing a frame allocates nothing per pixel. Each curve is drawn
+ * as a band around the polyline through the values of its function at the edges of the columns. The columns of pixels
+ * are first cleared to the background and the axes, and each curve is then blended over them from the range of rows
+ * covered by its band, the pixels at the ends of the range in proportion to the part of them the band covers, which
+ * anti-aliases the curves and lets curves drawn later cross those drawn before. The part of each pixel covered by the
+ * curves is also kept, for output which is not in color.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class Raster
+{
+
+    /**
+     * The color of the pixels off the curve and the axes.
+     */
+    static final int BACKGROUND = 0xFF333333;
+
+    /**
+     * The color of the axes.
+     */
+    static final int AXIS = 0xFF808080;
+
+    /**
+     * The colors of the curves, which are used in turn.
+     */
+    static final int[] CURVES = { 0xFFF0F0F0, 0xFF64B4FF, 0xFFFF9650, 0xFF78DC78, 0xFFE678E6, 0xFFF0D250 };
+
+    /**
+     * Initializes a blank raster with the given number of columns and rows.
+     * 
+     * @param columns
+     *            - the number of columns.
+     * @param rows
+     *            - the number of rows.
+     */
+    Raster(int columns, int rows)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.pixels = new int[rows * columns];
+        this.coverage = new float[rows * columns];
+        this.axisRows = new boolean[rows];
+        this.axisColumns = new boolean[columns];
+        Arrays.fill(pixels, BACKGROUND);
+    }
+
+    /**
+     * Returns true if the raster has the given number of columns and rows.
+     * 
+     * @param columns
+     *            - the number of columns.
+     * @param rows
+     *            - the number of rows.
+     * @return true if the raster has this size.
+     */
+    public boolean hasSize(int columns, int rows)
+    {
+        return this.columns == columns && this.rows == rows;
+    }
+
+    /**
+     * Returns the number of columns.
+     * 
+     * @return columns.
+     */
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows.
+     * 
+     * @return rows.
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Sets the values of y represented by the rows for the next frame. Row i represents yMax - i*dy.
+     * 
+     * @param yMax
+     *            - the value of y of the top row.
+     * @param dy
+     *            - the distance in y between rows.
+     * @param axisHalfWidth
+     *            - the distance from y = 0 within which rows are part of the x axis.
+     * @param curveHalfWidth
+     *            - the distance in y by which the curve extends past the values of the function.
+     */
+    void setRows(BigDecimal yMax, BigDecimal dy, BigDecimal axisHalfWidth, BigDecimal curveHalfWidth)
+    {
+        this.yMax = yMax;
+        this.dyDouble = dy.doubleValue();
+        this.curveHalfRows = curveHalfWidth.doubleValue() / dyDouble;
+        BigDecimal y = yMax;
+        for (int row = 0; row < rows; row++)
+        {
+            axisRows[row] = y.abs().compareTo(axisHalfWidth) < 0;
+            y = y.subtract(dy);
+        }
+    }
+
+    /**
+     * Sets whether a column and the count - 1 columns after it are part of the y axis for the next frame.
+     * 
+     * @param column
+     *            - the first column.
+     * @param count
+     *            - the number of columns.
+     * @param axis
+     *            - whether the columns are part of the y axis.
+     */
+    void setAxisColumns(int column, int count, boolean axis)
+    {
+        int end = java.lang.Math.min(column + count, columns);
+        for (int i = column; i < end; i++)
+        {
+            axisColumns[i] = axis;
+        }
+    }
+
+    /**
+     * Clears a column and the count - 1 columns after it to the background and the axes.
+     * 
+     * @param column
+     *            - the first column to clear.
+     * @param count
+     *            - the number of columns to clear.
+     */
+    void clearColumns(int column, int count)
+    {
+        int end = java.lang.Math.min(column + count, columns);
+        for (int i = column; i < end; i++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                pixels[row * columns + i] = axisRows[row] || axisColumns[i] ? AXIS : BACKGROUND;
+                coverage[row * columns + i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Draws a curve through a column and the count - 1 columns after it, over what is already drawn. The curve follows
+     * the line between the values of the function at the left edge of the first column and the right edge of the last,
+     * extended by the curve's half width. If the columns are broken by a discontinuity, the curve instead stays level
+     * at each of these values up to the middle of the columns. The curve also covers the rows of a range known to hold
+     * the values of the function between the edges, if one is given and it strays more than a row from the curve.
+     * 
+     * @param column
+     *            - the first column to draw.
+     * @param count
+     *            - the number of columns to draw.
+     * @param color
+     *            - the color of the curve.
+     * @param valueMinus
+     *            - the value of the function at the left edge of the column, or null if it is undefined.
+     * @param valuePlus
+     *            - the value of the function at the right edge of the column, or null if it is undefined.
+     * @param broken
+     *            - whether the function is discontinuous between the edges.
+     * @param coverLower
+     *            - the smallest value of the function between the edges, or null if it is unknown.
+     * @param coverUpper
+     *            - the largest value of the function between the edges, or null if it is unknown.
+     */
+    void drawColumn(int column, int count, int color, BigDecimal valueMinus, BigDecimal valuePlus, boolean broken,
+            BigDecimal coverLower, BigDecimal coverUpper)
+    {
+        // Positions are measured in rows down from the top row, whose pixels span from -0.5 to 0.5.
+        double rowMinus = valueMinus == null ? Double.NaN : getRow(valueMinus);
+        double rowPlus = valuePlus == null ? Double.NaN : getRow(valuePlus);
+        boolean defined = valueMinus != null && valuePlus != null;
+        double coverTop = Double.POSITIVE_INFINITY;
+        double coverBottom = Double.NEGATIVE_INFINITY;
+        if (coverLower != null && coverUpper != null)
+        {
+            coverTop = getRow(coverUpper) - curveHalfRows;
+            coverBottom = getRow(coverLower) + curveHalfRows;
+            if (defined && !broken && coverTop >= java.lang.Math.min(rowMinus, rowPlus) - curveHalfRows - 1
+                    && coverBottom <= java.lang.Math.max(rowMinus, rowPlus) + curveHalfRows + 1)
+            {
+                coverTop = Double.POSITIVE_INFINITY;
+                coverBottom = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        int end = java.lang.Math.min(column + count, columns);
+        for (int i = column; i < end; i++)
+        {
+            // The curve covers the rows from top to bottom and from secondTop to secondBottom.
+            double top = Double.POSITIVE_INFINITY;
+            double bottom = Double.NEGATIVE_INFINITY;
+            double secondTop = Double.POSITIVE_INFINITY;
+            double secondBottom = Double.NEGATIVE_INFINITY;
+            int m = i - column;
+            if (defined && broken)
+            {
+                if (2 * m < count)
+                {
+                    top = rowMinus - curveHalfRows;
+                    bottom = rowMinus + curveHalfRows;
+                }
+                if (2 * m + 2 > count)
+                {
+                    secondTop = rowPlus - curveHalfRows;
+                    secondBottom = rowPlus + curveHalfRows;
+                }
+            } else if (defined)
+            {
+                double rowLeft = rowMinus + (rowPlus - rowMinus) * m / count;
+                double rowRight = rowMinus + (rowPlus - rowMinus) * (m + 1) / count;
+                top = java.lang.Math.min(rowLeft, rowRight) - curveHalfRows;
+                bottom = java.lang.Math.max(rowLeft, rowRight) + curveHalfRows;
+            }
+            if (coverTop <= coverBottom)
+            {
+                top = java.lang.Math.min(top, coverTop);
+                bottom = java.lang.Math.max(bottom, coverBottom);
+            }
+            if (top > bottom || (secondTop <= bottom && secondBottom >= top))
+            {
+                // The ranges overlap, so they are drawn as one.
+                top = java.lang.Math.min(top, secondTop);
+                bottom = java.lang.Math.max(bottom, secondBottom);
+                secondTop = Double.POSITIVE_INFINITY;
+                secondBottom = Double.NEGATIVE_INFINITY;
+            }
+
+            // Only the rows the curve may cover are visited.
+            int first = (int) java.lang.Math.max(0, java.lang.Math.floor(java.lang.Math.min(top, secondTop) + 0.5));
+            int last =
+                    (int) java.lang.Math.min(rows - 1,
+                            java.lang.Math.ceil(java.lang.Math.max(bottom, secondBottom) - 0.5));
+            for (int row = first; row <= last; row++)
+            {
+                double part = getCoverage(row, top, bottom) + getCoverage(row, secondTop, secondBottom);
+                part = java.lang.Math.min(part, 1);
+                pixels[row * columns + i] = blend(pixels[row * columns + i], color, part);
+                coverage[row * columns + i] = (float) java.lang.Math.min(coverage[row * columns + i] + part, 1);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the pixels of the raster, row by row.
+     * 
+     * @return the colors of the pixels as ARGB ints.
+     */
+    public int[] getPixels()
+    {
+        return pixels.clone();
+    }
+
+    /**
+     * Returns the part of a pixel covered by the curves.
+     * 
+     * @param row
+     *            - the row of the pixel.
+     * @param column
+     *            - the column of the pixel.
+     * @return the covered part, from 0 to 1.
+     */
+    float getCurveCoverage(int row, int column)
+    {
+        return coverage[row * columns + column];
+    }
+
+    /**
+     * Returns true if a row is part of the x axis.
+     * 
+     * @param row
+     *            - the row.
+     * @return true if the row is on the axis.
+     */
+    boolean isAxisRow(int row)
+    {
+        return axisRows[row];
+    }
+
+    /**
+     * Returns true if a column is part of the y axis.
+     * 
+     * @param column
+     *            - the column.
+     * @return true if the column is on the axis.
+     */
+    boolean isAxisColumn(int column)
+    {
+        return axisColumns[column];
+    }
+
+    /**
+     * Returns the position in rows of a value of y, measured down from the top row.
+     * 
+     * @param y
+     *            - the value of y.
+     * @return the row at which y lies.
+     */
+    private double getRow(BigDecimal y)
+    {
+        return yMax.subtract(y).doubleValue() / dyDouble;
+    }
+
+    /**
+     * Returns the part of the pixels of a row covered by the range from top to bottom.
+     * 
+     * @param row
+     *            - the row.
+     * @param top
+     *            - the top of the range, in rows.
+     * @param bottom
+     *            - the bottom of the range, in rows.
+     * @return the covered part, from 0 to 1.
+     */
+    private static double getCoverage(int row, double top, double bottom)
+    {
+        return java.lang.Math.max(0, java.lang.Math.min(bottom, row + 0.5) - java.lang.Math.max(top, row - 0.5));
+    }
+
+    /**
+     * Returns the color part of the way from one opaque color to another.
+     * 
+     * @param from
+     *            - the first color.
+     * @param to
+     *            - the second color.
+     * @param part
+     *            - the part of the way to go, from 0 to 1.
+     * @return the blended color.
+     */
+    private static int blend(int from, int to, double part)
+    {
+        if (part <= 0)
+        {
+            return from;
+        } else if (part >= 1)
+        {
+            return to;
+        }
+        int color = 0xFF000000;
+        for (int shift = 0; shift < 24; shift += 8)
+        {
+            int a = (from >> shift) & 0xFF;
+            int b = (to >> shift) & 0xFF;
+            color |= ((int) java.lang.Math.round(a + (b - a) * part)) << shift;
+        }
+        return color;
+    }
+
+    /**
+     * The number of columns.
+     */
+    private final int columns;
+
+    /**
+     * The number of rows.
+     */
+    private final int rows;
+
+    /**
+     * The colors of the pixels of the raster as ARGB ints, row by row.
+     */
+    private final int[] pixels;
+
+    /**
+     * The part of each pixel covered by the curves, row by row.
+     */
+    private final float[] coverage;
+
+    /**
+     * Whether each row is part of the x axis.
+     */
+    private final boolean[] axisRows;
+
+    /**
+     * Whether each column is part of the y axis.
+     */
+    private final boolean[] axisColumns;
+
+    /**
+     * The value of y of the top row.
+     */
+    private BigDecimal yMax;
+
+    /**
+     * The distance in y between rows, as a double.
+     */
+    private double dyDouble;
+
+    /**
+     * The number of rows by which the curve extends past the values of the function.
+     */
+    private double curveHalfRows;
+}
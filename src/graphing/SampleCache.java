@@ -0,0 +1,439 @@
+package graphing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import calculator.CalculatorEngine;
+import calculator.Interval;
+import calculator.Session;
+
+/**
+ * The samples of a group of functions taken by past graphs, kept so that graphs which only move the range of y, or
+ * move the range of x by whole columns, evaluate the functions only where they were never sampled. Samples are kept on
+ * a grid of edges at origin + i*step for integers i, which is tied to the width of the columns of the graph that
+ * created the cache, so a cache only serves graphs with the same functions, engine, stored values and column width
+ * whose edges lie on its grid. For each edge, the cache holds the values of the functions, which are always sampled
+ * together; for each function and each column between edges i and i+1, it holds whether the column was searched for a
+ * discontinuity and whether one was found; and for each function and range of columns, it holds the enclosure of the
+ * function over the range. The cache only answers for the edges, columns and ranges a graph asks about, so that which
+ * of them a graph samples does not depend on what the cache holds. A cache is not thread-safe, and is only used by one
+ * job at a time.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class SampleCache
+{
+
+    /**
+     * The largest number of edges kept. The cache is emptied before holding more.
+     */
+    static final int MAX_EDGES = 1 << 16;
+
+    /**
+     * Initializes an empty cache for the samples of functions on the grid of edges at origin + i*step.
+     * 
+     * @param functions
+     *            - the functions sampled.
+     * @param engine
+     *            - the engine used to evaluate the functions.
+     * @param session
+     *            - the session used to evaluate the functions.
+     * @param origin
+     *            - the value of x of edge 0.
+     * @param step
+     *            - the distance in x between edges.
+     */
+    SampleCache(List<String> functions, CalculatorEngine engine, Session session, BigDecimal origin, BigDecimal step)
+    {
+        this.functions = new ArrayList<String>(functions);
+        this.engine = engine;
+        this.answer = session.getAnswer();
+        this.fanswer = session.getFAnswer();
+        this.memory = session.getMemory();
+        this.fmemory = session.getFMemory();
+        this.origin = origin;
+        this.step = step;
+        int count = functions.size();
+        this.enclosures = new ArrayList<Map<Long, Interval>>(count);
+        for (int f = 0; f < count; f++)
+        {
+            this.enclosures.add(new HashMap<Long, Interval>());
+        }
+        this.estimates = new double[count][0];
+        this.values = new BigDecimal[count][0];
+        this.breaks = new byte[count][0];
+        this.states = new byte[0];
+    }
+
+    /**
+     * Returns true if the cache holds samples of functions evaluated with engine and session at edges step apart, and
+     * start is one of its edges.
+     * 
+     * @param functions
+     *            - the functions sampled.
+     * @param engine
+     *            - the engine used to evaluate the functions.
+     * @param session
+     *            - the session used to evaluate the functions.
+     * @param start
+     *            - the value of x of the first edge of a graph.
+     * @param step
+     *            - the distance in x between the edges of the graph.
+     * @return true if the cache can serve the graph.
+     */
+    boolean matches(List<String> functions, CalculatorEngine engine, Session session, BigDecimal start,
+            BigDecimal step)
+    {
+        if (!this.functions.equals(functions) || this.engine != engine || !this.step.equals(step)
+                || !answer.equals(session.getAnswer()) || !fanswer.equals(session.getFAnswer())
+                || !memory.equals(session.getMemory()) || !fmemory.equals(session.getFMemory()))
+        {
+            return false;
+        }
+        BigDecimal offset = start.subtract(origin);
+        return offset.remainder(step).signum() == 0
+                && offset.divideToIntegralValue(step).abs().compareTo(new BigDecimal(MAX_EDGES)) < 0;
+    }
+
+    /**
+     * Returns the index of an edge on the grid of the cache.
+     * 
+     * @param x
+     *            - the value of x of the edge, for which matches must have returned true.
+     * @return i such that x = origin + i*step.
+     */
+    int indexOf(BigDecimal x)
+    {
+        return x.subtract(origin).divideToIntegralValue(step).intValueExact();
+    }
+
+    /**
+     * Copies the samples of the functions at edge i of the grid into values[f][j] and estimates[f][j], if they are
+     * known.
+     * 
+     * @param i
+     *            - the index on the grid of the edge.
+     * @param j
+     *            - the index of the edge in the arrays.
+     * @param values
+     *            - the values of the functions at the edges in decimal precision, or null in double precision.
+     * @param estimates
+     *            - the values of the functions at the edges as doubles.
+     * @return true if the samples were copied.
+     */
+    boolean loadSample(int i, int j, BigDecimal[][] values, double[][] estimates)
+    {
+        i -= first;
+        if (i < 0 || i >= states.length || (states[i] & SAMPLED) == 0)
+        {
+            return false;
+        }
+        for (int f = 0; f < estimates.length; f++)
+        {
+            estimates[f][j] = this.estimates[f][i];
+            if (values != null)
+            {
+                values[f][j] = this.values[f][i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the samples at edges index + edges[i] for i from 0 (inclusive) to count (exclusive).
+     * 
+     * @param index
+     *            - the index of edge 0 of the samples.
+     * @param edges
+     *            - the edges sampled.
+     * @param count
+     *            - the number of edges sampled.
+     * @param values
+     *            - the values of the functions at the edges in decimal precision, or null in double precision.
+     * @param estimates
+     *            - the values of the functions at the edges as doubles.
+     */
+    void storeSamples(int index, int[] edges, int count, BigDecimal[][] values, double[][] estimates)
+    {
+        if (count == 0)
+        {
+            return;
+        }
+        reserve(index + edges[0], index + edges[count - 1] + 1);
+        for (int i = 0; i < count; i++)
+        {
+            int j = edges[i];
+            for (int f = 0; f < estimates.length; f++)
+            {
+                this.estimates[f][index + j - first] = estimates[f][j];
+                if (values != null)
+                {
+                    this.values[f][index + j - first] = values[f][j];
+                }
+            }
+            states[index + j - first] = SAMPLED;
+        }
+    }
+
+    /**
+     * Returns true if a column has been searched for a discontinuity of a function.
+     * 
+     * @param function
+     *            - the index of the function.
+     * @param column
+     *            - the index on the grid of the edge to the left of the column.
+     * @return true if the column has been searched.
+     */
+    boolean isSearched(int function, int column)
+    {
+        int i = column - first;
+        return i >= 0 && i < states.length && (breaks[function][i] & SEARCHED) != 0;
+    }
+
+    /**
+     * Returns true if a column has been searched and found to contain a discontinuity of a function.
+     * 
+     * @param function
+     *            - the index of the function.
+     * @param column
+     *            - the index on the grid of the edge to the left of the column.
+     * @return true if the column is broken.
+     */
+    boolean isBroken(int function, int column)
+    {
+        int i = column - first;
+        return i >= 0 && i < states.length && (breaks[function][i] & BROKEN) != 0;
+    }
+
+    /**
+     * Keeps the result of searching a column for a discontinuity of a function.
+     * 
+     * @param function
+     *            - the index of the function.
+     * @param column
+     *            - the index on the grid of the edge to the left of the column.
+     * @param broken
+     *            - whether a discontinuity was found.
+     */
+    void storeBreak(int function, int column, boolean broken)
+    {
+        reserve(column, column + 1);
+        breaks[function][column - first] = broken ? (byte) (SEARCHED | BROKEN) : SEARCHED;
+    }
+
+    /**
+     * Returns the enclosure of a function over a range of columns, or null if it is unknown.
+     * 
+     * @param function
+     *            - the index of the function.
+     * @param from
+     *            - the index on the grid of the left edge of the range.
+     * @param to
+     *            - the index on the grid of the right edge of the range.
+     * @return the enclosure of the range.
+     */
+    Interval getEnclosure(int function, int from, int to)
+    {
+        return enclosures.get(function).get(((long) from << 32) | (to & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Keeps the enclosure of a function over a range of columns.
+     * 
+     * @param function
+     *            - the index of the function.
+     * @param from
+     *            - the index on the grid of the left edge of the range.
+     * @param to
+     *            - the index on the grid of the right edge of the range.
+     * @param range
+     *            - the enclosure of the range.
+     */
+    void storeEnclosure(int function, int from, int to, Interval range)
+    {
+        Map<Long, Interval> enclosures = this.enclosures.get(function);
+        if (enclosures.size() >= MAX_EDGES)
+        {
+            enclosures.clear();
+        }
+        enclosures.put(((long) from << 32) | (to & 0xFFFFFFFFL), range);
+    }
+
+    /**
+     * Makes room for the edges from (inclusive) to to (exclusive), dropping every edge if the cache would grow past
+     * MAX_EDGES.
+     * 
+     * @param from
+     *            - the index of the first edge.
+     * @param to
+     *            - the index after the last edge.
+     */
+    private void reserve(int from, int to)
+    {
+        int end = first + states.length;
+        if (from >= first && to <= end)
+        {
+            return;
+        }
+        int newEnd = java.lang.Math.max(end, to);
+        long span = (long) newEnd - java.lang.Math.min(first, from);
+        if (states.length == 0 || span > MAX_EDGES)
+        {
+            first = from;
+            for (int f = 0; f < estimates.length; f++)
+            {
+                estimates[f] = new double[to - from];
+                values[f] = new BigDecimal[to - from];
+                breaks[f] = new byte[to - from];
+            }
+            states = new byte[to - from];
+            return;
+        }
+
+        // The arrays at least double in size, so extending them one pan at a time takes amortized constant time.
+        int size = (int) java.lang.Math.max(span, java.lang.Math.min(2 * states.length, MAX_EDGES));
+        int newFirst = from < first ? newEnd - size : first;
+        int shift = first - newFirst;
+        for (int f = 0; f < estimates.length; f++)
+        {
+            estimates[f] = copy(estimates[f], size, shift);
+            values[f] = copy(values[f], size, shift);
+            breaks[f] = copy(breaks[f], size, shift);
+        }
+        states = copy(states, size, shift);
+        first = newFirst;
+    }
+
+    /**
+     * Returns a copy of an array with its elements moved right by shift.
+     * 
+     * @param array
+     *            - the array.
+     * @param size
+     *            - the size of the copy.
+     * @param shift
+     *            - the index in the copy of the first element.
+     * @return the copy.
+     */
+    private static double[] copy(double[] array, int size, int shift)
+    {
+        double[] copy = new double[size];
+        System.arraycopy(array, 0, copy, shift, array.length);
+        return copy;
+    }
+
+    /**
+     * Returns a copy of an array with its elements moved right by shift.
+     * 
+     * @param array
+     *            - the array.
+     * @param size
+     *            - the size of the copy.
+     * @param shift
+     *            - the index in the copy of the first element.
+     * @return the copy.
+     */
+    private static BigDecimal[] copy(BigDecimal[] array, int size, int shift)
+    {
+        BigDecimal[] copy = new BigDecimal[size];
+        System.arraycopy(array, 0, copy, shift, array.length);
+        return copy;
+    }
+
+    /**
+     * Returns a copy of an array with its elements moved right by shift.
+     * 
+     * @param array
+     *            - the array.
+     * @param size
+     *            - the size of the copy.
+     * @param shift
+     *            - the index in the copy of the first element.
+     * @return the copy.
+     */
+    private static byte[] copy(byte[] array, int size, int shift)
+    {
+        byte[] copy = new byte[size];
+        System.arraycopy(array, 0, copy, shift, array.length);
+        return copy;
+    }
+
+    /**
+     * The state of an edge at which the functions have been sampled.
+     */
+    private static final byte SAMPLED = 1;
+
+    /**
+     * The state of a column which has been searched for a discontinuity.
+     */
+    private static final byte SEARCHED = 2;
+
+    /**
+     * The state of a column in which a discontinuity was found.
+     */
+    private static final byte BROKEN = 4;
+
+    /**
+     * The functions sampled.
+     */
+    private final List<String> functions;
+
+    /**
+     * The engine used to evaluate the functions.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The values stored in the session used to evaluate the functions.
+     */
+    private final BigDecimal answer, memory;
+
+    /**
+     * The functions stored in the session used to evaluate the functions.
+     */
+    private final String fanswer, fmemory;
+
+    /**
+     * The value of x of edge 0.
+     */
+    private final BigDecimal origin;
+
+    /**
+     * The distance in x between edges.
+     */
+    private final BigDecimal step;
+
+    /**
+     * The enclosures of each function over ranges of columns, keyed by the indices of their left and right edges.
+     */
+    private final List<Map<Long, Interval>> enclosures;
+
+    /**
+     * The index of the edge held at index 0 of the arrays.
+     */
+    private int first;
+
+    /**
+     * The values of each function at the edges as doubles.
+     */
+    private final double[][] estimates;
+
+    /**
+     * The values of each function at the edges in decimal precision.
+     */
+    private final BigDecimal[][] values;
+
+    /**
+     * The state of the search of each function for a discontinuity in the column to the right of each edge.
+     */
+    private final byte[][] breaks;
+
+    /**
+     * The state of each edge.
+     */
+    private byte[] states;
+}
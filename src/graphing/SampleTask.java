@@ -0,0 +1,302 @@
+package graphing;
+
+import java.math.BigDecimal;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calculator.CalculatorEngine;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+import calculator.Session;
+import calculator.ast.ExpressionGroup;
+
+/**
+ * Samples a group of functions at a list of the edges of the columns of a graph, splitting the list in halves among
+ * the threads of a ForkJoinPool until it is at most CHUNK_SIZE edges long in decimal precision, or COLUMN_SIZE edges
+ * long in double precision, where all the edges of a task are evaluated together as a column. Each task fills a
+ * disjoint set of entries of the arrays of samples, evaluating the functions together with the shared engine and its
+ * own copy of the session, so their common subexpressions are evaluated once per edge. Edges at which a function is
+ * undefined are marked as such, while errors in a function itself stop the graph: the edges to the right of a failing
+ * edge are skipped, and the error of the leftmost failing edge is thrown.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+class SampleTask extends RecursiveAction
+{
+
+    /**
+     * The largest number of edges sampled by a single task in decimal precision.
+     */
+    static final int CHUNK_SIZE = 4;
+
+    /**
+     * The largest number of edges sampled by a single task in double precision, where the edges of a task are
+     * evaluated together as a column.
+     */
+    static final int COLUMN_SIZE = 64;
+
+    /**
+     * Initializes the task to sample the edges edges[i] for i from (inclusive) to to (exclusive), which must be in
+     * increasing order. Edge j lies at start + j*step. The value of function f at edge j is stored in estimates[f][j]
+     * as a double, or NaN if the function is undefined there. In decimal precision, the value is also stored exactly
+     * in values[f][j], or null if the function is undefined there. In double precision, values is null and values
+     * which overflow a double are undefined.
+     * 
+     * @param group
+     *            - the functions to be graphed.
+     * @param engine
+     *            - the engine used to evaluate the functions.
+     * @param session
+     *            - the session whose copies are used to evaluate the functions.
+     * @param start
+     *            - the value of x of the first edge.
+     * @param step
+     *            - the distance in x between edges.
+     * @param edges
+     *            - the edges to sample.
+     * @param values
+     *            - the values of the functions at the edges in decimal precision, or null in double precision.
+     * @param estimates
+     *            - the values of the functions at the edges as doubles.
+     * @param errorIndex
+     *            - the index of the leftmost edge known to fail, shared by all the tasks of a graph.
+     * @param from
+     *            - the index in edges of the first edge to sample.
+     * @param to
+     *            - the index in edges after the last edge to sample.
+     */
+    SampleTask(ExpressionGroup group, CalculatorEngine engine, Session session, BigDecimal start, BigDecimal step,
+            int[] edges, BigDecimal[][] values, double[][] estimates, AtomicInteger errorIndex, int from, int to)
+    {
+        this.group = group;
+        this.engine = engine;
+        this.session = session;
+        this.start = start;
+        this.step = step;
+        this.edges = edges;
+        this.values = values;
+        this.estimates = estimates;
+        this.errorIndex = errorIndex;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Throws the error of the leftmost edge which failed, if any.
+     * 
+     * @throws CalculatorError
+     */
+    void checkError() throws CalculatorError, ArithmeticException
+    {
+        if (error instanceof CalculatorError)
+        {
+            throw (CalculatorError) error;
+        } else if (error != null)
+        {
+            throw (ArithmeticException) error;
+        }
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (values == null && to - from <= COLUMN_SIZE)
+        {
+            sampleColumn();
+            return;
+        } else if (values != null && to - from <= CHUNK_SIZE)
+        {
+            Session copy = session.copy();
+            int size = group.size();
+            BigDecimal[] valueBuffer = new BigDecimal[size];
+            Exception[] errors = new Exception[size];
+            try
+            {
+                for (int i = from; i < to && edges[i] < errorIndex.get(); i++)
+                {
+                    try
+                    {
+                        sample(edges[i], copy, valueBuffer, errors);
+                    } catch (CalculatorError | ArithmeticException e)
+                    {
+                        errorIndex.accumulateAndGet(edges[i], java.lang.Math::min);
+                        throw e;
+                    }
+                }
+            } catch (CalculatorError | ArithmeticException e)
+            {
+                error = e;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        SampleTask left =
+                new SampleTask(group, engine, session, start, step, edges, values, estimates, errorIndex, from, middle);
+        SampleTask right =
+                new SampleTask(group, engine, session, start, step, edges, values, estimates, errorIndex, middle, to);
+        invokeAll(left, right);
+
+        // The error of the leftmost edge is kept, as it would be by sampling the edges in order.
+        error = left.error != null ? left.error : right.error;
+    }
+
+    /**
+     * Samples the functions in double precision at the edges of the task to the left of the leftmost edge known to
+     * fail, evaluating them together as a column.
+     */
+    private void sampleColumn()
+    {
+        int limit = errorIndex.get();
+        int count = 0;
+        while (from + count < to && edges[from + count] < limit)
+        {
+            count++;
+        }
+        double[] xs = new double[count];
+        for (int k = 0; k < count; k++)
+        {
+            xs[k] = start.add(step.multiply(new BigDecimal(edges[from + k]))).doubleValue();
+        }
+        int size = group.size();
+        double[][] samples = new double[size][count];
+        ErrorType[][] errors = new ErrorType[size][count];
+        engine.evaluate(group, xs, session.copy(), samples, errors);
+
+        for (int k = 0; k < count; k++)
+        {
+            int j = edges[from + k];
+            // Every function is checked before any value is stored, so a failing edge is left as it was.
+            for (int f = 0; f < size; f++)
+            {
+                if (errors[f][k] != null && isFatal(errors[f][k]))
+                {
+                    errorIndex.accumulateAndGet(j, java.lang.Math::min);
+                    error = new CalculatorError(errors[f][k]);
+                    return;
+                }
+            }
+            for (int f = 0; f < size; f++)
+            {
+                // Values that overflow a double cannot be drawn.
+                estimates[f][j] = Double.isInfinite(samples[f][k]) ? Double.NaN : samples[f][k];
+            }
+        }
+    }
+
+    /**
+     * Samples the functions at an edge in decimal precision.
+     * 
+     * @param j
+     *            - the index of the edge.
+     * @param session
+     *            - the session used to evaluate the functions.
+     * @param valueBuffer
+     *            - room for the values of the functions.
+     * @param errors
+     *            - room for the errors thrown by the functions.
+     * @throws CalculatorError
+     */
+    private void sample(int j, Session session, BigDecimal[] valueBuffer, Exception[] errors) throws CalculatorError,
+            ArithmeticException
+    {
+        BigDecimal x = start.add(step.multiply(new BigDecimal(j)));
+        engine.evaluate(group, x, session, valueBuffer, errors);
+
+        // Every function is checked before any value is stored, so a failing edge is left as it was.
+        for (int f = 0; f < errors.length; f++)
+        {
+            if (errors[f] instanceof ArithmeticException)
+            {
+                throw (ArithmeticException) errors[f];
+            } else if (errors[f] != null && isFatal(((CalculatorError) errors[f]).getError()))
+            {
+                throw new CalculatorError(((CalculatorError) errors[f]).getError());
+            }
+        }
+        for (int f = 0; f < errors.length; f++)
+        {
+            values[f][j] = valueBuffer[f];
+            estimates[f][j] = valueBuffer[f] == null ? Double.NaN : valueBuffer[f].doubleValue();
+        }
+    }
+
+    /**
+     * Returns true if an error is in a function itself, rather than at the value of x at which it is evaluated.
+     * 
+     * @param error
+     *            - the error.
+     * @return true if the error stops the graph.
+     */
+    private static boolean isFatal(ErrorType error)
+    {
+        return error == ErrorType.functionUndef || error == ErrorType.missingArg || error == ErrorType.bracketMismatch
+                || error == ErrorType.invalidMode || error == ErrorType.invalidIntegralParameters
+                || error == ErrorType.invalidSumParameters || error == ErrorType.invalidProductParameters
+                || error == ErrorType.invalidRandParameters || error == ErrorType.randArgumentTooBig
+                || error == ErrorType.overflow;
+    }
+
+    private static final long serialVersionUID = 4417226312986251379L;
+
+    /**
+     * The functions to be graphed.
+     */
+    private final ExpressionGroup group;
+
+    /**
+     * The engine used to evaluate the functions.
+     */
+    private final CalculatorEngine engine;
+
+    /**
+     * The session whose copies are used to evaluate the functions.
+     */
+    private final Session session;
+
+    /**
+     * The value of x of the first edge.
+     */
+    private final BigDecimal start;
+
+    /**
+     * The distance in x between edges.
+     */
+    private final BigDecimal step;
+
+    /**
+     * The edges to sample.
+     */
+    private final int[] edges;
+
+    /**
+     * The values of the functions at the edges in decimal precision, or null in double precision.
+     */
+    private final BigDecimal[][] values;
+
+    /**
+     * The values of the functions at the edges as doubles.
+     */
+    private final double[][] estimates;
+
+    /**
+     * The index of the leftmost edge known to fail, shared by all the tasks of a graph.
+     */
+    private final AtomicInteger errorIndex;
+
+    /**
+     * The index in edges of the first edge to sample.
+     */
+    private final int from;
+
+    /**
+     * The index in edges after the last edge to sample.
+     */
+    private final int to;
+
+    /**
+     * The error thrown while sampling the edges, if any.
+     */
+    private Exception error;
+}
@@ -0,0 +1,128 @@
+package calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import calculator.Calculator.IntegralMode;
+import calculator.Calculator.Precision;
+import calculator.ast.Expression;
+
+/**
+ * Tests the accuracy of the integrals, the agreement of their parallel and serial sums, and the reporting of those
+ * which do not converge.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class IntegralTest
+{
+
+    /**
+     * Checks that the Gauss-Kronrod rule is not limited by the 45 digits of its tabulated nodes and weights.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void gaussKronrodBeyondTabulatedDigits() throws CalculatorError
+    {
+        Calculator calculator = new Calculator();
+        calculator.setIntegralMode(IntegralMode.gaussKronrod);
+        calculator.setDigits(60);
+        calculator.setTolerance(new BigDecimal("1e-52"));
+        BigDecimal result = calculator.compute("integral(exp(x),0,1)");
+        BigDecimal error = result.subtract(calculator.compute("e-1")).abs();
+        assertTrue("error " + error, error.compareTo(new BigDecimal("1e-52")) < 0);
+        assertEquals(0, calculator.getUnconvergedIntegrals());
+    }
+
+    /**
+     * Checks that an integral which reaches the limit of divisions is reported, in both precisions.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void unconvergedIntegralIsReported() throws CalculatorError
+    {
+        for (Precision precision : Precision.values())
+        {
+            Calculator calculator = new Calculator();
+            calculator.setPrecision(precision);
+            calculator.setIntegralMode(IntegralMode.romberg);
+            calculator.compute("integral(sqrt(1-x^2),-1,1)");
+            assertEquals(precision.toString(), 1, calculator.getUnconvergedIntegrals());
+
+            calculator.setIntegralMode(IntegralMode.gaussKronrod);
+            calculator.setDivisions(4);
+            calculator.compute("integral(sqrt(1-x^2),-1,1)+integral(sqrt(x),0,1)");
+            assertEquals(precision.toString(), 2, calculator.getUnconvergedIntegrals());
+        }
+    }
+
+    /**
+     * Checks that integrals which meet the tolerance are not reported, and that the count is reset by the next
+     * evaluation.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void convergedIntegralIsNotReported() throws CalculatorError
+    {
+        for (IntegralMode mode : new IntegralMode[] { IntegralMode.gaussKronrod, IntegralMode.romberg,
+                IntegralMode.tanhSinh })
+        {
+            Calculator calculator = new Calculator();
+            calculator.setIntegralMode(mode);
+            calculator.setDivisions(4);
+            calculator.compute("integral(sqrt(1-x^2),-1,1)");
+            calculator.setDivisions(1000);
+            calculator.compute("integral(x^2,0,1)");
+            assertEquals(mode.toString(), 0, calculator.getUnconvergedIntegrals());
+        }
+    }
+
+    /**
+     * Checks that the weighted sums of every Newton-Cotes order give exactly the same result at 32 digits when split
+     * among the threads of a ForkJoinPool as when computed serially.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void parallelSumMatchesSerial() throws CalculatorError
+    {
+        Calculator calculator = new Calculator();
+        calculator.setDigits(32);
+        CalculatorEngine engine = calculator.getEngine();
+        Session session = calculator.getSession();
+        MathContext mc = engine.getMath().getMathContext();
+        Expression function = calculator.compile("sin(x)*e^x+1/(1+x^2)");
+        BigDecimal start = new BigDecimal("-1.5");
+        BigDecimal dx = new BigDecimal("0.00123");
+        int count = 4 * CalculatorEngine.PARALLEL_THRESHOLD + 1;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int order = 0; order <= 3; order++)
+            {
+                BigDecimal serial =
+                        new IntegralTask(function, 0, start, dx, count, order, mc, new DecimalEvaluator(engine,
+                                session), new AtomicInteger(Integer.MAX_VALUE), 0, count).sum(new DecimalEvaluator(
+                                engine, session));
+                IntegralTask parallel =
+                        new IntegralTask(function, 0, start, dx, count, order, mc, new DecimalEvaluator(engine,
+                                session), new AtomicInteger(Integer.MAX_VALUE), 0, count);
+                pool.invoke(parallel);
+                assertEquals("order " + order, serial, parallel.getSum());
+            }
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package calculator;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import calculator.Calculator.Precision;
+import calculator.ast.Expression;
+import calculator.ast.FunctionCall;
+
+/**
+ * Tests that the enclosures of IntervalEvaluator hold the values of DoubleEvaluator.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class IntervalEvaluatorTest
+{
+
+    /**
+     * Checks the inverse hyperbolic functions near 0, 1 and -1, where their formulas lose accuracy to cancellation.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void inverseHyperbolicNearCancellation() throws CalculatorError
+    {
+        String[] functions = { "arcsinh(x)", "arccsch(x)", "arctanh(x)", "arccoth(x)", "arccosh(x)", "arcsech(x)" };
+        double[] centers = { 0, 1, -1 };
+        CalculatorEngine engine = new CalculatorEngine().withPrecision(Precision.doublePrecision);
+        Session session = new Session();
+        Random random = new Random(17);
+        for (String function : functions)
+        {
+            Expression expression = engine.compile(function, session);
+            for (int i = 0; i < 20000; i++)
+            {
+                double scale = java.lang.Math.pow(10, -1 - random.nextInt(16));
+                double x = centers[random.nextInt(centers.length)] + (random.nextBoolean() ? scale : -scale)
+                        * random.nextDouble();
+                double value;
+                try
+                {
+                    value = engine.evaluateDouble(expression, x, session);
+                } catch (CalculatorError e)
+                {
+                    continue;
+                }
+                double width = java.lang.Math.abs(x) * 1e-3 * random.nextDouble();
+                assertEnclosed(engine, session, function, expression, Interval.point(x), value);
+                assertEnclosed(engine, session, function, expression, new Interval(x - width, x + width), value);
+            }
+        }
+    }
+
+    /**
+     * Checks the remainder of a dividend which is exactly zero, whose enclosure is the remainder of its negation.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void zeroDividendModulo() throws CalculatorError
+    {
+        String[] functions = { "x+0%2", "0%pi", "0%x", "(x-x)%3", "(0-0)%x" };
+        double[] xs = { -2, -0.5, 0.5, 1, 3 };
+        assertEnclosedAt(functions, xs);
+    }
+
+    /**
+     * Checks powers of zero with an exponent which can be zero, since 0^0 is 1.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void zeroToTheZero() throws CalculatorError
+    {
+        String[] functions = { "0^(x-x)", "(x-x)^(x-x)", "0^x", "x^(x-x)", "(x-x)^x" };
+        double[] xs = { -1, -0.5, 0, 0.5, 2 };
+        assertEnclosedAt(functions, xs);
+    }
+
+    /**
+     * Checks random expressions built from every operator and function, with x at small integers, where the special
+     * cases of the operators lie, and at random points.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void randomExpressions() throws CalculatorError
+    {
+        CalculatorEngine engine = new CalculatorEngine().withPrecision(Precision.doublePrecision);
+        Session session = new Session();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++)
+        {
+            String function = randomExpression(random, 3);
+            Expression expression;
+            try
+            {
+                expression = engine.compile(function, session);
+            } catch (CalculatorError e)
+            {
+                continue;
+            }
+            for (int j = 0; j < 20; j++)
+            {
+                double x = random.nextBoolean() ? random.nextInt(7) - 3 : (random.nextDouble() - 0.5) * 20;
+                double value;
+                try
+                {
+                    value = engine.evaluateDouble(expression, x, session);
+                } catch (CalculatorError | ArithmeticException e)
+                {
+                    continue;
+                }
+                if (Double.isNaN(value))
+                {
+                    continue;
+                }
+                double width = (java.lang.Math.abs(x) * 1e-3 + 1e-9) * random.nextDouble();
+                assertEnclosed(engine, session, function, expression, Interval.point(x), value);
+                assertEnclosed(engine, session, function, expression, new Interval(x - width, x + width), value);
+            }
+        }
+    }
+
+    /**
+     * Checks that the enclosures of functions over each point of xs hold their values there.
+     * 
+     * @param functions
+     *            - the texts of the expressions.
+     * @param xs
+     *            - the values of x.
+     * @throws CalculatorError
+     */
+    private static void assertEnclosedAt(String[] functions, double[] xs) throws CalculatorError
+    {
+        CalculatorEngine engine = new CalculatorEngine().withPrecision(Precision.doublePrecision);
+        Session session = new Session();
+        for (String function : functions)
+        {
+            Expression expression = engine.compile(function, session);
+            for (double x : xs)
+            {
+                double value;
+                try
+                {
+                    value = engine.evaluateDouble(expression, x, session);
+                } catch (CalculatorError e)
+                {
+                    continue;
+                }
+                assertEnclosed(engine, session, function, expression, Interval.point(x), value);
+                assertEnclosed(engine, session, function, expression, new Interval(x - 0.25, x + 0.25), value);
+            }
+        }
+    }
+
+    /**
+     * Returns a random expression of x with at most depth nested operations.
+     * 
+     * @param random
+     *            - the source of randomness.
+     * @param depth
+     *            - the largest number of nested operations.
+     * @return the text of the expression.
+     */
+    private static String randomExpression(Random random, int depth)
+    {
+        int kind = depth == 0 ? 0 : random.nextInt(3);
+        if (kind == 0)
+        {
+            return LEAVES[random.nextInt(LEAVES.length)];
+        } else if (kind == 1)
+        {
+            FunctionCall.Function[] functions = FunctionCall.Function.values();
+            return functions[random.nextInt(functions.length)] + "(" + randomExpression(random, depth - 1) + ")";
+        }
+        return "(" + randomExpression(random, depth - 1) + OPERATORS[random.nextInt(OPERATORS.length)]
+                + randomExpression(random, depth - 1) + ")";
+    }
+
+    /**
+     * Checks that the enclosure of expression over x holds value.
+     * 
+     * @param engine
+     *            - the engine.
+     * @param session
+     *            - the session.
+     * @param function
+     *            - the text of the expression.
+     * @param expression
+     *            - the expression.
+     * @param x
+     *            - the interval of x.
+     * @param value
+     *            - the value of the expression at a point of x.
+     * @throws CalculatorError
+     */
+    private static void assertEnclosed(CalculatorEngine engine, Session session, String function,
+            Expression expression, Interval x, double value) throws CalculatorError
+    {
+        Interval enclosure = engine.evaluateInterval(expression, x, session);
+        assertTrue(function + " over " + x + " is " + value + ", outside " + enclosure, enclosure.contains(value));
+    }
+
+    /**
+     * The operands of the random expressions.
+     */
+    private static final String[] LEAVES = { "x", "x", "x", "0", "1", "2", "0.5", "pi", "3" };
+
+    /**
+     * The operators of the random expressions.
+     */
+    private static final String[] OPERATORS = { "+", "-", "*", "/", "^", "%" };
+}
@@ -0,0 +1,50 @@
+package calculator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+/**
+ * Tests that the operations and constants of Math are correct to every digit they are computed to.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class MathTest
+{
+
+    /**
+     * Checks the operations and constants at low numbers of digits against their values at 60 digits.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void lowDigits() throws CalculatorError
+    {
+        Math reference = new Math(60);
+        String[] arguments = { "0.3", "0.5", "1.5", "2", "3", "7", "10" };
+        for (int digits = Math.MIN_DIGITS; digits <= 12; digits++)
+        {
+            Math math = new Math(digits);
+            MathContext mc = new MathContext(digits, RoundingMode.HALF_UP);
+            assertEquals("pi to " + digits, reference.getPi().round(mc), math.getPi());
+            assertEquals("e to " + digits, reference.getE().round(mc), math.getE());
+            for (String text : arguments)
+            {
+                BigDecimal x = new BigDecimal(text);
+                String suffix = "(" + text + ") to " + digits;
+                assertEquals("ln" + suffix, reference.ln(x).round(mc), math.ln(x));
+                assertEquals("sqrt" + suffix, reference.sqrt(x).round(mc), math.sqrt(x));
+                assertEquals("exp" + suffix, reference.exp(x).round(mc), math.exp(x));
+                assertEquals("sin" + suffix, reference.sin(x).round(mc), math.sin(x));
+                assertEquals("cos" + suffix, reference.cos(x).round(mc), math.cos(x));
+                assertEquals("arctan" + suffix, reference.arctan(x).round(mc), math.arctan(x));
+                assertEquals("sinh" + suffix, reference.sinh(x).round(mc), math.sinh(x));
+            }
+        }
+    }
+}
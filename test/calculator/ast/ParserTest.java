@@ -0,0 +1,114 @@
+package calculator.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import calculator.Calculator;
+import calculator.CalculatorError;
+import calculator.ErrorType;
+
+/**
+ * Tests the signs accepted by the parser in front of an operand.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class ParserTest
+{
+
+    /**
+     * Checks a sign at the start of the expression.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void signedOperandAtStart() throws CalculatorError
+    {
+        assertValue("1", "+1");
+        assertValue("-1", "-1");
+        assertValue("1E+5", "+1e5");
+        assertValue("10", "+5*2");
+        assertValue("-10", "-5*2");
+        assertValue("0", "+sin(0)");
+    }
+
+    /**
+     * Checks a sign after an opening bracket or a comma.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void signedOperandAfterBracket() throws CalculatorError
+    {
+        assertValue("1", "(+1)");
+        assertValue("-1", "(-1)");
+        assertValue("6", "2*(+3)");
+        assertValue("-6", "2*(-3)");
+        assertValue("2", "(+1)*2");
+        assertValue("0.5", "integral(+x,0,+1)");
+    }
+
+    /**
+     * Checks a sign after a binary operator.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void signedOperandAfterOperator() throws CalculatorError
+    {
+        assertValue("3", "1++2");
+        assertValue("-1", "1+-2");
+    }
+
+    /**
+     * Checks that a sign cannot follow another sign or a tighter binding operator.
+     */
+    @Test
+    public void repeatedSignIsMissingArgument()
+    {
+        assertError(ErrorType.missingArg, "++1");
+        assertError(ErrorType.missingArg, "+-1");
+        assertError(ErrorType.missingArg, "-+1");
+        assertError(ErrorType.missingArg, "2*+3");
+        assertError(ErrorType.missingArg, "+");
+    }
+
+    /**
+     * Checks that the expression evaluates to expected.
+     * 
+     * @param expected
+     *            - the expected value.
+     * @param expression
+     *            - the expression to evaluate.
+     * @throws CalculatorError
+     */
+    private static void assertValue(String expected, String expression) throws CalculatorError
+    {
+        BigDecimal actual = new Calculator().compute(expression);
+        assertEquals(expression + " = " + actual, 0, new BigDecimal(expected).compareTo(actual));
+    }
+
+    /**
+     * Checks that the expression fails with the expected error.
+     * 
+     * @param expected
+     *            - the expected error.
+     * @param expression
+     *            - the expression to evaluate.
+     */
+    private static void assertError(ErrorType expected, String expression)
+    {
+        try
+        {
+            new Calculator().compute(expression);
+            fail(expression + " should fail with " + expected);
+        } catch (CalculatorError e)
+        {
+            assertEquals(expression, expected, e.getError());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package calculator.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import calculator.Calculator;
+import calculator.Calculator.Precision;
+import calculator.CalculatorError;
+
+/**
+ * Tests that BatchEvaluator writes a result for every line of its input, independently of its number of threads.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class BatchEvaluatorTest
+{
+
+    /**
+     * Checks that a line nested too deeply to compile is written as a failure, and the lines around it are still
+     * evaluated.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void pathologicalLineDoesNotStopStream() throws IOException
+    {
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 1000000; i++)
+        {
+            nested.append('(');
+        }
+        nested.append('1');
+        for (int i = 0; i < 1000000; i++)
+        {
+            nested.append(')');
+        }
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3 * BatchEvaluator.CHUNK_SIZE; i++)
+        {
+            if (i == BatchEvaluator.CHUNK_SIZE + 1)
+            {
+                input.append(nested).append('\n');
+                expected.append(BatchEvaluator.FAILURE).append('\n');
+            } else
+            {
+                input.append(i).append("+1\n");
+                expected.append(i + 1).append('\n');
+            }
+        }
+        Calculator calc = new Calculator();
+        StringWriter out = new StringWriter();
+        long lines =
+                new BatchEvaluator(calc.getEngine(), calc.getSession(), new OutputFormat(0, false), 2).run(
+                        new BufferedReader(new StringReader(input.toString())), out);
+        assertEquals(3 * BatchEvaluator.CHUNK_SIZE, lines);
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    /**
+     * Checks that the output for the same input is the same with one thread as with four, in both precisions.
+     * 
+     * @throws IOException
+     * @throws CalculatorError
+     */
+    @Test
+    public void sameOutputForAnyThreads() throws IOException, CalculatorError
+    {
+        String[] lines =
+                { "sin(#)*e^(#/100)", "1/(# - 50)", "ln(# - 10)", "sum(x^2, 1, #)", "integral(cos(x), 0, #/100)",
+                        "sqrt(#)^3 % 7", "(# + 1" };
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 3 * BatchEvaluator.CHUNK_SIZE; i++)
+        {
+            input.append(lines[i % lines.length].replace("#", Integer.toString(i % 100))).append('\n');
+        }
+        for (Precision precision : Precision.values())
+        {
+            assertEquals(precision.toString(), run(input.toString(), precision, 1),
+                    run(input.toString(), precision, 4));
+        }
+    }
+
+    /**
+     * Returns the output of a BatchEvaluator for the given input.
+     * 
+     * @param input
+     *            - the lines to evaluate.
+     * @param precision
+     *            - the precision of the calculator.
+     * @param threads
+     *            - the number of threads of each stage.
+     * @return the output.
+     * @throws IOException
+     * @throws CalculatorError
+     */
+    private static String run(String input, Precision precision, int threads) throws IOException, CalculatorError
+    {
+        Calculator calc = new Calculator();
+        calc.setPrecision(precision);
+        StringWriter out = new StringWriter();
+        new BatchEvaluator(calc.getEngine(), calc.getSession(), new OutputFormat(0, false), threads).run(
+                new BufferedReader(new StringReader(input)), out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package calculator.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import calculator.Calculator;
+import calculator.ErrorType;
+
+/**
+ * Tests that Repl stores its results and their expressions in the session.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class ReplTest
+{
+
+    /**
+     * Checks that the last expression evaluated is stored in fans, in brackets and with fans expanded.
+     */
+    @Test
+    public void expressionIsStoredInFans()
+    {
+        Calculator calc = new Calculator();
+        Repl repl = new Repl(calc, new OutputFormat(0, false), false);
+        assertEquals("3", repl.evaluate("1 + 2"));
+        assertEquals("(1+2)", calc.getFAnswer());
+        assertEquals("6", repl.evaluate("2fans"));
+        assertEquals("(2*(1+2))", calc.getFAnswer());
+        assertEquals("7", repl.evaluate("fans+1"));
+    }
+
+    /**
+     * Checks that an expression which fails leaves fans unchanged.
+     */
+    @Test
+    public void failedExpressionIsNotStored()
+    {
+        Calculator calc = new Calculator();
+        Repl repl = new Repl(calc, new OutputFormat(0, false), false);
+        repl.evaluate("1+2");
+        assertEquals(ErrorType.divisionByZero.getMessage(), repl.evaluate("1/0"));
+        assertEquals("(1+2)", calc.getFAnswer());
+    }
+
+    /**
+     * Checks that a fans shorter than "fans" itself, and the empty fans of a new session, are replaced without
+     * failing.
+     */
+    @Test
+    public void shortFans()
+    {
+        Calculator calc = new Calculator();
+        Repl repl = new Repl(calc, new OutputFormat(0, false), false);
+        assertEquals(ErrorType.functionUndef.getMessage(), repl.evaluate("fans"));
+        assertEquals("1", repl.evaluate("1"));
+        assertEquals("1", repl.evaluate("fans"));
+        assertEquals("5", repl.evaluate("5"));
+        assertEquals("10", repl.evaluate("2fans"));
+        assertEquals(ErrorType.functionUndef.getMessage(), repl.evaluate("fmem"));
+    }
+
+    /**
+     * Checks that a stored fans is not scanned again after it is substituted, so one starting with "(mem" is kept as
+     * it is.
+     */
+    @Test
+    public void fansContainingMem()
+    {
+        Calculator calc = new Calculator();
+        Repl repl = new Repl(calc, new OutputFormat(0, false), false);
+        assertEquals("1", repl.evaluate("mem+1"));
+        assertEquals("(mem+1)", calc.getFAnswer());
+        assertEquals("1", repl.evaluate("fans"));
+    }
+
+    /**
+     * Checks that a line nested too deeply to compile is reported as a failure, and the loop goes on.
+     */
+    @Test
+    public void pathologicalLineIsReported()
+    {
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 1000000; i++)
+        {
+            nested.append('(');
+        }
+        nested.append('1');
+        for (int i = 0; i < 1000000; i++)
+        {
+            nested.append(')');
+        }
+        Calculator calc = new Calculator();
+        Repl repl = new Repl(calc, new OutputFormat(0, false), false);
+        assertEquals(BatchEvaluator.FAILURE, repl.evaluate(nested.toString()));
+        assertEquals("2", repl.evaluate("1+1"));
+    }
+}
@@ -0,0 +1,129 @@
+package graphing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import calculator.Calculator;
+import calculator.CalculatorError;
+
+/**
+ * Tests that the graphs drawn by GraphRenderer only depend on their range and functions.
+ * 
+ * @author Andrei Purcarus
+ *
+ */
+public class GraphRendererTest
+{
+
+    /**
+     * Checks that a graph drawn after another with a different range of y is the same as when drawn first.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void sameGraphAfterRescale() throws CalculatorError
+    {
+        assertSameGraph("sin(x)", new String[] { "-10", "10", "-2", "2" }, new String[] { "-10", "10", "-20", "20" });
+        assertSameGraph("1/x", new String[] { "-10", "10", "-2", "2" }, new String[] { "-10", "10", "-20", "20" });
+    }
+
+    /**
+     * Checks that a graph drawn after another moved by whole columns is the same as when drawn first.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void sameGraphAfterPan() throws CalculatorError
+    {
+        assertSameGraph("1/x", new String[] { "-12", "8", "-2", "2" }, new String[] { "-10", "10", "-2", "2" });
+        assertSameGraph("1/x", new String[] { "-3", "7", "-5", "5" }, new String[] { "-12", "8", "-2", "2" });
+    }
+
+    /**
+     * Checks that an integral with a variable bound, whose enclosures are loose, is drawn as its curve rather than
+     * over its enclosures, in both precisions.
+     * 
+     * @throws CalculatorError
+     */
+    @Test
+    public void looseEnclosureIsNotDrawn() throws CalculatorError
+    {
+        String[] view = new String[] { "-5", "5", "-3", "3" };
+        for (Calculator.Precision precision : Calculator.Precision.values())
+        {
+            Calculator calc = new Calculator();
+            calc.setPrecision(precision);
+            int[] integral = render("integral(sin(x),0,x)", view, calc, new GraphCache());
+            int[] curve = render("1-cos(x)", view, calc, new GraphCache());
+            int[] blank = render("100", view, calc, new GraphCache());
+            int drawn = 0;
+            int different = 0;
+            for (int i = 0; i < integral.length; i++)
+            {
+                if (curve[i] != blank[i])
+                {
+                    drawn++;
+                }
+                if (integral[i] != curve[i])
+                {
+                    different++;
+                }
+            }
+            assertTrue(precision + ": " + different + " of " + drawn + " pixels differ", different < drawn / 10);
+        }
+    }
+
+    /**
+     * Checks that the graph of function over view is the same when drawn with an empty cache and when drawn after the
+     * graph over before with the same cache, in both precisions.
+     * 
+     * @param function
+     *            - the function to graph.
+     * @param before
+     *            - the range of the graph drawn first, as xMin, xMax, yMin and yMax.
+     * @param view
+     *            - the range of the graph compared, as xMin, xMax, yMin and yMax.
+     * @throws CalculatorError
+     */
+    private static void assertSameGraph(String function, String[] before, String[] view) throws CalculatorError
+    {
+        for (Calculator.Precision precision : Calculator.Precision.values())
+        {
+            Calculator calc = new Calculator();
+            calc.setPrecision(precision);
+            int[] cold = render(function, view, calc, new GraphCache());
+            GraphCache cache = new GraphCache();
+            render(function, before, calc, cache);
+            int[] warm = render(function, view, calc, cache);
+            assertArrayEquals(function + " over " + Arrays.toString(view) + " after " + Arrays.toString(before), cold,
+                    warm);
+        }
+    }
+
+    /**
+     * Returns the pixels of the graph of function over view.
+     * 
+     * @param function
+     *            - the function to graph.
+     * @param view
+     *            - the range of the graph, as xMin, xMax, yMin and yMax.
+     * @param calc
+     *            - the calculator used to evaluate the expressions.
+     * @param cache
+     *            - the samples of the earlier graphs.
+     * @return the pixels of the graph.
+     * @throws CalculatorError
+     */
+    private static int[] render(String function, String[] view, Calculator calc, GraphCache cache)
+            throws CalculatorError
+    {
+        GraphRenderer renderer =
+                new GraphRenderer(200, 100, 3, 2, GraphRenderer.splitFunctions(function), view[0], view[1], view[2],
+                        view[3], calc.getEngine(), calc.getSession());
+        return renderer.render(null, cache, frame -> {}).getPixels();
+    }
+}